@@ -0,0 +1,577 @@
+package org.playerhook.games.api;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.playerhook.games.util.MapSerializable.PrivacyLevel;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact versioned binary snapshot of the sessions.
+ *
+ * The players are stored once and referenced by their seat, the token symbols are stored in a dictionary and
+ * referenced by their ids, the positions inside the board are packed into single integer and the timestamps of the
+ * moves are stored as the difference from the previous move. The integers are written as variable length quantities.
+ *
+ * The snapshot written at {@link PrivacyLevel#INTERNAL} level contains the key of the session so it can be restored
+ * with the same semantics as {@link LocalSession#load(Object)}.
+ */
+public final class BinaryCodec {
+
+    /**
+     * Current version of the format.
+     */
+    public static final int VERSION = 1;
+
+    private static final int MAGIC = 0x50485353; // PHSS
+
+    private static final int FLAG_KEY = 1;
+    private static final int FLAG_PLAYER_ON_TURN = 1 << 1;
+    private static final int FLAG_URL = 1 << 2;
+
+    private static final int FLAG_SOURCE = 1;
+    private static final int FLAG_PLACEMENT_KEY = 1 << 1;
+
+    private static final int VALUE_NULL = 0;
+    private static final int VALUE_STRING = 1;
+    private static final int VALUE_LONG = 2;
+    private static final int VALUE_DOUBLE = 3;
+    private static final int VALUE_BOOLEAN = 4;
+    private static final int VALUE_LIST = 5;
+    private static final int VALUE_MAP = 6;
+
+    private BinaryCodec() { }
+
+    public static byte[] encode(Session session, PrivacyLevel level) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            write(output, session, level);
+        } catch (IOException e) {
+            throw new IllegalStateException("Exception writing session snapshot", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static Session decode(byte[] snapshot) {
+        return decodeLocal(snapshot);
+    }
+
+    public static LocalSession decodeLocal(byte[] snapshot) {
+        try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(snapshot))) {
+            return read(input);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Cannot read session snapshot", e);
+        }
+    }
+
+    public static void write(DataOutput output, Session session, PrivacyLevel level) throws IOException {
+        DefaultSession delegate = SessionDelta.unwrap(session);
+        if (delegate == null) {
+            throw new IllegalArgumentException("Only default sessions can be written as binary snapshot: " + session);
+        }
+        DefaultLocalSession localSession = unwrapLocal(session);
+        String key = localSession != null && PrivacyLevel.INTERNAL.equals(level) ? localSession.getPrivateKey() : null;
+
+        output.writeInt(MAGIC);
+        writeVarInt(output, VERSION);
+
+        int flags = 0;
+        if (key != null) {
+            flags |= FLAG_KEY;
+        }
+        if (delegate.getPlayerOnTurn().isPresent()) {
+            flags |= FLAG_PLAYER_ON_TURN;
+        }
+        if (delegate.getURL().isPresent()) {
+            flags |= FLAG_URL;
+        }
+        writeVarInt(output, flags);
+
+        if (key != null) {
+            writeString(output, key);
+            writeString(output, localSession.getKeyDerivation().getCode());
+        }
+
+        writeVarLong(output, delegate.getRound());
+        writeVarInt(output, delegate.getStatus().ordinal());
+        writeVarLong(output, delegate.getLastUpdated().toEpochMilli());
+
+        if (delegate.getURL().isPresent()) {
+            writeString(output, delegate.getURL().get().toExternalForm());
+        }
+
+        Game game = delegate.getGame();
+        writeString(output, game.getTitle());
+        writeString(output, game.getDescription().orElse(null));
+        writeString(output, game.getURL().map(URL::toExternalForm).orElse(null));
+        writeValue(output, game.getRules().toMap(level));
+
+        Dictionary dictionary = new Dictionary(delegate);
+
+        writeVarInt(output, delegate.getPlayers().size());
+        writeVarInt(output, dictionary.players.size());
+        for (Player player : dictionary.players) {
+            writeString(output, player.getUsername());
+            writeString(output, player.getAvatar().map(Avatar::toString).orElse(null));
+            writeString(output, player.getDisplayName().orElse(null));
+            writeString(output, player.getDisplayColor().orElse(null));
+        }
+
+        if (delegate.getPlayerOnTurn().isPresent()) {
+            writeVarInt(output, dictionary.seat(delegate.getPlayerOnTurn().get()));
+        }
+
+        writeVarInt(output, dictionary.symbols.size());
+        for (String symbol : dictionary.symbols) {
+            writeString(output, symbol);
+        }
+
+        Board board = delegate.getBoard();
+        writeVarInt(output, zigzag(board.getFirstColumn()));
+        writeVarInt(output, board.getWidth());
+        writeVarInt(output, zigzag(board.getFirstRow()));
+        writeVarInt(output, board.getHeight());
+
+        List<TokenPlacement> placements = board.getTokenPlacements();
+        writeVarInt(output, placements.size());
+        for (TokenPlacement placement : placements) {
+            writePlacement(output, placement, board, dictionary);
+        }
+
+        writeVarInt(output, delegate.getScores().size());
+        for (Map.Entry<Player, Integer> score : delegate.getScores().entrySet()) {
+            writeVarInt(output, dictionary.seat(score.getKey()));
+            writeVarInt(output, zigzag(score.getValue()));
+        }
+
+        writeVarInt(output, delegate.getDecks().size());
+        for (Map.Entry<Player, Deck> deck : delegate.getDecks().entrySet()) {
+            writeVarInt(output, dictionary.seat(deck.getKey()));
+            writeDeck(output, deck.getValue(), dictionary);
+        }
+
+        List<Move> moves = delegate.getMoveHistory();
+        writeVarInt(output, moves.size());
+        long previous = 0;
+        for (Move move : moves) {
+            long timestamp = move.getTimestamp().toEpochMilli();
+            writePlacement(output, move.getTokenPlacement(), board, dictionary);
+            writeVarLong(output, zigzag(timestamp - previous));
+            writeString(output, move.getRuleViolation().map(RuleViolation::getCode).orElse(null));
+            previous = timestamp;
+        }
+    }
+
+    public static LocalSession read(DataInput input) throws IOException {
+        if (input.readInt() != MAGIC) {
+            throw new IllegalArgumentException("Not a session snapshot");
+        }
+        int version = readVarInt(input);
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported session snapshot version " + version);
+        }
+
+        int flags = readVarInt(input);
+
+        String key = null;
+        KeyDerivation keyDerivation = KeyDerivation.load(null);
+        if ((flags & FLAG_KEY) != 0) {
+            key = readString(input);
+            keyDerivation = KeyDerivation.load(readString(input));
+        }
+
+        long round = readVarLong(input);
+        Status status = Status.values()[readVarInt(input)];
+        Instant lastUpdated = Instant.ofEpochMilli(readVarLong(input));
+        URL url = (flags & FLAG_URL) != 0 ? toURL(readString(input)) : null;
+
+        String title = readString(input);
+        String description = readString(input);
+        URL gameUrl = toURL(readString(input));
+        Game game = Game.of(title, description, gameUrl, Rules.load(readValue(input)));
+
+        int seats = readVarInt(input);
+        Player[] players = new Player[readVarInt(input)];
+        for (int i = 0; i < players.length; i++) {
+            String username = readString(input);
+            String avatar = readString(input);
+            String displayName = readString(input);
+            String displayColor = readString(input);
+            players[i] = Player.create(username, avatar == null ? null : Avatar.of(avatar), displayName, displayColor);
+        }
+
+        Player playerOnTurn = (flags & FLAG_PLAYER_ON_TURN) != 0 ? players[readVarInt(input)] : null;
+
+        Token[] tokens = new Token[readVarInt(input)];
+        for (int i = 0; i < tokens.length; i++) {
+            tokens[i] = Token.stub(readString(input));
+        }
+
+        int firstColumn = unzigzag(readVarInt(input));
+        int width = readVarInt(input);
+        int firstRow = unzigzag(readVarInt(input));
+        int height = readVarInt(input);
+
+        int placementCount = readVarInt(input);
+        List<TokenPlacement> placements = Lists.newArrayListWithCapacity(placementCount);
+        for (int i = 0; i < placementCount; i++) {
+            placements.add(readPlacement(input, firstColumn, width, firstRow, players, tokens));
+        }
+        Board board = Board.rectangle(firstColumn, width, firstRow, height, placements);
+
+        ImmutableMap.Builder<Player, Integer> scores = ImmutableMap.builder();
+        int scoreCount = readVarInt(input);
+        for (int i = 0; i < scoreCount; i++) {
+            scores.put(players[readVarInt(input)], unzigzag(readVarInt(input)));
+        }
+
+        ImmutableMap.Builder<Player, Deck> decks = ImmutableMap.builder();
+        int deckCount = readVarInt(input);
+        for (int i = 0; i < deckCount; i++) {
+            decks.put(players[readVarInt(input)], readDeck(input, tokens));
+        }
+
+        int moveCount = readVarInt(input);
+        PersistentList<Move> moves = PersistentList.empty();
+        long previous = 0;
+        for (int i = 0; i < moveCount; i++) {
+            TokenPlacement placement = readPlacement(input, firstColumn, width, firstRow, players, tokens);
+            long timestamp = previous + unzigzag(readVarLong(input));
+            String ruleViolation = readString(input);
+            moves = moves.append(Move.to(placement, RuleViolation.load(ruleViolation), Instant.ofEpochMilli(timestamp)));
+            previous = timestamp;
+        }
+
+        DefaultSession session = new DefaultSession(
+                round,
+                board,
+                game,
+                status,
+                ImmutableList.copyOf(players).subList(0, seats),
+                playerOnTurn,
+                url,
+                moves,
+                decks.build(),
+                scores.build(),
+                lastUpdated
+        );
+
+        return DefaultLocalSession.restore(session, key, keyDerivation);
+    }
+
+    private static DefaultLocalSession unwrapLocal(Session session) {
+        if (session instanceof DefaultLocalSession) {
+            return (DefaultLocalSession) session;
+        }
+        if (session instanceof DefaultObservableLocalSession) {
+            return unwrapLocal(((DefaultObservableLocalSession) session).getDelegate());
+        }
+        return null;
+    }
+
+    private static void writePlacement(DataOutput output, TokenPlacement placement, Board board, Dictionary dictionary) throws IOException {
+        int flags = 0;
+        if (placement.getSource().isPresent()) {
+            flags |= FLAG_SOURCE;
+        }
+        if (placement.getKey().isPresent()) {
+            flags |= FLAG_PLACEMENT_KEY;
+        }
+        writeVarInt(output, flags);
+        writeVarInt(output, dictionary.token(placement.getToken()));
+        writeVarInt(output, dictionary.seat(placement.getPlayer()));
+        writePosition(output, placement.getDestination(), board);
+        if (placement.getSource().isPresent()) {
+            writePosition(output, placement.getSource().get(), board);
+        }
+        if (placement.getKey().isPresent()) {
+            writeString(output, placement.getKey().get());
+        }
+    }
+
+    private static TokenPlacement readPlacement(DataInput input, int firstColumn, int width, int firstRow, Player[] players, Token[] tokens) throws IOException {
+        int flags = readVarInt(input);
+        Token token = tokens[readVarInt(input)];
+        Player player = players[readVarInt(input)];
+        Position destination = readPosition(input, firstColumn, width, firstRow);
+        Position source = (flags & FLAG_SOURCE) != 0 ? readPosition(input, firstColumn, width, firstRow) : null;
+        String key = (flags & FLAG_PLACEMENT_KEY) != 0 ? readString(input) : null;
+        return TokenPlacement.create(token, player, source, destination, key);
+    }
+
+    /**
+     * Positions inside the board are written as the flat index of the cell plus one, zero is followed by the row and
+     * the column of the position outside of the board.
+     */
+    private static void writePosition(DataOutput output, Position position, Board board) throws IOException {
+        if (board.contains(position)) {
+            writeVarInt(output, (position.getRow() - board.getFirstRow()) * board.getWidth() + position.getColumn() - board.getFirstColumn() + 1);
+            return;
+        }
+        writeVarInt(output, 0);
+        writeVarInt(output, zigzag(position.getRow()));
+        writeVarInt(output, zigzag(position.getColumn()));
+    }
+
+    private static Position readPosition(DataInput input, int firstColumn, int width, int firstRow) throws IOException {
+        int packed = readVarInt(input);
+        if (packed == 0) {
+            int row = unzigzag(readVarInt(input));
+            return Position.at(row, unzigzag(readVarInt(input)));
+        }
+        int index = packed - 1;
+        return Position.at(firstRow + index / width, firstColumn + index % width);
+    }
+
+    private static void writeDeck(DataOutput output, Deck deck, Dictionary dictionary) throws IOException {
+        List<int[]> runs = Lists.newArrayList();
+        deck.forEachRun((token, count) -> runs.add(new int[] {dictionary.token(token), count}));
+        writeVarInt(output, runs.size());
+        for (int[] run : runs) {
+            writeVarInt(output, run[0]);
+            writeVarInt(output, run[1]);
+        }
+        writeVarInt(output, deck.getSecretTokens().size());
+        for (Token token : deck.getSecretTokens()) {
+            writeVarInt(output, dictionary.token(token));
+        }
+    }
+
+    private static Deck readDeck(DataInput input, Token[] tokens) throws IOException {
+        int runCount = readVarInt(input);
+        List<Token> runTokens = Lists.newArrayListWithCapacity(runCount);
+        int[] counts = new int[runCount];
+        for (int i = 0; i < runCount; i++) {
+            runTokens.add(tokens[readVarInt(input)]);
+            counts[i] = readVarInt(input);
+        }
+        int secretCount = readVarInt(input);
+        List<Token> secretTokens = Lists.newArrayListWithCapacity(secretCount);
+        for (int i = 0; i < secretCount; i++) {
+            secretTokens.add(tokens[readVarInt(input)]);
+        }
+        return Deck.ofRuns(runTokens, counts, secretTokens);
+    }
+
+    private static void writeValue(DataOutput output, Object value) throws IOException {
+        if (value == null) {
+            writeVarInt(output, VALUE_NULL);
+        } else if (value instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>) value;
+            writeVarInt(output, VALUE_MAP);
+            writeVarInt(output, map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                writeString(output, String.valueOf(entry.getKey()));
+                writeValue(output, entry.getValue());
+            }
+        } else if (value instanceof Iterable) {
+            List<?> list = Lists.newArrayList((Iterable<?>) value);
+            writeVarInt(output, VALUE_LIST);
+            writeVarInt(output, list.size());
+            for (Object item : list) {
+                writeValue(output, item);
+            }
+        } else if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            writeVarInt(output, VALUE_LONG);
+            writeVarLong(output, zigzag(((Number) value).longValue()));
+        } else if (value instanceof Number) {
+            writeVarInt(output, VALUE_DOUBLE);
+            output.writeDouble(((Number) value).doubleValue());
+        } else if (value instanceof Boolean) {
+            writeVarInt(output, VALUE_BOOLEAN);
+            output.writeBoolean((Boolean) value);
+        } else {
+            writeVarInt(output, VALUE_STRING);
+            writeString(output, value.toString());
+        }
+    }
+
+    private static Object readValue(DataInput input) throws IOException {
+        int type = readVarInt(input);
+        switch (type) {
+            case VALUE_NULL:
+                return null;
+            case VALUE_STRING:
+                return readString(input);
+            case VALUE_LONG:
+                long number = unzigzag(readVarLong(input));
+                if (number >= Integer.MIN_VALUE && number <= Integer.MAX_VALUE) {
+                    return (int) number;
+                }
+                return number;
+            case VALUE_DOUBLE:
+                return input.readDouble();
+            case VALUE_BOOLEAN:
+                return input.readBoolean();
+            case VALUE_LIST:
+                int size = readVarInt(input);
+                List<Object> list = Lists.newArrayListWithCapacity(size);
+                for (int i = 0; i < size; i++) {
+                    list.add(readValue(input));
+                }
+                return list;
+            case VALUE_MAP:
+                int entries = readVarInt(input);
+                Map<String, Object> map = Maps.newLinkedHashMap();
+                for (int i = 0; i < entries; i++) {
+                    String key = readString(input);
+                    map.put(key, readValue(input));
+                }
+                return map;
+            default:
+                throw new IllegalArgumentException("Unknown value type " + type);
+        }
+    }
+
+    /**
+     * Strings are written as the length of UTF-8 bytes plus one, zero stands for <code>null</code>.
+     */
+    private static void writeString(DataOutput output, String value) throws IOException {
+        if (value == null) {
+            writeVarInt(output, 0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(output, bytes.length + 1);
+        output.write(bytes);
+    }
+
+    private static String readString(DataInput input) throws IOException {
+        int length = readVarInt(input);
+        if (length == 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length - 1];
+        input.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeVarInt(DataOutput output, int value) throws IOException {
+        int remaining = value;
+        while ((remaining & ~0x7F) != 0) {
+            output.writeByte((remaining & 0x7F) | 0x80);
+            remaining >>>= 7;
+        }
+        output.writeByte(remaining);
+    }
+
+    private static int readVarInt(DataInput input) throws IOException {
+        int result = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = input.readByte();
+            result |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IllegalArgumentException("Malformed variable length integer");
+    }
+
+    private static void writeVarLong(DataOutput output, long value) throws IOException {
+        long remaining = value;
+        while ((remaining & ~0x7FL) != 0) {
+            output.writeByte((int) ((remaining & 0x7F) | 0x80));
+            remaining >>>= 7;
+        }
+        output.writeByte((int) remaining);
+    }
+
+    private static long readVarLong(DataInput input) throws IOException {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = input.readByte();
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IllegalArgumentException("Malformed variable length long");
+    }
+
+    private static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static int unzigzag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static URL toURL(String url) {
+        if (url == null) {
+            return null;
+        }
+        try {
+            return new URL(url);
+        } catch (MalformedURLException e) {
+            throw new RuntimeException("Error parsing the URL", e);
+        }
+    }
+
+    /**
+     * Seats of the players and ids of the token symbols used in the session.
+     *
+     * The players of the session come first, followed by the players only referenced from the moves.
+     */
+    private static final class Dictionary {
+        private final List<Player> players = Lists.newArrayList();
+        private final Map<String, Integer> seats = Maps.newHashMap();
+        private final List<String> symbols = Lists.newArrayList();
+        private final Map<String, Integer> ids = Maps.newHashMap();
+
+        Dictionary(DefaultSession session) {
+            session.getPlayers().forEach(this::seat);
+            session.getPlayerOnTurn().ifPresent(this::seat);
+            session.getScores().keySet().forEach(this::seat);
+            for (Map.Entry<Player, Deck> deck : session.getDecks().entrySet()) {
+                seat(deck.getKey());
+                deck.getValue().forEachRun((token, count) -> token(token));
+                deck.getValue().getSecretTokens().forEach(this::token);
+            }
+            for (TokenPlacement placement : session.getBoard().getTokenPlacements()) {
+                seat(placement.getPlayer());
+                token(placement.getToken());
+            }
+            for (Move move : session.getMoveHistory()) {
+                seat(move.getTokenPlacement().getPlayer());
+                token(move.getTokenPlacement().getToken());
+            }
+        }
+
+        int seat(Player player) {
+            return seats.computeIfAbsent(player.getUsername(), username -> {
+                players.add(player);
+                return players.size() - 1;
+            });
+        }
+
+        int token(Token token) {
+            return ids.computeIfAbsent(token.getSymbol(), symbol -> {
+                symbols.add(symbol);
+                return symbols.size() - 1;
+            });
+        }
+    }
+
+}
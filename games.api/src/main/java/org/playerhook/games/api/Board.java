@@ -2,23 +2,44 @@ package org.playerhook.games.api;
 
 import com.google.common.base.Objects;
 import com.google.common.base.Preconditions;
-import com.google.common.collect.*;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import org.playerhook.games.util.MapSerializable;
 
+import java.util.AbstractList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.RandomAccess;
 import java.util.stream.Collectors;
 
 public final class Board implements MapSerializable {
 
-    private int firstColumn;
-    private int width;
-    private int firstRow;
-    private int height;
+    private final int firstColumn;
+    private final int width;
+    private final int firstRow;
+    private final int height;
 
-    private final ImmutableTable<Integer, Integer, ImmutableList<TokenPlacement>> board;
+    private final BoardCells cells;
 
+    /**
+     * Placements outside of the board rectangle. They are never accepted by the sessions but they can still be present
+     * in the loaded payloads so they must survive the round trip.
+     */
+    private final ImmutableMap<Position, ImmutableList<TokenPlacement>> outside;
+
+    /**
+     * Zobrist hash of all the placements including the ones outside of the board.
+     */
+    private final long zobristHash;
+
+    /**
+     * Memoized incremental indices. Not part of the value of the board.
+     */
+    private volatile ImmutableMap<BoardIndex<?>, Object> indices = ImmutableMap.of();
 
     public static Board square(int size, Iterable<TokenPlacement> tokenPlacements) {
         return new Board(0, size, 0, size, tokenPlacements);
@@ -60,28 +81,129 @@ public final class Board implements MapSerializable {
         this.firstRow = firstRow;
         this.height = height;
 
-        Table<Integer, Integer, List<TokenPlacement>> table = HashBasedTable.create();
+        List<TokenPlacement> inside = Lists.newArrayList();
+        Map<Position, List<TokenPlacement>> outsideTokens = Maps.newLinkedHashMap();
 
         for (TokenPlacement placement : tokenPlacements) {
-            List<TokenPlacement> tokens = table.get(placement.getDestination().getRow(), placement.getDestination().getColumn());
-            if (tokens == null) {
-                tokens = Lists.newArrayList();
+            if (contains(placement.getDestination())) {
+                inside.add(placement);
+            } else {
+                outsideTokens.computeIfAbsent(placement.getDestination(), position -> Lists.newArrayList()).add(placement);
             }
-            tokens.add(placement);
-            table.put(placement.getDestination().getRow(), placement.getDestination().getColumn(), tokens);
         }
 
-        ImmutableTable.Builder<Integer, Integer, ImmutableList<TokenPlacement>> tableBuilder = ImmutableTable.builder();
+        int[] indices = new int[inside.size()];
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = indexOf(inside.get(i).getDestination());
+        }
+
+        ImmutableMap.Builder<Position, ImmutableList<TokenPlacement>> outsideBuilder = ImmutableMap.builder();
+        for (Map.Entry<Position, List<TokenPlacement>> entry : outsideTokens.entrySet()) {
+            outsideBuilder.put(entry.getKey(), ImmutableList.copyOf(entry.getValue()));
+        }
+
+        this.cells = BoardCells.empty(width * height).placeAll(indices, inside.toArray(new TokenPlacement[inside.size()]));
+        this.outside = outsideBuilder.build();
 
-        for (Table.Cell<Integer, Integer, List<TokenPlacement>> cell : table.cellSet()) {
-            tableBuilder.put(cell.getRowKey(), cell.getColumnKey(), ImmutableList.copyOf(cell.getValue()));
+        long hash = 0;
+        for (int i = 0; i < cells.size(); i++) {
+            ImmutableList<TokenPlacement> placements = cells.get(i);
+            if (placements != null) {
+                hash ^= ZobristKeys.key(placements);
+            }
+        }
+        for (ImmutableList<TokenPlacement> placements : outside.values()) {
+            hash ^= ZobristKeys.key(placements);
         }
+        this.zobristHash = hash;
+    }
 
-        this.board = tableBuilder.build();
+    private Board(Board original, BoardCells cells, ImmutableMap<Position, ImmutableList<TokenPlacement>> outside, long zobristHash) {
+        this.firstColumn = original.firstColumn;
+        this.width = original.width;
+        this.firstRow = original.firstRow;
+        this.height = original.height;
+        this.cells = cells;
+        this.outside = outside;
+        this.zobristHash = zobristHash;
     }
 
     public Board place(TokenPlacement placement) {
-        return new Board(firstColumn, width, firstRow, height, Iterables.concat(getTokenPlacements(), ImmutableList.of(placement)));
+        int index = indexOf(placement.getDestination());
+        Board placed;
+        if (index >= 0) {
+            ImmutableList<TokenPlacement> existing = cells.get(index);
+            long key = ZobristKeys.key(placement.getDestination(), placement.getToken().getSymbol(), existing == null ? 0 : existing.size());
+            placed = new Board(this, cells.place(index, placement), outside, zobristHash ^ key);
+        } else {
+            placed = new Board(firstColumn, width, firstRow, height, Iterables.concat(getTokenPlacements(), ImmutableList.of(placement)));
+        }
+        placed.indices = updateIndices(placement);
+        return placed;
+    }
+
+    /**
+     * Returns the index computed for this board.
+     *
+     * The index is built for the first time it is requested and then it is updated incrementally for every board
+     * created by {@link #place(TokenPlacement)} from this one.
+     *
+     * @param index the index definition
+     * @param <T> the type of the index
+     * @return the index computed for this board
+     */
+    public <T> T getIndex(BoardIndex<T> index) {
+        Object value = indices.get(index);
+        if (value == null) {
+            synchronized (this) {
+                value = indices.get(index);
+                if (value == null) {
+                    value = Preconditions.checkNotNull(index.build(this), "Index cannot be null");
+                    indices = ImmutableMap.<BoardIndex<?>, Object>builder().putAll(indices).put(index, value).build();
+                }
+            }
+        }
+        return (T) value;
+    }
+
+    private ImmutableMap<BoardIndex<?>, Object> updateIndices(TokenPlacement placement) {
+        ImmutableMap<BoardIndex<?>, Object> current = indices;
+        if (current.isEmpty()) {
+            return current;
+        }
+        ImmutableMap.Builder<BoardIndex<?>, Object> builder = ImmutableMap.builder();
+        for (Map.Entry<BoardIndex<?>, Object> entry : current.entrySet()) {
+            BoardIndex<Object> index = (BoardIndex<Object>) entry.getKey();
+            builder.put(index, Preconditions.checkNotNull(index.update(entry.getValue(), this, placement), "Index cannot be null"));
+        }
+        return builder.build();
+    }
+
+    /**
+     * @param position position on the board
+     * @return flat index of the cell for given position or <code>-1</code> if the position is outside of the board
+     */
+    private int indexOf(Position position) {
+        int row = position.getRow() - firstRow;
+        int column = position.getColumn() - firstColumn;
+        if (row < 0 || row >= height || column < 0 || column >= width) {
+            return -1;
+        }
+        return row * width + column;
+    }
+
+    /**
+     * Returns 64-bit Zobrist hash of the placements on the board.
+     *
+     * The hash only depends on the destinations and the symbols of the tokens, the players of the placements are not
+     * taken into account. It is updated in constant time by {@link #place(TokenPlacement)} and it is the same in every
+     * JVM, so it can be used as the key of persisted caches. Equal boards always have equal hashes but the boards
+     * with equal hashes still need to be compared using {@link #equals(Object)}.
+     *
+     * @return Zobrist hash of the placements on the board
+     */
+    public long getZobristHash() {
+        return zobristHash;
     }
 
     public int getFirstColumn() {
@@ -101,20 +223,24 @@ public final class Board implements MapSerializable {
     }
 
     public List<TokenPlacement> getTokenPlacements() {
-        return ImmutableList.copyOf(Iterables.concat(board.values()));
+        ImmutableList.Builder<TokenPlacement> builder = ImmutableList.builder();
+        cells.forEachOccupied((placements, index) -> builder.addAll(placements));
+        for (ImmutableList<TokenPlacement> placements : outside.values()) {
+            builder.addAll(placements);
+        }
+        return builder.build();
     }
 
     public Optional<TokenPlacement> getTokenPlacement(Position position) {
-        return Optional.ofNullable(board.get(position.getRow(), position.getColumn())).flatMap(tokenPlacements -> {
-            if (tokenPlacements.size() > 0) {
-                return Optional.of(tokenPlacements.get(0));
-            }
-            return Optional.empty();
-        });
+        return getTokenPlacements(position).map(tokenPlacements -> tokenPlacements.get(0));
     }
 
     public Optional<ImmutableList<TokenPlacement>> getTokenPlacements(Position position) {
-        return Optional.ofNullable(board.get(position.getRow(), position.getColumn()));
+        int index = indexOf(position);
+        if (index >= 0) {
+            return Optional.ofNullable(cells.get(index));
+        }
+        return Optional.ofNullable(outside.get(position));
     }
 
     public int getLastColumn() {
@@ -130,19 +256,49 @@ public final class Board implements MapSerializable {
     }
 
     public boolean isCompletelyFilled() {
-        for (int i = getFirstRow(); i <= getLastRow(); i++) {
-            for (int j = getFirstColumn(); j <= getLastColumn(); j++) {
-                ImmutableList<TokenPlacement> tokens = board.get(i, j);
-                if (tokens == null) {
-                    return false;
-                }
+        return cells.isCompletelyFilled();
+    }
 
-                if (tokens.size() == 0) {
-                    return false;
-                }
+    /**
+     * @return number of the cells inside the board which contain at least one token
+     */
+    public int getOccupiedCount() {
+        return cells.getOccupied();
+    }
+
+    /**
+     * @return number of the cells inside the board which do not contain any token
+     */
+    public int getFreeCount() {
+        return cells.size() - cells.getOccupied();
+    }
+
+    /**
+     * Returns the free positions of the board in the row-major order.
+     *
+     * The list is a view which selects the positions directly from the occupancy of the board without copying, so
+     * picking for example a random free position does not require scanning the cells.
+     *
+     * @return random access list of the free positions of the board
+     */
+    public List<Position> getFreePositions() {
+        return new FreePositions();
+    }
+
+    private final class FreePositions extends AbstractList<Position> implements RandomAccess {
+        @Override
+        public Position get(int index) {
+            if (index < 0 || index >= size()) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
             }
+            int cell = cells.nthFree(index);
+            return Position.at(firstRow + cell / width, firstColumn + cell % width);
+        }
+
+        @Override
+        public int size() {
+            return getFreeCount();
         }
-        return true;
     }
 
     public Map<String, Object> toMap(PrivacyLevel level) {
@@ -179,16 +335,18 @@ public final class Board implements MapSerializable {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Board board1 = (Board) o;
-        return firstColumn == board1.firstColumn &&
+        return zobristHash == board1.zobristHash &&
+                firstColumn == board1.firstColumn &&
                 width == board1.width &&
                 firstRow == board1.firstRow &&
                 height == board1.height &&
-                Objects.equal(board, board1.board);
+                Objects.equal(cells, board1.cells) &&
+                Objects.equal(outside, board1.outside);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hashCode(firstColumn, width, firstRow, height, board);
+        return Objects.hashCode(firstColumn, width, firstRow, height, zobristHash);
     }
     //CHECKSTYLE:ON
 }
@@ -0,0 +1,202 @@
+package org.playerhook.games.api;
+
+import com.google.common.collect.ImmutableList;
+
+import java.util.Arrays;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Dense storage of the token placements for rectangular {@link Board}.
+ *
+ * Cells are addressed by flat index <code>(row - firstRow) * width + (column - firstColumn)</code>. The cells are split
+ * into chunks of 64 so each chunk is paired with a single occupancy word. Placing a token copies only the chunk index
+ * and the chunk touched, the other chunks are shared with the previous instance.
+ */
+final class BoardCells {
+
+    private static final int CHUNK_SHIFT = 6;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private final int size;
+    private final int occupied;
+    private final long[] occupancy;
+    private final ImmutableList<TokenPlacement>[][] chunks;
+
+    static BoardCells empty(int size) {
+        int chunkCount = (size + CHUNK_MASK) >>> CHUNK_SHIFT;
+        return new BoardCells(size, 0, new long[chunkCount], newChunks(chunkCount));
+    }
+
+    private BoardCells(int size, int occupied, long[] occupancy, ImmutableList<TokenPlacement>[][] chunks) {
+        this.size = size;
+        this.occupied = occupied;
+        this.occupancy = occupancy;
+        this.chunks = chunks;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int getOccupied() {
+        return occupied;
+    }
+
+    boolean isOccupied(int index) {
+        return (occupancy[index >>> CHUNK_SHIFT] & (1L << index)) != 0;
+    }
+
+    ImmutableList<TokenPlacement> get(int index) {
+        ImmutableList<TokenPlacement>[] chunk = chunks[index >>> CHUNK_SHIFT];
+        if (chunk == null) {
+            return null;
+        }
+        return chunk[index & CHUNK_MASK];
+    }
+
+    BoardCells place(int index, TokenPlacement placement) {
+        int chunkIndex = index >>> CHUNK_SHIFT;
+
+        ImmutableList<TokenPlacement>[] chunk = chunks[chunkIndex];
+        ImmutableList<TokenPlacement>[] newChunk = chunk == null ? newChunk() : Arrays.copyOf(chunk, CHUNK_SIZE);
+        newChunk[index & CHUNK_MASK] = append(newChunk[index & CHUNK_MASK], placement);
+
+        ImmutableList<TokenPlacement>[][] newChunks = Arrays.copyOf(chunks, chunks.length);
+        newChunks[chunkIndex] = newChunk;
+
+        long[] newOccupancy = Arrays.copyOf(occupancy, occupancy.length);
+        newOccupancy[chunkIndex] |= 1L << index;
+
+        return new BoardCells(size, isOccupied(index) ? occupied : occupied + 1, newOccupancy, newChunks);
+    }
+
+    /**
+     * Places all the given placements at once, copying the touched chunks only once.
+     *
+     * @param indices flat indices of the placements
+     * @param placements the placements, in the same order as indices
+     * @return new cells containing all the placements
+     */
+    BoardCells placeAll(int[] indices, TokenPlacement[] placements) {
+        if (indices.length == 0) {
+            return this;
+        }
+        long[] newOccupancy = Arrays.copyOf(occupancy, occupancy.length);
+        ImmutableList<TokenPlacement>[][] newChunks = Arrays.copyOf(chunks, chunks.length);
+        boolean[] copied = new boolean[chunks.length];
+        int newOccupied = occupied;
+
+        for (int i = 0; i < indices.length; i++) {
+            int index = indices[i];
+            int chunkIndex = index >>> CHUNK_SHIFT;
+            if (!copied[chunkIndex]) {
+                ImmutableList<TokenPlacement>[] chunk = newChunks[chunkIndex];
+                newChunks[chunkIndex] = chunk == null ? newChunk() : Arrays.copyOf(chunk, CHUNK_SIZE);
+                copied[chunkIndex] = true;
+            }
+            newChunks[chunkIndex][index & CHUNK_MASK] = append(newChunks[chunkIndex][index & CHUNK_MASK], placements[i]);
+            if ((newOccupancy[chunkIndex] & (1L << index)) == 0) {
+                newOccupancy[chunkIndex] |= 1L << index;
+                newOccupied++;
+            }
+        }
+
+        return new BoardCells(size, newOccupied, newOccupancy, newChunks);
+    }
+
+    boolean isCompletelyFilled() {
+        return occupied == size;
+    }
+
+    /**
+     * Selects the free cell by its order using the population count of the occupancy words, so only one word per
+     * 64 cells is visited.
+     *
+     * @param nth the order of the free cell, starting from zero
+     * @return flat index of the n-th free cell
+     */
+    int nthFree(int nth) {
+        int remaining = nth;
+        for (int chunkIndex = 0; chunkIndex < occupancy.length; chunkIndex++) {
+            long free = ~occupancy[chunkIndex] & wordMask(chunkIndex);
+            int count = Long.bitCount(free);
+            if (remaining < count) {
+                for (int i = 0; i < remaining; i++) {
+                    free &= free - 1;
+                }
+                return (chunkIndex << CHUNK_SHIFT) + Long.numberOfTrailingZeros(free);
+            }
+            remaining -= count;
+        }
+        throw new IndexOutOfBoundsException("Index: " + nth + ", Free: " + (size - occupied));
+    }
+
+    /**
+     * Iterates the occupied cells in the index order.
+     *
+     * @param consumer consumer of the placements in the cell and the flat index of the cell
+     */
+    void forEachOccupied(ObjIntConsumer<ImmutableList<TokenPlacement>> consumer) {
+        for (int chunkIndex = 0; chunkIndex < occupancy.length; chunkIndex++) {
+            long word = occupancy[chunkIndex];
+            while (word != 0) {
+                int offset = Long.numberOfTrailingZeros(word);
+                consumer.accept(chunks[chunkIndex][offset], (chunkIndex << CHUNK_SHIFT) + offset);
+                word &= word - 1;
+            }
+        }
+    }
+
+    private long wordMask(int chunkIndex) {
+        int remaining = size - (chunkIndex << CHUNK_SHIFT);
+        if (remaining >= CHUNK_SIZE) {
+            return -1L;
+        }
+        return (1L << remaining) - 1;
+    }
+
+    private static ImmutableList<TokenPlacement> append(ImmutableList<TokenPlacement> existing, TokenPlacement placement) {
+        if (existing == null) {
+            return ImmutableList.of(placement);
+        }
+        return ImmutableList.<TokenPlacement>builder().addAll(existing).add(placement).build();
+    }
+
+    private static ImmutableList<TokenPlacement>[][] newChunks(int chunkCount) {
+        return uncheckedArray(new ImmutableList<?>[chunkCount][]);
+    }
+
+    private static ImmutableList<TokenPlacement>[] newChunk() {
+        return uncheckedArray(new ImmutableList<?>[CHUNK_SIZE]);
+    }
+
+    /**
+     * Generic arrays cannot be created directly, the wildcard arrays are only ever filled with token placements.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> T uncheckedArray(Object[] array) {
+        return (T) array;
+    }
+
+    //CHECKSTYLE:OFF
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        BoardCells that = (BoardCells) o;
+        if (size != that.size || occupied != that.occupied || !Arrays.equals(occupancy, that.occupancy)) return false;
+        for (int i = 0; i < chunks.length; i++) {
+            if (chunks[i] != that.chunks[i] && !Arrays.equals(chunks[i], that.chunks[i])) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int[] hash = {size};
+        forEachOccupied((placements, index) -> hash[0] = 31 * hash[0] + index * 17 + placements.hashCode());
+        return hash[0];
+    }
+    //CHECKSTYLE:ON
+}
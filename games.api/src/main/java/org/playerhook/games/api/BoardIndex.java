@@ -0,0 +1,35 @@
+package org.playerhook.games.api;
+
+/**
+ * Derived view of the board which can be kept up to date incrementally as the tokens are placed.
+ *
+ * Rules can use indices to keep state such as the lengths of the lines without rescanning the whole board on every
+ * move. See {@link Board#getIndex(BoardIndex)}. The implementation is used as a key so it should be a singleton
+ * or implement equals and hash code.
+ *
+ * @param <T> the type of the index
+ */
+public interface BoardIndex<T> {
+
+    /**
+     * Builds the index from scratch.
+     *
+     * @param board the board to be indexed
+     * @return the index for given board
+     */
+    T build(Board board);
+
+    /**
+     * Updates the index after the token was placed.
+     *
+     * The previous index may still be used for the original board so it must not be changed in the way which would
+     * be observable.
+     *
+     * @param index the index for the original board
+     * @param board the original board, before the placement
+     * @param placement the new placement
+     * @return the index for the board with the placement
+     */
+    T update(T index, Board board, TokenPlacement placement);
+
+}
@@ -4,46 +4,134 @@ import com.google.common.base.Objects;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import org.playerhook.games.util.MapSerializable;
 
-import java.util.ArrayList;
+import java.util.AbstractList;
 import java.util.List;
 import java.util.Map;
+import java.util.RandomAccess;
+import java.util.function.ObjIntConsumer;
 import java.util.stream.Collectors;
 
+/**
+ * Tokens available to the player.
+ *
+ * The playable tokens are stored as runs of the same tokens together with the counts per symbol, so decks such as
+ * {@link #ofSame(Token, int)} take constant space and {@link #remove(Token)}, {@link #contains(Token)} and
+ * {@link #getPlayableCount()} do not depend on the number of tokens. The original order of the tokens is preserved.
+ */
 public final class Deck implements MapSerializable {
 
-    private final ImmutableList<Token> tokens;
+    private final ImmutableList<Run> runs;
+    private final ImmutableMap<String, Integer> counts;
+    private final int playableCount;
     private final ImmutableList<Token> secretTokens;
 
     public static Deck of(Iterable<Token> tokens) {
-        return new Deck(ImmutableList.copyOf(tokens), ImmutableList.of());
+        return new Deck(toRuns(tokens), ImmutableList.of());
     }
 
     public static Deck of(Iterable<Token> tokens, Iterable<Token> secretTokens) {
-        return new Deck(ImmutableList.copyOf(tokens), ImmutableList.copyOf(secretTokens));
+        return new Deck(toRuns(tokens), ImmutableList.copyOf(secretTokens));
     }
 
     public static Deck of(Token... tokens) {
-        return new Deck(ImmutableList.copyOf(tokens), ImmutableList.of());
+        return new Deck(toRuns(ImmutableList.copyOf(tokens)), ImmutableList.of());
     }
 
     public static Deck ofSame(Token token, int total) {
-        ImmutableList.Builder<Token> tokens = ImmutableList.builder();
-        for (int i = 0; i < total; i++) {
-            tokens.add(token);
+        if (total <= 0) {
+            return new Deck(ImmutableList.of(), ImmutableList.of());
         }
-        return new Deck(tokens.build(), ImmutableList.of());
+        return new Deck(ImmutableList.of(new Run(token, total)), ImmutableList.of());
     }
 
-    private Deck(ImmutableList<Token> tokens, ImmutableList<Token> secretTokens) {
-        Preconditions.checkArgument((tokens.size() + secretTokens.size()) >= 0, "Total tokens available must be positive number");
-        this.tokens = tokens;
+    private Deck(ImmutableList<Run> runs, ImmutableList<Token> secretTokens) {
+        Map<String, Integer> symbolCounts = Maps.newLinkedHashMap();
+        int total = 0;
+        for (Run run : runs) {
+            symbolCounts.merge(run.token.getSymbol(), run.count, Integer::sum);
+            total += run.count;
+        }
+        Preconditions.checkArgument((total + secretTokens.size()) >= 0, "Total tokens available must be positive number");
+        this.runs = runs;
+        this.counts = ImmutableMap.copyOf(symbolCounts);
+        this.playableCount = total;
         this.secretTokens = secretTokens;
     }
 
-    public ImmutableList<Token> getPlayableTokens() {
-        return tokens;
+    private Deck(ImmutableList<Run> runs, ImmutableMap<String, Integer> counts, int playableCount, ImmutableList<Token> secretTokens) {
+        this.runs = runs;
+        this.counts = counts;
+        this.playableCount = playableCount;
+        this.secretTokens = secretTokens;
+    }
+
+    /**
+     * @return read only view of the playable tokens in the original order
+     */
+    public List<Token> getPlayableTokens() {
+        return new PlayableTokens();
+    }
+
+    /**
+     * @return number of the playable tokens left
+     */
+    public int getPlayableCount() {
+        return playableCount;
+    }
+
+    /**
+     * @param token the token to be checked
+     * @return <code>true</code> if there is playable token with the same symbol
+     */
+    public boolean contains(Token token) {
+        return counts.containsKey(token.getSymbol());
+    }
+
+    /**
+     * @param token the token to be counted
+     * @return number of the playable tokens with the same symbol
+     */
+    public int count(Token token) {
+        return counts.getOrDefault(token.getSymbol(), 0);
+    }
+
+    /**
+     * Iterates the runs of the same playable tokens in the original order.
+     *
+     * @param consumer consumer of the token and the number of its consecutive occurrences
+     */
+    void forEachRun(ObjIntConsumer<Token> consumer) {
+        for (Run run : runs) {
+            consumer.accept(run.token, run.count);
+        }
+    }
+
+    /**
+     * Creates the deck from the runs of the same tokens.
+     *
+     * @param tokens the tokens of the runs
+     * @param counts the number of the tokens in each run
+     * @param secretTokens the secret tokens
+     * @return new deck
+     */
+    static Deck ofRuns(List<Token> tokens, int[] counts, Iterable<Token> secretTokens) {
+        Preconditions.checkArgument(tokens.size() == counts.length, "Each run must have its count");
+        List<Run> runs = Lists.newArrayListWithCapacity(tokens.size());
+        for (int i = 0; i < tokens.size(); i++) {
+            Run run = new Run(tokens.get(i), counts[i]);
+            int last = runs.size() - 1;
+            if (last >= 0 && runs.get(last).token.equals(run.token)) {
+                // adjacent runs of the same token are merged the same way as toRuns does
+                runs.set(last, new Run(run.token, runs.get(last).count + run.count));
+            } else {
+                runs.add(run);
+            }
+        }
+        return new Deck(ImmutableList.copyOf(runs), ImmutableList.copyOf(secretTokens));
     }
 
     public ImmutableList<Token> getSecretTokens() {
@@ -52,6 +140,7 @@ public final class Deck implements MapSerializable {
 
     @Override
     public Map<String, Object> toMap(PrivacyLevel level) {
+        List<Token> tokens = getPlayableTokens();
         if (PrivacyLevel.PUBLIC.equals(level)) {
             return ImmutableMap.of(
                     "tokens", tokens.stream().map(Token::getSymbol).collect(Collectors.toList()),
@@ -75,21 +164,117 @@ public final class Deck implements MapSerializable {
 
 
         return new Deck(
-            MapSerializable.loadList(map.getOrDefault("tokens", ImmutableList.of()), o -> Token.stub(o.toString())),
+            toRuns(MapSerializable.loadList(map.getOrDefault("tokens", ImmutableList.of()), o -> Token.stub(o.toString()))),
             MapSerializable.loadList(map.getOrDefault("secretTokens", ImmutableList.of()), o -> Token.stub(o.toString()))
         );
     }
 
     public Deck remove(Token token) {
-        int index = tokens.indexOf(token);
+        int index = -1;
+        for (int i = 0; i < runs.size(); i++) {
+            if (Token.equals(runs.get(i).token, token)) {
+                index = i;
+                break;
+            }
+        }
 
         if (index == -1) {
             return this;
         }
 
-        List<Token> copy = new ArrayList<Token>(tokens);
-        copy.remove(index);
-        return of(copy, secretTokens);
+        List<Run> copy = Lists.newArrayList(runs);
+        Run run = copy.get(index);
+        if (run.count > 1) {
+            copy.set(index, new Run(run.token, run.count - 1));
+        } else {
+            copy.remove(index);
+            if (index > 0 && index < copy.size() && copy.get(index - 1).token.equals(copy.get(index).token)) {
+                copy.set(index - 1, new Run(copy.get(index).token, copy.get(index - 1).count + copy.get(index).count));
+                copy.remove(index);
+            }
+        }
+
+        String symbol = run.token.getSymbol();
+        Map<String, Integer> newCounts = Maps.newLinkedHashMap(counts);
+        if (newCounts.get(symbol) > 1) {
+            newCounts.put(symbol, newCounts.get(symbol) - 1);
+        } else {
+            newCounts.remove(symbol);
+        }
+
+        return new Deck(ImmutableList.copyOf(copy), ImmutableMap.copyOf(newCounts), playableCount - 1, secretTokens);
+    }
+
+    private static ImmutableList<Run> toRuns(Iterable<Token> tokens) {
+        ImmutableList.Builder<Run> builder = ImmutableList.builder();
+        Token current = null;
+        int count = 0;
+        for (Token token : tokens) {
+            if (current != null && current.equals(token)) {
+                count++;
+            } else {
+                if (current != null) {
+                    builder.add(new Run(current, count));
+                }
+                current = token;
+                count = 1;
+            }
+        }
+        if (current != null) {
+            builder.add(new Run(current, count));
+        }
+        return builder.build();
+    }
+
+    /**
+     * Sequence of the same tokens.
+     */
+    private static final class Run {
+        private final Token token;
+        private final int count;
+
+        Run(Token token, int count) {
+            Preconditions.checkArgument(count > 0, "Run must contain at least one token: %s", count);
+            this.token = Preconditions.checkNotNull(token, "Token cannot be null");
+            this.count = count;
+        }
+
+        //CHECKSTYLE:OFF
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Run run = (Run) o;
+            return count == run.count && Objects.equal(token, run.token);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(token, count);
+        }
+        //CHECKSTYLE:ON
+    }
+
+    private final class PlayableTokens extends AbstractList<Token> implements RandomAccess {
+        @Override
+        public Token get(int index) {
+            if (index < 0 || index >= playableCount) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + playableCount);
+            }
+            int remaining = index;
+            for (Run run : runs) {
+                if (remaining < run.count) {
+                    return run.token;
+                }
+                remaining -= run.count;
+            }
+            throw new IllegalStateException("Deck runs do not match the count of the tokens");
+        }
+
+        @Override
+        public int size() {
+            return playableCount;
+        }
     }
 
     //CHECKSTYLE:OFF
@@ -98,13 +283,13 @@ public final class Deck implements MapSerializable {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Deck deck = (Deck) o;
-        return Objects.equal(tokens, deck.tokens) &&
+        return Objects.equal(runs, deck.runs) &&
                 Objects.equal(secretTokens, deck.secretTokens);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hashCode(tokens, secretTokens);
+        return Objects.hashCode(runs, secretTokens);
     }
     //CHECKSTYLE:ON
 }
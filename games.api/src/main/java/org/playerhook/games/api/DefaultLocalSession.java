@@ -1,26 +1,39 @@
 package org.playerhook.games.api;
 
 import com.google.common.base.Objects;
+import com.google.common.base.Preconditions;
 import com.google.common.collect.*;
-import com.google.common.io.BaseEncoding;
 import org.playerhook.games.util.MapSerializable;
 
-import javax.crypto.SecretKey;
-import javax.crypto.SecretKeyFactory;
-import javax.crypto.spec.PBEKeySpec;
 import java.net.URL;
 import java.time.Instant;
 import java.util.*;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
 
 final class DefaultLocalSession implements LocalSession {
 
+    static final SessionInstrumentation NOOP_INSTRUMENTATION = new SessionInstrumentation() { };
+
+    private static final AtomicReference<SessionInstrumentation> INSTRUMENTATION = new AtomicReference<>(NOOP_INSTRUMENTATION);
+
+    static SessionInstrumentation getInstrumentation() {
+        return INSTRUMENTATION.get();
+    }
+
+    static SessionInstrumentation setInstrumentation(SessionInstrumentation instrumentation) {
+        return INSTRUMENTATION.getAndSet(instrumentation);
+    }
+
     static DefaultLocalSession newSession(Game game, URL url) {
         return new DefaultLocalSession(game, url);
     }
 
     private final DefaultSession delegate;
     private final String key;
+    private final KeyDerivation keyDerivation;
 
     private DefaultLocalSession(Game game, URL url) {
         this.delegate = new DefaultSession(
@@ -31,13 +44,14 @@ final class DefaultLocalSession implements LocalSession {
                 ImmutableList.of(),
                 null,
                 url,
-                ImmutableList.of(),
+                PersistentList.empty(),
                 ImmutableMap.of(),
                 ImmutableMap.of(),
-                Instant.now()
+                SessionClock.now()
         );
 
         this.key = null;
+        this.keyDerivation = KeyDerivation.Default.PBKDF2_HMAC_SHA1;
     }
 
     /**
@@ -45,16 +59,18 @@ final class DefaultLocalSession implements LocalSession {
      */
     private DefaultLocalSession(
             long version,
+            SessionStamps stamps,
             Game game,
             Board board,
             URL url,
             ImmutableMap<Player, Deck> decks,
             ImmutableMap<Player, Integer> scores,
             ImmutableList<Player> players,
-            ImmutableList<Move> moves,
+            PersistentList<Move> moves,
             Status status,
             Player activePlayer,
             String key,
+            KeyDerivation keyDerivation,
             Instant lastUpdated
     ) {
         this.delegate = new DefaultSession(
@@ -68,25 +84,34 @@ final class DefaultLocalSession implements LocalSession {
                 moves,
                 decks,
                 scores,
-                lastUpdated
+                lastUpdated,
+                stamps
         );
         this.key = key;
+        this.keyDerivation = keyDerivation;
     }
 
     @Override
     public LocalSession signWith(String privateKey) {
+        return signWith(privateKey, KeyDerivation.Default.PBKDF2_HMAC_SHA1);
+    }
+
+    @Override
+    public LocalSession signWith(String privateKey, KeyDerivation derivation) {
         return new DefaultLocalSession(
                 delegate.getRound() + 1,
+                delegate.getSessionStamps().next(),
                 delegate.getGame(),
                 delegate.getBoard(),
                 delegate.getURL().orElse(null),
                 delegate.getDecks(),
                 delegate.getScores(),
                 delegate.getPlayers(),
-                delegate.getMoves(),
+                delegate.getMoveHistory(),
                 delegate.getStatus(),
                 delegate.getPlayerOnTurn().orElse(null),
                 privateKey,
+                Preconditions.checkNotNull(derivation, "Key derivation cannot be null"),
                 delegate.getLastUpdated()
         );
 
@@ -116,10 +141,20 @@ final class DefaultLocalSession implements LocalSession {
         return delegate.getMoves();
     }
 
+    @Override
+    public Optional<Move> getLastMove() {
+        return delegate.getLastMove();
+    }
+
     public Status getStatus() {
         return delegate.getStatus();
     }
 
+    @Override
+    public Optional<SessionStamps> getStamps() {
+        return delegate.getStamps();
+    }
+
     @Override
     public LocalSession join(Player newPlayer) {
         if (!delegate.getStatus().equals(Status.WAITING)) {
@@ -131,17 +166,19 @@ final class DefaultLocalSession implements LocalSession {
         if (hasEmptySeat()) {
             return new DefaultLocalSession(
                     delegate.getRound() + 1,
+                    delegate.getSessionStamps().next(SessionStamps.Component.PLAYERS),
                     getGame(),
                     getBoard(),
                     getURL().orElse(null),
                     delegate.getDecks(),
                     delegate.getScores(),
                     ImmutableList.<Player>builder().addAll(getPlayers()).add(newPlayer).build(),
-                    delegate.getMoves(),
+                    delegate.getMoveHistory(),
                     getStatus(),
                     delegate.getPlayerOnTurn().orElse(null),
                     key,
-                    Instant.now()
+                    keyDerivation,
+                    SessionClock.now()
             );
         }
         throw new IllegalStateException("No more seats!");
@@ -155,17 +192,19 @@ final class DefaultLocalSession implements LocalSession {
         if (canStart()) {
             return new DefaultLocalSession(
                     delegate.getRound() + 1,
+                    delegate.getSessionStamps().next(SessionStamps.Component.STATUS),
                     getGame(),
                     getBoard(),
                     getURL().orElse(null),
                     prepareDeck(),
                     delegate.getScores(),
                     getPlayers(),
-                    getMoves(),
+                    delegate.getMoveHistory(),
                     Status.IN_PROGRESS,
                     Iterables.getFirst(getPlayers(), null),
                     key,
-                    Instant.now()
+                    keyDerivation,
+                    SessionClock.now()
             );
         }
         throw new IllegalStateException("Not enough players!");
@@ -178,17 +217,19 @@ final class DefaultLocalSession implements LocalSession {
         }
         return new DefaultLocalSession(
                 delegate.getRound(),
+                delegate.getSessionStamps().next(SessionStamps.Component.STATUS),
                 getGame(),
                 getBoard(),
                 getURL().orElse(null),
                 delegate.getDecks(),
                 delegate.getScores(),
                 getPlayers(),
-                getMoves(),
+                delegate.getMoveHistory(),
                 Status.SUSPENDED,
                 delegate.getPlayerOnTurn().orElse(null),
                 key,
-                Instant.now()
+                keyDerivation,
+                SessionClock.now()
         );
     }
 
@@ -199,17 +240,19 @@ final class DefaultLocalSession implements LocalSession {
         }
         return new DefaultLocalSession(
                 delegate.getRound(),
+                delegate.getSessionStamps().next(SessionStamps.Component.STATUS),
                 getGame(),
                 getBoard(),
                 getURL().orElse(null),
                 delegate.getDecks(),
                 delegate.getScores(),
                 getPlayers(),
-                getMoves(),
+                delegate.getMoveHistory(),
                 Status.IN_PROGRESS,
                 delegate.getPlayerOnTurn().orElse(null),
                 key,
-                Instant.now()
+                keyDerivation,
+                SessionClock.now()
         );
     }
 
@@ -240,47 +283,39 @@ final class DefaultLocalSession implements LocalSession {
 
     @Override
     public LocalSession play(TokenPlacement placement) {
-        Rules.EvaluationResult genericChecks = doGenericChecks(placement);
+        SessionInstrumentation instrumentation = INSTRUMENTATION.get();
+        long started = instrumentation.start(SessionInstrumentation.Phase.PLAY);
+        try {
+            return play(placement, instrumentation);
+        } finally {
+            instrumentation.stop(SessionInstrumentation.Phase.PLAY, started);
+        }
+    }
+
+    private LocalSession play(TokenPlacement placement, SessionInstrumentation instrumentation) {
+        long started = instrumentation.start(SessionInstrumentation.Phase.GENERIC_CHECKS);
+        Rules.EvaluationResult genericChecks = doGenericChecks(placement, instrumentation);
+        instrumentation.stop(SessionInstrumentation.Phase.GENERIC_CHECKS, started);
 
         if (genericChecks.getMove().getRuleViolation().isPresent()) {
-            return new DefaultLocalSession(
-                    delegate.getRound(),
-                    getGame(),
-                    getBoard(),
-                    getURL().orElse(null),
-                    delegate.getDecks(),
-                    delegate.getScores(),
-                    getPlayers(),
-                    ImmutableList.<Move>builder().addAll(getMoves()).add(genericChecks.getMove()).build(),
-                    getStatus(),
-                    getPlayerOnTurn().orElse(null),
-                    key,
-                    Instant.now()
-            );
+            return reject(genericChecks.getMove(), instrumentation);
         }
 
+        started = instrumentation.start(SessionInstrumentation.Phase.RULES_EVALUATION);
         Rules.EvaluationResult result = getGame().getRules().evaluate(this, placement);
+        instrumentation.stop(SessionInstrumentation.Phase.RULES_EVALUATION, started);
 
         Move move = result.getMove();
 
         if (move.getRuleViolation().isPresent()) {
-            return new DefaultLocalSession(
-                    delegate.getRound(),
-                    getGame(),
-                    getBoard(),
-                    getURL().orElse(null),
-                    delegate.getDecks(),
-                    delegate.getScores(),
-                    getPlayers(),
-                    ImmutableList.<Move>builder().addAll(getMoves()).add(result.getMove()).build(),
-                    getStatus(),
-                    getPlayerOnTurn().orElse(null),
-                    key,
-                    Instant.now()
-            );
+            return reject(move, instrumentation);
         }
 
+        started = instrumentation.start(SessionInstrumentation.Phase.BOARD_PLACEMENT);
         Board board = getBoard().place(placement);
+        instrumentation.stop(SessionInstrumentation.Phase.BOARD_PLACEMENT, started);
+
+        started = instrumentation.start(SessionInstrumentation.Phase.RECONSTRUCTION);
 
         Map<Player, Integer> scores = Maps.newHashMap(delegate.getScores());
 
@@ -295,28 +330,63 @@ final class DefaultLocalSession implements LocalSession {
             activePlayer = result.getNextPlayer();
         }
 
+        Status status = result.getNextStatus().orElse(getStatus());
+
         Map<Player, Deck> decks = Maps.newHashMap(delegate.getDecks());
         if (!placement.getSource().isPresent()) {
             decks.put(placement.getPlayer(), decks.get(placement.getPlayer()).remove(placement.getToken()));
         }
 
-        return new DefaultLocalSession(
+        SessionStamps stamps = status.equals(getStatus())
+                ? delegate.getSessionStamps().next(SessionStamps.Component.BOARD, SessionStamps.Component.MOVES)
+                : delegate.getSessionStamps().next(SessionStamps.Component.BOARD, SessionStamps.Component.MOVES, SessionStamps.Component.STATUS);
+
+        LocalSession played = new DefaultLocalSession(
                 delegate.getRound() + 1,
+                stamps,
                 getGame(),
                 board,
                 getURL().orElse(null),
                 ImmutableMap.copyOf(decks),
                 ImmutableMap.copyOf(scores),
                 getPlayers(),
-                ImmutableList.<Move>builder().addAll(getMoves()).add(result.getMove()).build(),
-                result.getNextStatus().orElse(getStatus()),
+                delegate.getMoveHistory().append(result.getMove()),
+                status,
                 activePlayer,
                 key,
-                Instant.now()
+                keyDerivation,
+                SessionClock.now()
         );
+
+        instrumentation.stop(SessionInstrumentation.Phase.RECONSTRUCTION, started);
+        return played;
     }
 
-    private Rules.EvaluationResult doGenericChecks(TokenPlacement placement) {
+    private LocalSession reject(Move move, SessionInstrumentation instrumentation) {
+        instrumentation.ruleViolated(this, move.getTokenPlacement(), move.getRuleViolation().get());
+
+        long started = instrumentation.start(SessionInstrumentation.Phase.RECONSTRUCTION);
+        LocalSession rejected = new DefaultLocalSession(
+                delegate.getRound(),
+                delegate.getSessionStamps().next(SessionStamps.Component.MOVES),
+                getGame(),
+                getBoard(),
+                getURL().orElse(null),
+                delegate.getDecks(),
+                delegate.getScores(),
+                getPlayers(),
+                delegate.getMoveHistory().append(move),
+                getStatus(),
+                getPlayerOnTurn().orElse(null),
+                key,
+                keyDerivation,
+                SessionClock.now()
+        );
+        instrumentation.stop(SessionInstrumentation.Phase.RECONSTRUCTION, started);
+        return rejected;
+    }
+
+    private Rules.EvaluationResult doGenericChecks(TokenPlacement placement, SessionInstrumentation instrumentation) {
         if (getStatus().equals(Status.FINISHED)) {
             return Rules.EvaluationResult.builder(placement).ruleViolation(RuleViolation.Default.GAME_OVER).build();
         }
@@ -329,7 +399,10 @@ final class DefaultLocalSession implements LocalSession {
             if (!placement.getKey().isPresent()) {
                 return Rules.EvaluationResult.builder(placement).ruleViolation(RuleViolation.Default.KEY_MISSING).build();
             }
-            if (!placement.getKey().get().equals(generateUserKey(placement.getPlayer().getUsername(), key + ":" + delegate.getRound()))) {
+            long started = instrumentation.start(SessionInstrumentation.Phase.KEY_VERIFICATION);
+            boolean matches = PlayerKeys.matches(getKey(placement.getPlayer()).get(), placement.getKey().get());
+            instrumentation.stop(SessionInstrumentation.Phase.KEY_VERIFICATION, started);
+            if (!matches) {
                 return Rules.EvaluationResult.builder(placement).ruleViolation(RuleViolation.Default.KEY_MISMATCH).build();
             }
         }
@@ -338,7 +411,7 @@ final class DefaultLocalSession implements LocalSession {
         if (playerOnTurn.isPresent() && !playerOnTurn.get().equals(placement.getPlayer())) {
             return Rules.EvaluationResult.builder(placement).ruleViolation(RuleViolation.Default.NOT_YOUR_TURN).build();
         }
-        if (!Token.contains(getDeck(placement.getPlayer()).getPlayableTokens(), placement.getToken())) {
+        if (!getDeck(placement.getPlayer()).contains(placement.getToken())) {
             return Rules.EvaluationResult.builder(placement).ruleViolation(RuleViolation.Default.ILLEGAL_TOKEN).build();
         }
         if (getBoard().getTokenPlacement(placement.getDestination()).isPresent()) {
@@ -370,28 +443,58 @@ final class DefaultLocalSession implements LocalSession {
         DefaultSession defaultSession = DefaultSession.load(session);
 
         String key = MapSerializable.loadString(payload, "key");
+        KeyDerivation keyDerivation = KeyDerivation.load(MapSerializable.loadString(payload, "keyDerivation"));
 
+        return restore(defaultSession, key, keyDerivation);
+    }
+
+    /**
+     * Restores the local session from the deserialized session and its signing information.
+     *
+     * @param defaultSession the deserialized session
+     * @param key the private key of the session or <code>null</code> if the session is not signed
+     * @param keyDerivation the key derivation of the session
+     * @return the local session
+     */
+    static DefaultLocalSession restore(DefaultSession defaultSession, String key, KeyDerivation keyDerivation) {
         return new DefaultLocalSession(
                 defaultSession.getRound(),
+                defaultSession.getSessionStamps(),
                 defaultSession.getGame(),
                 defaultSession.getBoard(),
                 defaultSession.getURL().orElse(null),
                 defaultSession.getDecks(),
                 defaultSession.getScores(),
                 defaultSession.getPlayers(),
-                defaultSession.getMoves(),
+                defaultSession.getMoveHistory(),
                 defaultSession.getStatus(),
                 defaultSession.getPlayerOnTurn().orElse(null),
                 key,
+                keyDerivation,
                 defaultSession.getLastUpdated()
         );
     }
 
+    DefaultSession getDelegate() {
+        return delegate;
+    }
+
+    String getPrivateKey() {
+        return key;
+    }
+
+    KeyDerivation getKeyDerivation() {
+        return keyDerivation;
+    }
+
     @Override public Map<String, Object> toMap(PrivacyLevel level) {
         ImmutableMap.Builder<String, Object> builder = ImmutableMap.builder();
 
         if (key != null && PrivacyLevel.INTERNAL.equals(level)) {
             builder.put("key", key);
+            if (!KeyDerivation.Default.PBKDF2_HMAC_SHA1.equals(keyDerivation)) {
+                builder.put("keyDerivation", keyDerivation.getCode());
+            }
         }
 
         builder.putAll(delegate.toMap(level));
@@ -399,29 +502,25 @@ final class DefaultLocalSession implements LocalSession {
         return builder.build();
     }
 
-    private static final int ITERATIONS = 20*1000;
-    private static final int DESIRED_KEY_LEN = 64;
-
     @Override
     public Optional<String> getKey(Player player) {
         if (key == null) {
             return Optional.empty();
         }
-        return Optional.of(generateUserKey(player.getUsername(), key + ":" + delegate.getRound()));
+        return Optional.of(PlayerKeys.get(keyDerivation, key, delegate.getRound(), player.getUsername()));
     }
 
-    private static String generateUserKey(String username, String privateKey) {
-        SecretKeyFactory f;
-        try {
-            f = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA1");
-            SecretKey key = f.generateSecret(new PBEKeySpec(username.toCharArray(), privateKey.getBytes(), ITERATIONS, DESIRED_KEY_LEN));
-            return BaseEncoding.base64().encode(key.getEncoded());
-        } catch (Exception e) {
-            throw new IllegalStateException("Problems generating player key", e);
+    @Override
+    public CompletableFuture<Void> precomputeNextRoundKeys(Executor executor) {
+        if (key == null) {
+            return CompletableFuture.completedFuture(null);
         }
+        long nextRound = delegate.getRound() + 1;
+        return CompletableFuture.allOf(getPlayers().stream()
+                .map(player -> CompletableFuture.runAsync(() -> PlayerKeys.get(keyDerivation, key, nextRound, player.getUsername()), executor))
+                .toArray(CompletableFuture[]::new));
     }
 
-
     @Override
     public TokenPlacement newPlacement(Token token, Player player, Position source, Position destination) {
         return TokenPlacement.create(token, player, source, destination, getKey(player).orElse(null));
@@ -434,12 +533,13 @@ final class DefaultLocalSession implements LocalSession {
         if (o == null || getClass() != o.getClass()) return false;
         DefaultLocalSession session = (DefaultLocalSession) o;
         return com.google.common.base.Objects.equal(delegate, session.delegate) &&
-                Objects.equal(key, session.key);
+                Objects.equal(key, session.key) &&
+                Objects.equal(keyDerivation, session.keyDerivation);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hashCode(delegate, key);
+        return Objects.hashCode(delegate, key, keyDerivation);
     }
     //CHECKSTYLE:ON
 
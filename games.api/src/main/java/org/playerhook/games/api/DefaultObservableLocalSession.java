@@ -9,6 +9,9 @@ import java.net.URL;
 import java.time.Instant;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
 
 final class DefaultObservableLocalSession implements ObservableLocalSession {
 
@@ -54,11 +57,21 @@ final class DefaultObservableLocalSession implements ObservableLocalSession {
         return delegate.getMoves();
     }
 
+    @Override
+    public Optional<Move> getLastMove() {
+        return delegate.getLastMove();
+    }
+
     @Override
     public Status getStatus() {
         return delegate.getStatus();
     }
 
+    @Override
+    public Optional<SessionStamps> getStamps() {
+        return delegate.getStamps();
+    }
+
     @Override
     public Optional<URL> getURL() {
         return delegate.getURL();
@@ -79,6 +92,16 @@ final class DefaultObservableLocalSession implements ObservableLocalSession {
         return safeWithUpdate(() -> delegate.signWith(privateKey));
     }
 
+    @Override
+    public ObservableLocalSession signWith(String privateKey, KeyDerivation derivation) {
+        return safeWithUpdate(() -> delegate.signWith(privateKey, derivation));
+    }
+
+    @Override
+    public CompletableFuture<Void> precomputeNextRoundKeys(Executor executor) {
+        return delegate.precomputeNextRoundKeys(executor);
+    }
+
     @Override
     public Deck getDeck(Player player) {
         return delegate.getDeck(player);
@@ -133,6 +156,46 @@ final class DefaultObservableLocalSession implements ObservableLocalSession {
         return delegate.canStart();
     }
 
+    LocalSession getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * Replaces this session held by the reference with the next state and publishes the update once it is committed.
+     *
+     * All the states of the session share the same lock, so the updates of the concurrent commits are published in
+     * the order of the commits and no update is published after the completion caused by the later one.
+     *
+     * @param reference the reference holding this session
+     * @param updated the next state of the wrapped session
+     * @return the observable session wrapping the next state or <code>null</code> if the reference no longer holds
+     *          this session
+     */
+    DefaultObservableLocalSession commit(AtomicReference<LocalSession> reference, LocalSession updated) {
+        DefaultObservableLocalSession next = new DefaultObservableLocalSession(updated, subject);
+        synchronized (subject) {
+            if (!reference.compareAndSet(this, next)) {
+                return null;
+            }
+            sendUpdate(delegate, updated);
+        }
+        return next;
+    }
+
+    /**
+     * Publishes the failure of the transition if the reference still holds this session.
+     *
+     * @param reference the reference holding this session
+     * @param e the failure of the transition
+     */
+    void fail(AtomicReference<LocalSession> reference, RuntimeException e) {
+        synchronized (subject) {
+            if (reference.get() == this) {
+                subject.onError(e);
+            }
+        }
+    }
+
     @Override
     public Map<String, Object> toMap(PrivacyLevel level) {
         return delegate.toMap(level);
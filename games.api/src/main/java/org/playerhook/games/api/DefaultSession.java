@@ -22,14 +22,31 @@ final class DefaultSession implements Session {
     private final ImmutableList<Player> players;
     private final Player activePlayer;
     private final URL url;
-    private final ImmutableList<Move> moves;
+    private final PersistentList<Move> moves;
     private final ImmutableMap<Player, Deck> decks;
     private final ImmutableMap<Player, Integer> scores;
     private final Instant lastUpdated;
+    private final SessionStamps stamps;
+
+    /**
+     * Immutable copy of the moves created on demand, <code>null</code> if not requested yet.
+     */
+    private volatile ImmutableList<Move> movesCopy;
+
+    /**
+     * Memoized hash code, zero if not computed yet.
+     */
+    private int hash;
 
     DefaultSession(long round, Board board, Game game, Status status, ImmutableList<Player> players,
-                   Player activePlayer, URL url, ImmutableList<Move> moves, ImmutableMap<Player, Deck> decks,
+                   Player activePlayer, URL url, PersistentList<Move> moves, ImmutableMap<Player, Deck> decks,
                    ImmutableMap<Player, Integer> scores, Instant lastUpdated) {
+        this(round, board, game, status, players, activePlayer, url, moves, decks, scores, lastUpdated, SessionStamps.create());
+    }
+
+    DefaultSession(long round, Board board, Game game, Status status, ImmutableList<Player> players,
+                   Player activePlayer, URL url, PersistentList<Move> moves, ImmutableMap<Player, Deck> decks,
+                   ImmutableMap<Player, Integer> scores, Instant lastUpdated, SessionStamps stamps) {
         this.round = round;
         this.board = board;
         this.game = game;
@@ -41,6 +58,7 @@ final class DefaultSession implements Session {
         this.decks = decks;
         this.scores = scores;
         this.lastUpdated = lastUpdated;
+        this.stamps = stamps;
     }
 
     static DefaultSession load(Object session) {
@@ -59,7 +77,7 @@ final class DefaultSession implements Session {
                 players,
                 Player.load(payload.getOrDefault("playerOnTurn", null)),
                 loadURL(payload, "url"),
-                loadList(payload.getOrDefault("playedMoves", Collections.emptyList()), Move::load),
+                PersistentList.copyOf(loadList(payload.getOrDefault("playedMoves", Collections.emptyList()), Move::load)),
                 loadDecks(players, payload.getOrDefault("decks", Collections.emptyList())),
                 loadScores(players, payload.getOrDefault("scores", Collections.emptyList())),
                 loadInstant(payload, "lastUpdated")
@@ -154,6 +172,15 @@ final class DefaultSession implements Session {
         return round;
     }
 
+    @Override
+    public Optional<SessionStamps> getStamps() {
+        return Optional.of(stamps);
+    }
+
+    SessionStamps getSessionStamps() {
+        return stamps;
+    }
+
     @Override
     public Map<String, Object> toMap(PrivacyLevel level) {
         ImmutableMap.Builder<String, Object> builder = ImmutableMap.builder();
@@ -164,7 +191,7 @@ final class DefaultSession implements Session {
         builder.put("players", getPlayers().stream().map((player2) -> player2.toMap(level)).collect(Collectors.toList()));
         builder.put("scores", ImmutableMap.copyOf(getPlayers().stream().collect(Collectors.toMap(Player::getUsername, this::getScore))));
         builder.put("decks", ImmutableMap.copyOf(getPlayers().stream().collect(Collectors.toMap(Player::getUsername, (player1) -> getDeck(player1).toMap(level)))));
-        builder.put("playedMoves", getMoves().stream().map((move) -> move.toMap(level)).collect(Collectors.toList()));
+        builder.put("playedMoves", moves.stream().map((move) -> move.toMap(level)).collect(Collectors.toList()));
         builder.put("status", getStatus().name());
         builder.put("lastUpdated", lastUpdated.toEpochMilli());
 
@@ -174,7 +201,22 @@ final class DefaultSession implements Session {
         return builder.build();
     }
 
+    @Override
     public ImmutableList<Move> getMoves() {
+        ImmutableList<Move> copy = movesCopy;
+        if (copy == null) {
+            copy = ImmutableList.copyOf(moves);
+            movesCopy = copy;
+        }
+        return copy;
+    }
+
+    @Override
+    public Optional<Move> getLastMove() {
+        return moves.isEmpty() ? Optional.empty() : Optional.of(moves.get(moves.size() - 1));
+    }
+
+    PersistentList<Move> getMoveHistory() {
         return moves;
     }
 
@@ -193,6 +235,7 @@ final class DefaultSession implements Session {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         DefaultSession that = (DefaultSession) o;
+        if (stamps.getVersion() == that.stamps.getVersion()) return true;
         return round == that.round &&
                 com.google.common.base.Objects.equal(board, that.board) &&
                 Objects.equal(game, that.game) &&
@@ -208,7 +251,12 @@ final class DefaultSession implements Session {
 
     @Override
     public int hashCode() {
-        return Objects.hashCode(round, board, game, status, players, activePlayer, url, moves, decks, scores, lastUpdated);
+        int result = hash;
+        if (result == 0) {
+            result = Objects.hashCode(round, board, game, status, players, activePlayer, url, moves, decks, scores, lastUpdated);
+            hash = result;
+        }
+        return result;
     }
 
     //CHECKSTYLE:ON
@@ -0,0 +1,75 @@
+package org.playerhook.games.api;
+
+import com.google.common.collect.ImmutableMap;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Instrumentation aggregating the latencies of the phases into {@link LatencyHistogram}s and counting the rule
+ * violations by their codes.
+ *
+ * <pre>
+ * HistogramInstrumentation instrumentation = new HistogramInstrumentation();
+ * SessionInstrumentation.install(instrumentation);
+ * // play the sessions
+ * instrumentation.getHistogram(SessionInstrumentation.Phase.RULES_EVALUATION).getPercentile(99);
+ * </pre>
+ */
+public final class HistogramInstrumentation implements SessionInstrumentation {
+
+    private final Map<Phase, LatencyHistogram> histograms = new EnumMap<>(Phase.class);
+    private final Map<String, LongAdder> violations = new ConcurrentHashMap<>();
+
+    public HistogramInstrumentation() {
+        for (Phase phase : Phase.values()) {
+            histograms.put(phase, new LatencyHistogram());
+        }
+    }
+
+    @Override
+    public long start(Phase phase) {
+        return System.nanoTime();
+    }
+
+    @Override
+    public void stop(Phase phase, long started) {
+        histograms.get(phase).record(System.nanoTime() - started);
+    }
+
+    @Override
+    public void ruleViolated(Session session, TokenPlacement placement, RuleViolation violation) {
+        violations.computeIfAbsent(violation.getCode(), code -> new LongAdder()).increment();
+    }
+
+    /**
+     * @param phase the phase of the move
+     * @return the histogram of the latencies of the phase
+     */
+    public LatencyHistogram getHistogram(Phase phase) {
+        return histograms.get(phase);
+    }
+
+    /**
+     * @return the number of the rule violations by their codes
+     */
+    public Map<String, Long> getViolations() {
+        ImmutableMap.Builder<String, Long> builder = ImmutableMap.builder();
+        for (Map.Entry<String, LongAdder> violation : violations.entrySet()) {
+            builder.put(violation.getKey(), violation.getValue().sum());
+        }
+        return builder.build();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        for (Map.Entry<Phase, LatencyHistogram> histogram : histograms.entrySet()) {
+            builder.append(histogram.getKey()).append(": ").append(histogram.getValue()).append('\n');
+        }
+        builder.append("violations: ").append(getViolations());
+        return builder.toString();
+    }
+}
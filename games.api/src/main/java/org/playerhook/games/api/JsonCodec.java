@@ -0,0 +1,948 @@
+package org.playerhook.games.api;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.google.common.base.Supplier;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.playerhook.games.util.MapSerializable;
+import org.playerhook.games.util.MapSerializable.PrivacyLevel;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Streaming JSON reader and writer of the sessions and their parts.
+ *
+ * Produces and consumes the same JSON as the {@link MapSerializable#toMap(PrivacyLevel)} representation serialized
+ * by Jackson, but without building the intermediate maps and without parsing the numbers from strings.
+ *
+ * Requires <code>com.fasterxml.jackson.core:jackson-core</code> on the classpath.
+ */
+public final class JsonCodec {
+
+    private static final JsonFactory FACTORY = new JsonFactory();
+
+    private JsonCodec() { }
+
+    // convenience methods
+
+    public static String toJson(SessionUpdate update, PrivacyLevel level) {
+        return toJson(generator -> write(generator, update, level));
+    }
+
+    public static String toJson(SessionUpdate update, Session base, PrivacyLevel level) {
+        return toJson(generator -> write(generator, update, base, level));
+    }
+
+    public static String toJson(Session session, PrivacyLevel level) {
+        return toJson(generator -> write(generator, session, level));
+    }
+
+    public static String toJson(Board board, PrivacyLevel level) {
+        return toJson(generator -> write(generator, board, level));
+    }
+
+    public static String toJson(Move move, PrivacyLevel level) {
+        return toJson(generator -> write(generator, move, level));
+    }
+
+    public static String toJson(TokenPlacement placement, PrivacyLevel level) {
+        return toJson(generator -> write(generator, placement, level));
+    }
+
+    /**
+     * Reads the session update with lazily materialized session.
+     *
+     * Only the header fields of the session are read immediately, the game, the board, the moves and the decks are
+     * kept as JSON and read on the first access.
+     */
+    public static SessionUpdate readSessionUpdate(String json) {
+        return fromJson(json, parser -> readSessionUpdate(parser, json));
+    }
+
+    /**
+     * Reads either full or delta encoded update, the full sessions are materialized lazily.
+     *
+     * @see #readSessionUpdate(String)
+     * @see #readSessionUpdate(JsonParser, SessionReplica)
+     */
+    public static Optional<SessionUpdate> readSessionUpdate(String json, SessionReplica replica) {
+        return fromJson(json, parser -> readSessionUpdate(parser, replica, json));
+    }
+
+    public static Session readSession(String json) {
+        return fromJson(json, JsonCodec::readSession);
+    }
+
+    public static LocalSession readLocalSession(String json) {
+        return fromJson(json, JsonCodec::readLocalSession);
+    }
+
+    public static Board readBoard(String json) {
+        return fromJson(json, JsonCodec::readBoard);
+    }
+
+    public static Move readMove(String json) {
+        return fromJson(json, JsonCodec::readMove);
+    }
+
+    public static TokenPlacement readTokenPlacement(String json) {
+        return fromJson(json, JsonCodec::readTokenPlacement);
+    }
+
+    // writers
+
+    public static void write(JsonGenerator generator, SessionUpdate update, PrivacyLevel level) throws IOException {
+        generator.writeStartObject();
+        generator.writeFieldName("session");
+        write(generator, update.getSession(), level);
+        generator.writeStringField("type", update.getType().getCode());
+        generator.writeEndObject();
+    }
+
+    /**
+     * Writes the update as a delta against the session known to the receiver if possible.
+     *
+     * @see SessionUpdate#toMap(Session, PrivacyLevel)
+     */
+    public static void write(JsonGenerator generator, SessionUpdate update, Session base, PrivacyLevel level) throws IOException {
+        Optional<SessionDelta> delta = base == null ? Optional.empty() : SessionDelta.between(base, update.getSession());
+        if (!delta.isPresent()) {
+            write(generator, update, level);
+            return;
+        }
+        generator.writeStartObject();
+        generator.writeFieldName("delta");
+        writeValue(generator, delta.get().toMap(level));
+        generator.writeStringField("type", update.getType().getCode());
+        generator.writeEndObject();
+    }
+
+    public static void write(JsonGenerator generator, Session session, PrivacyLevel level) throws IOException {
+        if (session instanceof LazySession) {
+            write(generator, ((LazySession) session).materialize(), level);
+            return;
+        }
+        if (session instanceof DefaultLocalSession) {
+            DefaultLocalSession localSession = (DefaultLocalSession) session;
+            generator.writeStartObject();
+            if (localSession.getPrivateKey() != null && PrivacyLevel.INTERNAL.equals(level)) {
+                generator.writeStringField("key", localSession.getPrivateKey());
+                if (!KeyDerivation.Default.PBKDF2_HMAC_SHA1.equals(localSession.getKeyDerivation())) {
+                    generator.writeStringField("keyDerivation", localSession.getKeyDerivation().getCode());
+                }
+            }
+            writeSessionFields(generator, localSession.getDelegate(), level);
+            generator.writeEndObject();
+            return;
+        }
+        if (session instanceof DefaultSession) {
+            generator.writeStartObject();
+            writeSessionFields(generator, (DefaultSession) session, level);
+            generator.writeEndObject();
+            return;
+        }
+        writeValue(generator, session.toMap(level));
+    }
+
+    public static void write(JsonGenerator generator, Board board, PrivacyLevel level) throws IOException {
+        generator.writeStartObject();
+        generator.writeNumberField("firstColumn", board.getFirstColumn());
+        generator.writeNumberField("width", board.getWidth());
+        generator.writeNumberField("firstRow", board.getFirstRow());
+        generator.writeNumberField("height", board.getHeight());
+        generator.writeArrayFieldStart("tokenPlacements");
+        for (TokenPlacement placement : board.getTokenPlacements()) {
+            write(generator, placement, level);
+        }
+        generator.writeEndArray();
+        generator.writeEndObject();
+    }
+
+    public static void write(JsonGenerator generator, Move move, PrivacyLevel level) throws IOException {
+        generator.writeStartObject();
+        generator.writeFieldName("tokenPlacement");
+        write(generator, move.getTokenPlacement(), level);
+        generator.writeNumberField("timestamp", move.getTimestamp().toEpochMilli());
+        if (move.getRuleViolation().isPresent()) {
+            generator.writeStringField("ruleViolation", move.getRuleViolation().get().getCode());
+        }
+        generator.writeEndObject();
+    }
+
+    public static void write(JsonGenerator generator, TokenPlacement placement, PrivacyLevel level) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("token", placement.getToken().getSymbol());
+        generator.writeFieldName("player");
+        writePlayer(generator, placement.getPlayer());
+        if (placement.getSource().isPresent()) {
+            generator.writeFieldName("source");
+            writePosition(generator, placement.getSource().get());
+        }
+        if (placement.getKey().isPresent()) {
+            generator.writeStringField("key", placement.getKey().get());
+        }
+        generator.writeFieldName("destination");
+        writePosition(generator, placement.getDestination());
+        generator.writeEndObject();
+    }
+
+    private static void writeSessionFields(JsonGenerator generator, DefaultSession session, PrivacyLevel level) throws IOException {
+        generator.writeNumberField("round", session.getRound());
+        generator.writeFieldName("game");
+        writeGame(generator, session.getGame(), level);
+        generator.writeFieldName("board");
+        write(generator, session.getBoard(), level);
+
+        generator.writeArrayFieldStart("players");
+        for (Player player : session.getPlayers()) {
+            writePlayer(generator, player);
+        }
+        generator.writeEndArray();
+
+        generator.writeObjectFieldStart("scores");
+        for (Player player : session.getPlayers()) {
+            generator.writeNumberField(player.getUsername(), session.getScore(player));
+        }
+        generator.writeEndObject();
+
+        generator.writeObjectFieldStart("decks");
+        for (Player player : session.getPlayers()) {
+            generator.writeFieldName(player.getUsername());
+            writeDeck(generator, session.getDeck(player), level);
+        }
+        generator.writeEndObject();
+
+        generator.writeArrayFieldStart("playedMoves");
+        for (Move move : session.getMoves()) {
+            write(generator, move, level);
+        }
+        generator.writeEndArray();
+
+        generator.writeStringField("status", session.getStatus().name());
+        generator.writeNumberField("lastUpdated", session.getLastUpdated().toEpochMilli());
+
+        if (session.getPlayerOnTurn().isPresent()) {
+            generator.writeFieldName("playerOnTurn");
+            writePlayer(generator, session.getPlayerOnTurn().get());
+        }
+        if (session.getURL().isPresent()) {
+            generator.writeStringField("url", session.getURL().get().toExternalForm());
+        }
+    }
+
+    private static void writeGame(JsonGenerator generator, Game game, PrivacyLevel level) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("title", game.getTitle());
+        generator.writeFieldName("rules");
+        writeValue(generator, game.getRules().toMap(level));
+        if (game.getDescription().isPresent()) {
+            generator.writeStringField("description", game.getDescription().get());
+        }
+        if (game.getURL().isPresent()) {
+            generator.writeStringField("url", game.getURL().get().toExternalForm());
+        }
+        generator.writeEndObject();
+    }
+
+    private static void writePlayer(JsonGenerator generator, Player player) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("username", player.getUsername());
+        if (player.getAvatar().isPresent()) {
+            generator.writeStringField("avatar", player.getAvatar().get().toString());
+        }
+        if (player.getDisplayName().isPresent()) {
+            generator.writeStringField("displayName", player.getDisplayName().get());
+        }
+        if (player.getDisplayColor().isPresent()) {
+            generator.writeStringField("displayColor", player.getDisplayColor().get());
+        }
+        generator.writeEndObject();
+    }
+
+    private static void writePosition(JsonGenerator generator, Position position) throws IOException {
+        generator.writeStartObject();
+        generator.writeNumberField("row", position.getRow());
+        generator.writeNumberField("column", position.getColumn());
+        generator.writeEndObject();
+    }
+
+    private static void writeDeck(JsonGenerator generator, Deck deck, PrivacyLevel level) throws IOException {
+        List<Token> tokens = deck.getPlayableTokens();
+        generator.writeStartObject();
+        generator.writeArrayFieldStart("tokens");
+        for (Token token : tokens) {
+            generator.writeString(token.getSymbol());
+        }
+        generator.writeEndArray();
+        // mirrors Deck#toMap(PrivacyLevel)
+        generator.writeArrayFieldStart("secretTokens");
+        for (Token token : tokens) {
+            generator.writeString(PrivacyLevel.PUBLIC.equals(level) ? "?" : token.getSymbol());
+        }
+        generator.writeEndArray();
+        generator.writeEndObject();
+    }
+
+    private static void writeValue(JsonGenerator generator, Object value) throws IOException {
+        if (value == null) {
+            generator.writeNull();
+        } else if (value instanceof Map) {
+            generator.writeStartObject();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                generator.writeFieldName(String.valueOf(entry.getKey()));
+                writeValue(generator, entry.getValue());
+            }
+            generator.writeEndObject();
+        } else if (value instanceof Iterable) {
+            generator.writeStartArray();
+            for (Object item : (Iterable<?>) value) {
+                writeValue(generator, item);
+            }
+            generator.writeEndArray();
+        } else if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            generator.writeNumber(((Number) value).longValue());
+        } else if (value instanceof Number) {
+            generator.writeNumber(((Number) value).doubleValue());
+        } else if (value instanceof Boolean) {
+            generator.writeBoolean((Boolean) value);
+        } else {
+            generator.writeString(value.toString());
+        }
+    }
+
+    // readers
+
+    public static SessionUpdate readSessionUpdate(JsonParser parser) throws IOException {
+        return readSessionUpdate(parser, (String) null);
+    }
+
+    private static SessionUpdate readSessionUpdate(JsonParser parser, String source) throws IOException {
+        if (!startObject(parser, "session update")) {
+            return null;
+        }
+        Session session = null;
+        String type = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            switch (field) {
+                case "session":
+                    session = readSession(parser, source);
+                    break;
+                case "type":
+                    type = readString(parser);
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        return SessionUpdate.of(session, SessionUpdateType.load(type));
+    }
+
+    /**
+     * Reads either full or delta encoded update.
+     *
+     * @param parser the parser
+     * @param replica the replica holding the sessions already known
+     * @return the update with the full session or empty optional if the full snapshot of the session is required
+     */
+    public static Optional<SessionUpdate> readSessionUpdate(JsonParser parser, SessionReplica replica) throws IOException {
+        return readSessionUpdate(parser, replica, null);
+    }
+
+    private static Optional<SessionUpdate> readSessionUpdate(JsonParser parser, SessionReplica replica, String source) throws IOException {
+        if (!startObject(parser, "session update")) {
+            return Optional.empty();
+        }
+        Session session = null;
+        Object delta = null;
+        String type = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            switch (field) {
+                case "session":
+                    session = readSession(parser, source);
+                    break;
+                case "delta":
+                    delta = readValue(parser);
+                    break;
+                case "type":
+                    type = readString(parser);
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        if (delta != null) {
+            return replica.accept(SessionDelta.load(delta), SessionUpdateType.load(type));
+        }
+        return Optional.of(replica.accept(SessionUpdate.of(session, SessionUpdateType.load(type))));
+    }
+
+    public static Session readSession(JsonParser parser) throws IOException {
+        return readSession(parser, null);
+    }
+
+    /**
+     * @param source the JSON being parsed to read the session lazily or <code>null</code> to read it eagerly
+     */
+    private static Session readSession(JsonParser parser, String source) throws IOException {
+        SessionFields fields = readSessionFields(parser, source);
+        if (fields == null) {
+            return null;
+        }
+        if (source != null) {
+            return fields.toLazySession();
+        }
+        return fields.toSession();
+    }
+
+    public static LocalSession readLocalSession(JsonParser parser) throws IOException {
+        SessionFields fields = readSessionFields(parser, null);
+        if (fields == null) {
+            throw new IllegalArgumentException("Cannot load session from null");
+        }
+        return DefaultLocalSession.restore(fields.toSession(), fields.key, KeyDerivation.load(fields.keyDerivation));
+    }
+
+    public static Board readBoard(JsonParser parser) throws IOException {
+        if (!startObject(parser, "board")) {
+            return null;
+        }
+        Integer firstColumn = null;
+        Integer width = null;
+        Integer firstRow = null;
+        Integer height = null;
+        List<TokenPlacement> placements = ImmutableList.of();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            switch (field) {
+                case "firstColumn":
+                    firstColumn = readInteger(parser);
+                    break;
+                case "width":
+                    width = readInteger(parser);
+                    break;
+                case "firstRow":
+                    firstRow = readInteger(parser);
+                    break;
+                case "height":
+                    height = readInteger(parser);
+                    break;
+                case "tokenPlacements":
+                    placements = readList(parser, JsonCodec::readTokenPlacement);
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        return Board.rectangle(
+                required(firstColumn, "firstColumn"),
+                required(width, "width"),
+                required(firstRow, "firstRow"),
+                required(height, "height"),
+                placements
+        );
+    }
+
+    public static Move readMove(JsonParser parser) throws IOException {
+        if (!startObject(parser, "move")) {
+            return null;
+        }
+        TokenPlacement placement = null;
+        String ruleViolation = null;
+        Long timestamp = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            switch (field) {
+                case "tokenPlacement":
+                    placement = readTokenPlacement(parser);
+                    break;
+                case "ruleViolation":
+                    ruleViolation = readString(parser);
+                    break;
+                case "timestamp":
+                    timestamp = readLong(parser);
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        return Move.to(
+                placement,
+                RuleViolation.load(ruleViolation),
+                Instant.ofEpochMilli(required(timestamp, "timestamp"))
+        );
+    }
+
+    public static TokenPlacement readTokenPlacement(JsonParser parser) throws IOException {
+        if (!startObject(parser, "token placement")) {
+            return null;
+        }
+        String token = null;
+        Player player = null;
+        Position source = null;
+        Position destination = null;
+        String key = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            switch (field) {
+                case "token":
+                    token = readString(parser);
+                    break;
+                case "player":
+                    player = readPlayer(parser);
+                    break;
+                case "source":
+                    source = readPosition(parser);
+                    break;
+                case "destination":
+                    destination = readPosition(parser);
+                    break;
+                case "key":
+                    key = readString(parser);
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        return TokenPlacement.create(Token.stub(required(token, "token")), player, source, destination, key);
+    }
+
+    private static SessionFields readSessionFields(JsonParser parser, String source) throws IOException {
+        if (!startObject(parser, "session")) {
+            return null;
+        }
+        SessionFields fields = new SessionFields();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            switch (field) {
+                case "key":
+                    fields.key = readString(parser);
+                    break;
+                case "keyDerivation":
+                    fields.keyDerivation = readString(parser);
+                    break;
+                case "round":
+                    fields.round = readLong(parser);
+                    break;
+                case "game":
+                    if (source != null) {
+                        fields.rawGame = capture(parser, source);
+                    } else {
+                        fields.game = readGame(parser);
+                    }
+                    break;
+                case "board":
+                    if (source != null) {
+                        fields.rawBoard = capture(parser, source);
+                    } else {
+                        fields.board = readBoard(parser);
+                    }
+                    break;
+                case "players":
+                    fields.players = readList(parser, JsonCodec::readPlayer);
+                    break;
+                case "scores":
+                    fields.scores = readMap(parser, JsonCodec::readInteger);
+                    break;
+                case "decks":
+                    if (source != null) {
+                        fields.rawDecks = readMap(parser, p -> capture(p, source));
+                    } else {
+                        fields.decks = readMap(parser, JsonCodec::readDeck);
+                    }
+                    break;
+                case "playedMoves":
+                    if (source != null) {
+                        fields.rawMoves = capture(parser, source);
+                    } else {
+                        fields.moves = readList(parser, JsonCodec::readMove);
+                    }
+                    break;
+                case "status":
+                    fields.status = readString(parser);
+                    break;
+                case "lastUpdated":
+                    fields.lastUpdated = readLong(parser);
+                    break;
+                case "playerOnTurn":
+                    fields.playerOnTurn = readPlayer(parser);
+                    break;
+                case "url":
+                    fields.url = readString(parser);
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        return fields;
+    }
+
+    private static Game readGame(JsonParser parser) throws IOException {
+        if (!startObject(parser, "game")) {
+            return null;
+        }
+        String title = null;
+        Object rules = null;
+        String description = null;
+        String url = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            switch (field) {
+                case "title":
+                    title = readString(parser);
+                    break;
+                case "rules":
+                    rules = readValue(parser);
+                    break;
+                case "description":
+                    description = readString(parser);
+                    break;
+                case "url":
+                    url = readString(parser);
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        return Game.of(title, description, toURL(url), Rules.load(rules));
+    }
+
+    private static Player readPlayer(JsonParser parser) throws IOException {
+        if (!startObject(parser, "player")) {
+            return null;
+        }
+        String username = null;
+        String avatar = null;
+        String displayName = null;
+        String displayColor = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            switch (field) {
+                case "username":
+                    username = readString(parser);
+                    break;
+                case "avatar":
+                    avatar = readString(parser);
+                    break;
+                case "displayName":
+                    displayName = readString(parser);
+                    break;
+                case "displayColor":
+                    displayColor = readString(parser);
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        return Player.create(username, avatar == null ? null : Avatar.of(avatar), displayName, displayColor);
+    }
+
+    private static Position readPosition(JsonParser parser) throws IOException {
+        if (!startObject(parser, "position")) {
+            return null;
+        }
+        Integer row = null;
+        Integer column = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            switch (field) {
+                case "row":
+                    row = readInteger(parser);
+                    break;
+                case "column":
+                    column = readInteger(parser);
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        return Position.at(required(row, "row"), required(column, "column"));
+    }
+
+    private static Deck readDeck(JsonParser parser) throws IOException {
+        if (!startObject(parser, "deck")) {
+            return null;
+        }
+        List<Token> tokens = ImmutableList.of();
+        List<Token> secretTokens = ImmutableList.of();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            switch (field) {
+                case "tokens":
+                    tokens = readList(parser, p -> Token.stub(readString(p)));
+                    break;
+                case "secretTokens":
+                    secretTokens = readList(parser, p -> Token.stub(readString(p)));
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        return Deck.of(tokens, secretTokens);
+    }
+
+    private static Object readValue(JsonParser parser) throws IOException {
+        switch (parser.getCurrentToken()) {
+            case START_OBJECT:
+                Map<String, Object> map = Maps.newLinkedHashMap();
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.getCurrentName();
+                    parser.nextToken();
+                    map.put(field, readValue(parser));
+                }
+                return map;
+            case START_ARRAY:
+                List<Object> list = Lists.newArrayList();
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    list.add(readValue(parser));
+                }
+                return list;
+            case VALUE_NUMBER_INT:
+                return parser.getNumberValue();
+            case VALUE_NUMBER_FLOAT:
+                return parser.getDoubleValue();
+            case VALUE_TRUE:
+                return Boolean.TRUE;
+            case VALUE_FALSE:
+                return Boolean.FALSE;
+            case VALUE_NULL:
+                return null;
+            default:
+                return parser.getText();
+        }
+    }
+
+    private static String readString(JsonParser parser) throws IOException {
+        if (parser.getCurrentToken() == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        return parser.getValueAsString();
+    }
+
+    private static Integer readInteger(JsonParser parser) throws IOException {
+        if (parser.getCurrentToken() == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (parser.getCurrentToken() == JsonToken.VALUE_STRING) {
+            return Integer.valueOf(parser.getText());
+        }
+        return parser.getIntValue();
+    }
+
+    private static Long readLong(JsonParser parser) throws IOException {
+        if (parser.getCurrentToken() == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (parser.getCurrentToken() == JsonToken.VALUE_STRING) {
+            return Long.valueOf(parser.getText());
+        }
+        return parser.getLongValue();
+    }
+
+    private static <T> ImmutableList<T> readList(JsonParser parser, Reader<T> reader) throws IOException {
+        if (parser.getCurrentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return ImmutableList.of();
+        }
+        ImmutableList.Builder<T> builder = ImmutableList.builder();
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            builder.add(reader.read(parser));
+        }
+        return builder.build();
+    }
+
+    private static <T> Map<String, T> readMap(JsonParser parser, Reader<T> reader) throws IOException {
+        if (parser.getCurrentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return ImmutableMap.of();
+        }
+        Map<String, T> map = Maps.newLinkedHashMap();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            map.put(field, reader.read(parser));
+        }
+        return map;
+    }
+
+    /**
+     * Moves the parser to the start of the object if needed.
+     *
+     * @return <code>false</code> if the value is <code>null</code>
+     */
+    private static boolean startObject(JsonParser parser, String what) throws IOException {
+        JsonToken token = parser.getCurrentToken();
+        if (token == null) {
+            token = parser.nextToken();
+        }
+        if (token == JsonToken.VALUE_NULL) {
+            return false;
+        }
+        if (token != JsonToken.START_OBJECT) {
+            throw new IllegalArgumentException("Cannot load " + what + " from " + token);
+        }
+        return true;
+    }
+
+    /**
+     * Skips the current value and returns its JSON.
+     */
+    private static String capture(JsonParser parser, String source) throws IOException {
+        int start = (int) parser.getTokenLocation().getCharOffset();
+        parser.skipChildren();
+        int end = (int) parser.getCurrentLocation().getCharOffset();
+        return source.substring(start, end);
+    }
+
+    private static <T> T required(T value, String property) {
+        if (value == null) {
+            throw new IllegalArgumentException(property + " is missing!");
+        }
+        return value;
+    }
+
+    private static URL toURL(String url) {
+        if (url == null) {
+            return null;
+        }
+        try {
+            return new URL(url);
+        } catch (MalformedURLException e) {
+            throw new RuntimeException("Error parsing the URL", e);
+        }
+    }
+
+    private static String toJson(Writer writer) {
+        StringWriter result = new StringWriter();
+        try (JsonGenerator generator = FACTORY.createGenerator(result)) {
+            writer.write(generator);
+        } catch (IOException e) {
+            throw new IllegalStateException("Exception writing JSON", e);
+        }
+        return result.toString();
+    }
+
+    private static <T> T fromJson(String json, Reader<T> reader) {
+        try (JsonParser parser = FACTORY.createParser(json)) {
+            parser.nextToken();
+            return reader.read(parser);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Cannot parse JSON", e);
+        }
+    }
+
+    @FunctionalInterface private interface Writer {
+        void write(JsonGenerator generator) throws IOException;
+    }
+
+    @FunctionalInterface private interface Reader<T> {
+        T read(JsonParser parser) throws IOException;
+    }
+
+    /**
+     * Fields of the session which may come in any order.
+     */
+    private static final class SessionFields {
+        private String key;
+        private String keyDerivation;
+        private Long round;
+        private Game game;
+        private Board board;
+        private ImmutableList<Player> players = ImmutableList.of();
+        private Map<String, Integer> scores = ImmutableMap.of();
+        private Map<String, Deck> decks = ImmutableMap.of();
+        private List<Move> moves = ImmutableList.of();
+        private String status;
+        private Long lastUpdated;
+        private Player playerOnTurn;
+        private String url;
+        private String rawGame;
+        private String rawBoard;
+        private String rawMoves;
+        private Map<String, String> rawDecks = ImmutableMap.of();
+
+        LazySession toLazySession() {
+            ImmutableMap.Builder<String, Supplier<Deck>> playerDecks = ImmutableMap.builder();
+            for (Map.Entry<String, String> deck : rawDecks.entrySet()) {
+                findPlayer(deck.getKey());
+                playerDecks.put(deck.getKey(), () -> fromJson(deck.getValue(), JsonCodec::readDeck));
+            }
+            String game = rawGame;
+            String board = rawBoard;
+            String moves = rawMoves;
+            return new LazySession(
+                    required(round, "round"),
+                    status == null ? Status.WAITING : Status.valueOf(status),
+                    players,
+                    playerOnTurn,
+                    toURL(url),
+                    playerScores(),
+                    Instant.ofEpochMilli(required(lastUpdated, "lastUpdated")),
+                    () -> game == null ? null : fromJson(game, JsonCodec::readGame),
+                    () -> board == null ? null : fromJson(board, JsonCodec::readBoard),
+                    () -> PersistentList.copyOf(moves == null ? ImmutableList.of() : fromJson(moves, p -> readList(p, JsonCodec::readMove))),
+                    playerDecks.build()
+            );
+        }
+
+        DefaultSession toSession() {
+            ImmutableMap<Player, Integer> playerScores = playerScores();
+            ImmutableMap.Builder<Player, Deck> playerDecks = ImmutableMap.builder();
+            for (Map.Entry<String, Deck> deck : decks.entrySet()) {
+                playerDecks.put(findPlayer(deck.getKey()), deck.getValue());
+            }
+            return new DefaultSession(
+                    required(round, "round"),
+                    board,
+                    game,
+                    status == null ? Status.WAITING : Status.valueOf(status),
+                    players,
+                    playerOnTurn,
+                    toURL(url),
+                    PersistentList.copyOf(moves),
+                    playerDecks.build(),
+                    playerScores,
+                    Instant.ofEpochMilli(required(lastUpdated, "lastUpdated"))
+            );
+        }
+
+        private ImmutableMap<Player, Integer> playerScores() {
+            ImmutableMap.Builder<Player, Integer> playerScores = ImmutableMap.builder();
+            for (Map.Entry<String, Integer> score : scores.entrySet()) {
+                playerScores.put(findPlayer(score.getKey()), score.getValue());
+            }
+            return playerScores.build();
+        }
+
+        private Player findPlayer(String username) {
+            return players.stream()
+                    .filter(player -> player.getUsername().equals(username))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalArgumentException("Player not present: " + username));
+        }
+    }
+
+}
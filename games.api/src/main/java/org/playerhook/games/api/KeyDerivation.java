@@ -0,0 +1,104 @@
+package org.playerhook.games.api;
+
+import com.google.common.io.BaseEncoding;
+
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Strategy deriving the player keys of the signed sessions.
+ *
+ * The derived key is bound to the private key of the session, the current round and the username of the player.
+ * The implementation must be deterministic and stateless. Custom implementations must have public no-arg constructor
+ * so they can be loaded from the serialized session.
+ */
+public interface KeyDerivation {
+
+    /**
+     * @param privateKey private key of the session
+     * @param round current round of the session
+     * @param username username of the player
+     * @return the derived key for the player
+     */
+    String deriveKey(String privateKey, long round, String username);
+
+    default String getCode() {
+        return getClass().getName();
+    }
+
+    enum Default implements KeyDerivation {
+        /**
+         * Slow password based derivation using PBKDF2 with HMAC-SHA1 and 20 000 iterations.
+         */
+        PBKDF2_HMAC_SHA1 {
+            private static final int ITERATIONS = 20 * 1000;
+            private static final int DESIRED_KEY_LEN = 64;
+
+            @Override
+            public String deriveKey(String privateKey, long round, String username) {
+                try {
+                    SecretKeyFactory f = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA1");
+                    PBEKeySpec spec = new PBEKeySpec(username.toCharArray(), (privateKey + ":" + round).getBytes(), ITERATIONS, DESIRED_KEY_LEN);
+                    SecretKey key = f.generateSecret(spec);
+                    return BaseEncoding.base64().encode(key.getEncoded());
+                } catch (Exception e) {
+                    throw new IllegalStateException("Problems generating player key", e);
+                }
+            }
+        },
+
+        /**
+         * Single pass HMAC-SHA256 of the username keyed by the private key and the round.
+         *
+         * Use for high throughput sessions where the private key is strong enough not to need key stretching.
+         */
+        HMAC_SHA256 {
+            @Override
+            public String deriveKey(String privateKey, long round, String username) {
+                try {
+                    Mac mac = Mac.getInstance("HmacSHA256");
+                    mac.init(new SecretKeySpec((privateKey + ":" + round).getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+                    return BaseEncoding.base64().encode(mac.doFinal(username.getBytes(StandardCharsets.UTF_8)));
+                } catch (Exception e) {
+                    throw new IllegalStateException("Problems generating player key", e);
+                }
+            }
+        };
+
+        @Override
+        public String getCode() {
+            return name();
+        }
+    }
+
+    static KeyDerivation load(String code) {
+        if (code == null) {
+            return Default.PBKDF2_HMAC_SHA1;
+        }
+        for (Default d : Default.values()) {
+            if (d.getCode().equals(code)) {
+                return d;
+            }
+        }
+        Class<?> clazz;
+        try {
+            // the class is not initialized until it is known to be a key derivation
+            clazz = Class.forName(code, false, KeyDerivation.class.getClassLoader());
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException("Cannot load key derivation " + code, e);
+        }
+        if (!KeyDerivation.class.isAssignableFrom(clazz)) {
+            throw new IllegalArgumentException(code + " is not a key derivation");
+        }
+        try {
+            return (KeyDerivation) clazz.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException("Cannot load key derivation " + code, e);
+        }
+    }
+
+}
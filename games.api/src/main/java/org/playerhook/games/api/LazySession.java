@@ -0,0 +1,244 @@
+package org.playerhook.games.api;
+
+import com.google.common.base.Objects;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import java.net.URL;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.playerhook.games.util.MapSerializable.*;
+
+/**
+ * Session which reads only the cheap header fields eagerly.
+ *
+ * The round, the status, the players, the player on turn, the scores and the timestamps are available immediately.
+ * The game, the board, the moves and each of the decks are materialized on the first access and memoized, so the
+ * consumers which only check whether the player is on turn do not pay for the rest of the session. The instances are
+ * safe to be shared between threads.
+ */
+final class LazySession implements Session {
+
+    private final long round;
+    private final Status status;
+    private final ImmutableList<Player> players;
+    private final Player activePlayer;
+    private final URL url;
+    private final ImmutableMap<Player, Integer> scores;
+    private final Instant lastUpdated;
+
+    private final Supplier<Game> game;
+    private final Supplier<Board> board;
+    private final Supplier<PersistentList<Move>> moves;
+    private final Supplier<ImmutableList<Move>> movesCopy;
+    private final ImmutableMap<String, Supplier<Deck>> decks;
+    private final Supplier<DefaultSession> materialized;
+    private final SessionStamps stamps = SessionStamps.create();
+
+    LazySession(long round, Status status, ImmutableList<Player> players, Player activePlayer, URL url,
+                ImmutableMap<Player, Integer> scores, Instant lastUpdated, Supplier<Game> game, Supplier<Board> board,
+                Supplier<PersistentList<Move>> moves, Map<String, Supplier<Deck>> decks) {
+        this.round = round;
+        this.status = status;
+        this.players = players;
+        this.activePlayer = activePlayer;
+        this.url = url;
+        this.scores = scores;
+        this.lastUpdated = lastUpdated;
+        this.game = Suppliers.memoize(game);
+        this.board = Suppliers.memoize(board);
+        this.moves = Suppliers.memoize(moves);
+        this.movesCopy = Suppliers.memoize(() -> ImmutableList.copyOf(this.moves.get()));
+
+        ImmutableMap.Builder<String, Supplier<Deck>> memoizedDecks = ImmutableMap.builder();
+        for (Map.Entry<String, Supplier<Deck>> deck : decks.entrySet()) {
+            memoizedDecks.put(deck.getKey(), Suppliers.memoize(deck.getValue()));
+        }
+        this.decks = memoizedDecks.build();
+        this.materialized = Suppliers.memoize(this::toDefaultSession);
+    }
+
+    static LazySession load(Object session) {
+        if (!(session instanceof Map)) {
+            throw new IllegalArgumentException("Cannot load session from " + session);
+        }
+
+        Map<String, Object> payload = (Map<String, Object>) session;
+
+        ImmutableList<Player> players = loadList(payload.getOrDefault("players", Collections.emptyList()), Player::load);
+
+        ImmutableMap.Builder<Player, Integer> scores = ImmutableMap.builder();
+        Object scoresPayload = payload.get("scores");
+        if (scoresPayload instanceof Map) {
+            for (Map.Entry<String, Object> score : ((Map<String, Object>) scoresPayload).entrySet()) {
+                scores.put(findPlayer(players, score.getKey()), Integer.valueOf(score.getValue().toString()));
+            }
+        }
+
+        ImmutableMap.Builder<String, Supplier<Deck>> decks = ImmutableMap.builder();
+        Object decksPayload = payload.get("decks");
+        if (decksPayload instanceof Map) {
+            for (Map.Entry<String, Object> deck : ((Map<String, Object>) decksPayload).entrySet()) {
+                findPlayer(players, deck.getKey());
+                decks.put(deck.getKey(), () -> Deck.load(deck.getValue()));
+            }
+        }
+
+        return new LazySession(
+                loadLong(payload, "round"),
+                Status.valueOf(payload.getOrDefault("status", Status.WAITING).toString()),
+                players,
+                Player.load(payload.getOrDefault("playerOnTurn", null)),
+                loadURL(payload, "url"),
+                scores.build(),
+                loadInstant(payload, "lastUpdated"),
+                () -> Game.load(payload.getOrDefault("game", null)),
+                () -> Board.load(payload.getOrDefault("board", null)),
+                () -> PersistentList.copyOf(loadList(payload.getOrDefault("playedMoves", Collections.emptyList()), Move::load)),
+                decks.build()
+        );
+    }
+
+    static Player findPlayer(ImmutableList<Player> players, String username) {
+        return players.stream()
+            .filter(player -> player.getUsername().equals(username))
+            .findFirst()
+            .orElseThrow(() -> new IllegalArgumentException("Player not present: " + username));
+    }
+
+    /**
+     * @return the fully materialized session
+     */
+    DefaultSession materialize() {
+        return materialized.get();
+    }
+
+    private DefaultSession toDefaultSession() {
+        ImmutableMap.Builder<Player, Deck> materializedDecks = ImmutableMap.builder();
+        for (Map.Entry<String, Supplier<Deck>> deck : decks.entrySet()) {
+            materializedDecks.put(findPlayer(players, deck.getKey()), deck.getValue().get());
+        }
+        return new DefaultSession(
+                round,
+                getBoard(),
+                getGame(),
+                status,
+                players,
+                activePlayer,
+                url,
+                moves.get(),
+                materializedDecks.build(),
+                scores,
+                lastUpdated,
+                stamps
+        );
+    }
+
+    @Override
+    public Game getGame() {
+        return game.get();
+    }
+
+    @Override
+    public Board getBoard() {
+        return board.get();
+    }
+
+    @Override
+    public ImmutableList<Player> getPlayers() {
+        return players;
+    }
+
+    @Override
+    public Optional<Player> getPlayerOnTurn() {
+        return Optional.ofNullable(activePlayer);
+    }
+
+    @Override
+    public ImmutableList<Move> getMoves() {
+        return movesCopy.get();
+    }
+
+    @Override
+    public Optional<Move> getLastMove() {
+        PersistentList<Move> history = moves.get();
+        return history.isEmpty() ? Optional.empty() : Optional.of(history.get(history.size() - 1));
+    }
+
+    @Override
+    public Status getStatus() {
+        return status;
+    }
+
+    @Override
+    public Optional<URL> getURL() {
+        return Optional.ofNullable(url);
+    }
+
+    @Override
+    public Instant getLastUpdated() {
+        return lastUpdated;
+    }
+
+    @Override
+    public Deck getDeck(Player player) {
+        Supplier<Deck> deck = decks.get(player.getUsername());
+        if (deck == null) {
+            return Deck.of();
+        }
+        return deck.get();
+    }
+
+    @Override
+    public int getScore(Player player) {
+        return scores.getOrDefault(player, 0);
+    }
+
+    @Override
+    public TokenPlacement newPlacement(Token token, Player player, Position source, Position destination) {
+        return TokenPlacement.create(token, player, source, destination, null);
+    }
+
+    @Override
+    public Map<String, Object> toMap(PrivacyLevel level) {
+        return materialize().toMap(level);
+    }
+
+    Long getRound() {
+        return round;
+    }
+
+    @Override
+    public Optional<SessionStamps> getStamps() {
+        return Optional.of(stamps);
+    }
+
+    @Override
+    public String toString() {
+        return "Session: " + url + " in round " + round;
+    }
+
+    //CHECKSTYLE:OFF
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        LazySession that = (LazySession) o;
+        return round == that.round &&
+                status == that.status &&
+                Objects.equal(players, that.players) &&
+                Objects.equal(lastUpdated, that.lastUpdated) &&
+                Objects.equal(materialize(), that.materialize());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(round, status, players, activePlayer, lastUpdated);
+    }
+    //CHECKSTYLE:ON
+}
@@ -2,17 +2,18 @@ package org.playerhook.games.api;
 
 import java.net.URL;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 public interface LocalSession extends Session {
 
     /**
-     * Creates new session. If the session with given URL already exists, returns the existing one if not yet finished
-     * otherwise creates new one.
+     * Creates new session. Use {@link SessionRegistry#create(Game, URL)} to reuse the existing unfinished session with
+     * the same URL.
      *
      * @param game game for this session
      * @param url url uniquely identifying the session
-     * @return existing or new session
-     * @throws IllegalArgumentException if the session already exists with different game
+     * @return new session
      */
     static LocalSession create(Game game, URL url) {
         return DefaultLocalSession.newSession(game, url);
@@ -21,8 +22,33 @@ public interface LocalSession extends Session {
     LocalSession join(Player newPlayer);
     LocalSession play(TokenPlacement placement);
 
+    /**
+     * Signs the session with given private key using the default
+     * {@link org.playerhook.games.api.KeyDerivation.Default#PBKDF2_HMAC_SHA1} key derivation.
+     *
+     * @param privateKey the private key of the session
+     * @return the signed session
+     */
     LocalSession signWith(String privateKey);
 
+    /**
+     * Signs the session with given private key.
+     *
+     * @param privateKey the private key of the session
+     * @param derivation strategy used to derive the player keys from the private key
+     * @return the signed session
+     */
+    LocalSession signWith(String privateKey, KeyDerivation derivation);
+
+    /**
+     * Derives the keys of all the players for the next round in the background so the next move does not have to wait
+     * for the key derivation.
+     *
+     * @param executor executor which should derive the keys
+     * @return future completed when all the keys are ready, already completed future if the session is not signed
+     */
+    CompletableFuture<Void> precomputeNextRoundKeys(Executor executor);
+
     Optional<String> getKey(Player player);
 
     default TokenPlacement sign(TokenPlacement placement) {
@@ -46,13 +72,11 @@ public interface LocalSession extends Session {
     }
 
     /**
-     * Loads session bases on given payload.
-     *
-     * If the payload contains URL and session with the given URL already exists and it has not been finished yet
-     * the existing session is returned and updated with the payload.
+     * Loads session bases on given payload. Use {@link SessionRegistry#load(Object)} to update the session with the
+     * same URL already registered.
      *
      * @param payload payload representing the session
-     * @return new session for the payload or existing session updated from the payload
+     * @return new session for the payload
      */
     static LocalSession load(Object payload) {
         return DefaultLocalSession.load(payload);
@@ -16,7 +16,7 @@ public final class Move implements MapSerializable {
     private final Instant timestamp;
 
     public static Move to(TokenPlacement tokenPlacement) {
-        return to(tokenPlacement, null, Instant.now());
+        return to(tokenPlacement, null, SessionClock.now());
     }
 
     public static Move to(TokenPlacement tokenPlacement, Instant timestamp) {
@@ -24,7 +24,7 @@ public final class Move implements MapSerializable {
     }
 
     public static Move to(TokenPlacement tokenPlacement, RuleViolation ruleViolation) {
-        return to(tokenPlacement, ruleViolation, Instant.now());
+        return to(tokenPlacement, ruleViolation, SessionClock.now());
     }
 
     public static Move to(TokenPlacement tokenPlacement, RuleViolation ruleViolation, Instant timestamp) {
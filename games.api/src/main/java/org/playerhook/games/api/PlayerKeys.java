@@ -0,0 +1,78 @@
+package org.playerhook.games.api;
+
+import com.google.common.base.Objects;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Memoizes the derived player keys per session key, round and username.
+ *
+ * The derivation is the most expensive part of the signed session moves so the keys are computed at most once for
+ * each round, no matter how many times the session is loaded, verified or asked for the key.
+ */
+final class PlayerKeys {
+
+    private static final Cache<CacheKey, String> KEYS = CacheBuilder.newBuilder()
+            .maximumSize(100 * 1000)
+            .expireAfterAccess(1, TimeUnit.HOURS)
+            .build();
+
+    private PlayerKeys() { }
+
+    static String get(KeyDerivation derivation, String privateKey, long round, String username) {
+        try {
+            return KEYS.get(
+                    new CacheKey(derivation, privateKey, round, username),
+                    () -> derivation.deriveKey(privateKey, round, username)
+            );
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            throw new IllegalStateException("Problems generating player key", e.getCause());
+        }
+    }
+
+    /**
+     * Compares the keys in the time independent of the position of the first difference.
+     */
+    static boolean matches(String expected, String actual) {
+        return MessageDigest.isEqual(expected.getBytes(StandardCharsets.UTF_8), actual.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static final class CacheKey {
+        private final String derivation;
+        private final String privateKey;
+        private final long round;
+        private final String username;
+
+        CacheKey(KeyDerivation derivation, String privateKey, long round, String username) {
+            this.derivation = derivation.getCode();
+            this.privateKey = privateKey;
+            this.round = round;
+            this.username = username;
+        }
+
+        //CHECKSTYLE:OFF
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            CacheKey that = (CacheKey) o;
+            return round == that.round &&
+                    Objects.equal(derivation, that.derivation) &&
+                    Objects.equal(privateKey, that.privateKey) &&
+                    Objects.equal(username, that.username);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(derivation, privateKey, round, username);
+        }
+        //CHECKSTYLE:ON
+    }
+
+}
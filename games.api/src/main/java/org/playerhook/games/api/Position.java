@@ -1,6 +1,5 @@
 package org.playerhook.games.api;
 
-import com.google.common.base.Objects;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableMap;
@@ -13,11 +12,41 @@ public final class Position implements MapSerializable {
     private final int row;
     private final int column;
 
-    private static final Cache<String, Position> POSITIONS = CacheBuilder.newBuilder().build();
+    /**
+     * Lowest row or column kept in the flyweight table.
+     */
+    private static final int TABLE_OFFSET = 16;
+
+    /**
+     * Number of rows and columns kept in the flyweight table, covers coordinates from <code>-16</code> to
+     * <code>239</code>.
+     */
+    private static final int TABLE_SIZE = 256;
+
+    /**
+     * Canonical instances for the common coordinates, filled lazily. Racing threads may both create the instance but
+     * the position is immutable so any of them can be used.
+     */
+    private static final Position[] TABLE = new Position[TABLE_SIZE * TABLE_SIZE];
+
+    private static final Cache<Long, Position> OUTLIERS = CacheBuilder.newBuilder().maximumSize(10 * 1000).build();
 
     public static Position at(int row, int column) {
-        String key = "" + row + ":" + column;
-        Position position = POSITIONS.getIfPresent(key);
+        int tableRow = row + TABLE_OFFSET;
+        int tableColumn = column + TABLE_OFFSET;
+
+        if (tableRow >= 0 && tableRow < TABLE_SIZE && tableColumn >= 0 && tableColumn < TABLE_SIZE) {
+            int index = tableRow * TABLE_SIZE + tableColumn;
+            Position position = TABLE[index];
+            if (position == null) {
+                position = new Position(row, column);
+                TABLE[index] = position;
+            }
+            return position;
+        }
+
+        Long key = ((long) row << 32) | (column & 0xFFFFFFFFL);
+        Position position = OUTLIERS.getIfPresent(key);
 
         if (position != null) {
             return position;
@@ -25,7 +54,7 @@ public final class Position implements MapSerializable {
 
         position = new Position(row, column);
 
-        POSITIONS.put(key, position);
+        OUTLIERS.put(key, position);
 
         return position;
     }
@@ -36,7 +65,7 @@ public final class Position implements MapSerializable {
     }
 
     public Position at(Direction direction) {
-        return new Position(row + direction.getRowDelta(), column + direction.getColumnDelta());
+        return at(row + direction.getRowDelta(), column + direction.getColumnDelta());
     }
 
     public int getColumn() {
@@ -66,7 +95,8 @@ public final class Position implements MapSerializable {
 
     @Override
     public int hashCode() {
-        return Objects.hashCode(row, column);
+        // same value as Objects.hashCode(row, column) without boxing
+        return 31 * (31 + row) + column;
     }
 
     @Override
@@ -83,7 +113,7 @@ public final class Position implements MapSerializable {
         }
         Map<String, Object> map = (Map<String, Object>) position;
 
-        return new Position(
+        return at(
             MapSerializable.loadInteger(map, "row"),
             MapSerializable.loadInteger(map, "column")
         );
@@ -12,6 +12,9 @@ public interface Session extends MapSerializable {
     Board getBoard();
     ImmutableList<Player> getPlayers();
     Optional<Player> getPlayerOnTurn();
+    /**
+     * @return all the moves played in this session including the rejected ones, in the order they were played
+     */
     ImmutableList<Move> getMoves();
     Status getStatus();
     Optional<URL> getURL();
@@ -34,6 +37,14 @@ public interface Session extends MapSerializable {
         return Status.FINISHED.equals(getStatus());
     }
 
+    /**
+     * @return the version of the session and the change stamps of its components or empty optional if the
+     *          implementation does not track them
+     */
+    default Optional<SessionStamps> getStamps() {
+        return Optional.empty();
+    }
+
     default Optional<Move> getLastMove() {
         if (getMoves().size() > 0) {
             return Optional.of(getMoves().get(getMoves().size() - 1));
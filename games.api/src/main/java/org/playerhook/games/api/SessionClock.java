@@ -0,0 +1,49 @@
+package org.playerhook.games.api;
+
+import com.google.common.base.Preconditions;
+
+import java.time.Instant;
+import java.util.function.Supplier;
+
+/**
+ * Time used by the transitions of the local sessions to stamp the moves and the sessions.
+ *
+ * By default the transitions read the system clock. The recorded transitions, e.g. the events of the journal, are
+ * replayed with the time fixed to the time of the original transition using {@link #at(Instant, Supplier)} so the
+ * rebuilt session is equal to the original one.
+ */
+public final class SessionClock {
+
+    private static final ThreadLocal<Instant> FIXED = new ThreadLocal<>();
+
+    private SessionClock() { }
+
+    /**
+     * Applies the transitions with the time fixed to given instant on the current thread.
+     *
+     * @param time the time of the transitions
+     * @param transitions the transitions to be applied
+     * @param <T> the result of the transitions
+     * @return the result of the transitions
+     */
+    public static <T> T at(Instant time, Supplier<T> transitions) {
+        Preconditions.checkNotNull(time, "Time cannot be null");
+        Instant previous = FIXED.get();
+        FIXED.set(time);
+        try {
+            return transitions.get();
+        } finally {
+            if (previous == null) {
+                FIXED.remove();
+            } else {
+                FIXED.set(previous);
+            }
+        }
+    }
+
+    static Instant now() {
+        Instant fixed = FIXED.get();
+        return fixed == null ? Instant.now() : fixed;
+    }
+
+}
@@ -0,0 +1,438 @@
+package org.playerhook.games.api;
+
+import com.google.common.base.Objects;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import org.playerhook.games.util.MapSerializable;
+
+import java.net.URL;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Difference between two rounds of the same session.
+ *
+ * The delta carries the round, the number of the moves, the status and the fingerprint of the base session and only
+ * the parts which changed since. The status is part of the base because suspending and resuming the session changes
+ * neither the round nor the moves. The fingerprint combines the Zobrist hash of the board, the last move, the players
+ * and the scores so the delta is never applied to a copy of the session which diverged with the same counters.
+ * Changes of the board and of the decks are not transferred as they are derived from the new moves the same way as
+ * {@link LocalSession#play(TokenPlacement)} does, only the decks which differ from the derived ones are sent.
+ *
+ * @see SessionUpdate#toMap(Session, PrivacyLevel)
+ * @see SessionReplica
+ */
+public final class SessionDelta implements MapSerializable {
+
+    private final URL url;
+    private final long baseRound;
+    private final int baseMoves;
+    private final Status baseStatus;
+    private final long baseFingerprint;
+    private final long round;
+    private final ImmutableList<Move> moves;
+    private final ImmutableList<Player> players;
+    private final Player playerOnTurn;
+    private final Status status;
+    private final ImmutableMap<String, Integer> scores;
+    private final ImmutableMap<String, Deck> decks;
+    private final Instant lastUpdated;
+
+    private SessionDelta(URL url, long baseRound, int baseMoves, Status baseStatus, long baseFingerprint, long round, ImmutableList<Move> moves,
+                         ImmutableList<Player> players, Player playerOnTurn, Status status,
+                         ImmutableMap<String, Integer> scores, ImmutableMap<String, Deck> decks, Instant lastUpdated) {
+        this.url = Preconditions.checkNotNull(url, "URL cannot be null");
+        this.baseRound = baseRound;
+        this.baseMoves = baseMoves;
+        this.baseStatus = Preconditions.checkNotNull(baseStatus, "Base status cannot be null");
+        this.baseFingerprint = baseFingerprint;
+        this.round = round;
+        this.moves = moves;
+        this.players = players;
+        this.playerOnTurn = playerOnTurn;
+        this.status = status;
+        this.scores = scores;
+        this.decks = decks;
+        this.lastUpdated = Preconditions.checkNotNull(lastUpdated, "Last updated cannot be null");
+    }
+
+    /**
+     * Computes the delta between two rounds of the same session.
+     *
+     * @param base the session known to the receiver
+     * @param updated the current session
+     * @return the delta or empty optional if the updated session cannot be expressed as a delta of the base session,
+     * for example if it is a different session or the base session is newer than the updated one
+     */
+    public static Optional<SessionDelta> between(Session base, Session updated) {
+        DefaultSession original = unwrap(base);
+        DefaultSession current = unwrap(updated);
+
+        if (original == null || current == null) {
+            return Optional.empty();
+        }
+
+        if (!original.getURL().isPresent() || !current.getURL().isPresent()
+            || !original.getURL().get().toExternalForm().equals(current.getURL().get().toExternalForm())) {
+            return Optional.empty();
+        }
+
+        if (!Objects.equal(original.getGame(), current.getGame()) || current.getRound() < original.getRound()) {
+            return Optional.empty();
+        }
+
+        List<Move> originalMoves = original.getMoveHistory();
+        List<Move> currentMoves = current.getMoveHistory();
+
+        if (currentMoves.size() < originalMoves.size()) {
+            return Optional.empty();
+        }
+
+        if (!originalMoves.isEmpty() && !Objects.equal(originalMoves.get(originalMoves.size() - 1), currentMoves.get(originalMoves.size() - 1))) {
+            return Optional.empty();
+        }
+
+        ImmutableList<Move> newMoves = ImmutableList.copyOf(currentMoves.subList(originalMoves.size(), currentMoves.size()));
+
+        if (!Objects.equal(deriveBoard(original.getBoard(), newMoves), current.getBoard())) {
+            return Optional.empty();
+        }
+
+        ImmutableList<Player> players = original.getPlayers().equals(current.getPlayers()) ? null : current.getPlayers();
+
+        Map<Player, Deck> derivedDecks = deriveDecks(original.getDecks(), current.getPlayers(), newMoves);
+        ImmutableMap.Builder<String, Deck> decks = ImmutableMap.builder();
+        for (Map.Entry<Player, Deck> deck : current.getDecks().entrySet()) {
+            if (!Objects.equal(derivedDecks.get(deck.getKey()), deck.getValue())) {
+                decks.put(deck.getKey().getUsername(), deck.getValue());
+            }
+        }
+
+        ImmutableMap.Builder<String, Integer> scores = ImmutableMap.builder();
+        for (Map.Entry<Player, Integer> score : current.getScores().entrySet()) {
+            if (!Objects.equal(original.getScores().get(score.getKey()), score.getValue())) {
+                scores.put(score.getKey().getUsername(), score.getValue());
+            }
+        }
+
+        return Optional.of(new SessionDelta(
+                current.getURL().get(),
+                original.getRound(),
+                originalMoves.size(),
+                original.getStatus(),
+                fingerprint(original),
+                current.getRound(),
+                newMoves,
+                players,
+                current.getPlayerOnTurn().orElse(null),
+                original.getStatus().equals(current.getStatus()) ? null : current.getStatus(),
+                scores.build(),
+                decks.build(),
+                current.getLastUpdated()
+        ));
+    }
+
+    /**
+     * Reconstructs the full session from the base session.
+     *
+     * @param base the session known to the receiver
+     * @return the updated session or empty optional if the delta was not computed against the given base session,
+     * in that case the full snapshot of the session is required
+     */
+    public Optional<Session> applyTo(Session base) {
+        DefaultSession original = unwrap(base);
+        if (original == null || !isApplicableTo(original)) {
+            return Optional.empty();
+        }
+
+        ImmutableList<Player> newPlayers = players == null ? original.getPlayers() : players;
+
+        Map<Player, Deck> newDecks = deriveDecks(original.getDecks(), newPlayers, moves);
+        for (Map.Entry<String, Deck> deck : decks.entrySet()) {
+            newDecks.put(findPlayer(newPlayers, deck.getKey()), deck.getValue());
+        }
+
+        Map<Player, Integer> newScores = Maps.newLinkedHashMap(original.getScores());
+        for (Map.Entry<String, Integer> score : scores.entrySet()) {
+            newScores.put(findPlayer(newPlayers, score.getKey()), score.getValue());
+        }
+
+        PersistentList<Move> newMoves = original.getMoveHistory();
+        for (Move move : moves) {
+            newMoves = newMoves.append(move);
+        }
+
+        List<SessionStamps.Component> changed = new ArrayList<>(4);
+        if (moves.stream().anyMatch(move -> !move.getRuleViolation().isPresent())) {
+            changed.add(SessionStamps.Component.BOARD);
+        }
+        if (players != null) {
+            changed.add(SessionStamps.Component.PLAYERS);
+        }
+        if (!moves.isEmpty()) {
+            changed.add(SessionStamps.Component.MOVES);
+        }
+        if (status != null) {
+            changed.add(SessionStamps.Component.STATUS);
+        }
+
+        return Optional.of(new DefaultSession(
+                round,
+                deriveBoard(original.getBoard(), moves),
+                original.getGame(),
+                status == null ? original.getStatus() : status,
+                newPlayers,
+                playerOnTurn,
+                original.getURL().orElse(null),
+                newMoves,
+                ImmutableMap.copyOf(newDecks),
+                ImmutableMap.copyOf(newScores),
+                lastUpdated,
+                original.getSessionStamps().next(changed.toArray(new SessionStamps.Component[changed.size()]))
+        ));
+    }
+
+    /**
+     * @param session any session
+     * @return <code>true</code> if the given session is already the result of applying this delta
+     */
+    boolean isAppliedTo(Session session) {
+        DefaultSession current = unwrap(session);
+        return current != null
+            && current.getRound() == round
+            && current.getMoveHistory().size() == baseMoves + moves.size()
+            && current.getMoveHistory().subList(baseMoves, baseMoves + moves.size()).equals(moves)
+            && current.getStatus() == (status == null ? baseStatus : status)
+            && current.getLastUpdated().equals(lastUpdated)
+            && current.getURL().isPresent()
+            && current.getURL().get().toExternalForm().equals(url.toExternalForm());
+    }
+
+    public URL getURL() {
+        return url;
+    }
+
+    public long getBaseRound() {
+        return baseRound;
+    }
+
+    public long getRound() {
+        return round;
+    }
+
+    public List<Move> getMoves() {
+        return moves;
+    }
+
+    @Override
+    public Map<String, Object> toMap(PrivacyLevel level) {
+        ImmutableMap.Builder<String, Object> builder = ImmutableMap.builder();
+
+        builder.put("url", url.toExternalForm());
+        builder.put("baseRound", baseRound);
+        builder.put("baseMoves", baseMoves);
+        builder.put("baseStatus", baseStatus.name());
+        builder.put("baseFingerprint", baseFingerprint);
+        builder.put("round", round);
+        builder.put("playedMoves", moves.stream().map(move -> move.toMap(level)).collect(Collectors.toList()));
+
+        if (players != null) {
+            builder.put("players", players.stream().map(player -> player.toMap(level)).collect(Collectors.toList()));
+        }
+        if (playerOnTurn != null) {
+            builder.put("playerOnTurn", playerOnTurn.toMap(level));
+        }
+        if (status != null) {
+            builder.put("status", status.name());
+        }
+        if (!scores.isEmpty()) {
+            builder.put("scores", scores);
+        }
+        if (!decks.isEmpty()) {
+            builder.put("decks", ImmutableMap.copyOf(Maps.transformValues(decks, deck -> deck.toMap(level))));
+        }
+
+        builder.put("lastUpdated", lastUpdated.toEpochMilli());
+
+        return builder.build();
+    }
+
+    public static SessionDelta load(Object delta) {
+        if (delta == null) {
+            return null;
+        }
+        if (!(delta instanceof Map)) {
+            throw new IllegalArgumentException("Cannot load session delta from " + delta);
+        }
+
+        Map<String, Object> payload = (Map<String, Object>) delta;
+
+        Object players = payload.get("players");
+
+        ImmutableMap.Builder<String, Integer> scores = ImmutableMap.builder();
+        for (Map.Entry<String, Object> score : loadMap(payload, "scores").entrySet()) {
+            scores.put(score.getKey(), Integer.valueOf(score.getValue().toString()));
+        }
+
+        ImmutableMap.Builder<String, Deck> decks = ImmutableMap.builder();
+        for (Map.Entry<String, Object> deck : loadMap(payload, "decks").entrySet()) {
+            decks.put(deck.getKey(), Deck.load(deck.getValue()));
+        }
+
+        return new SessionDelta(
+                MapSerializable.loadURL(payload, "url"),
+                MapSerializable.loadLong(payload, "baseRound"),
+                MapSerializable.loadInteger(payload, "baseMoves"),
+                Optional.ofNullable(payload.get("baseStatus")).map(Object::toString).map(Status::valueOf)
+                    .orElseThrow(() -> new IllegalArgumentException("Base status missing in " + delta)),
+                MapSerializable.loadLong(payload, "baseFingerprint"),
+                MapSerializable.loadLong(payload, "round"),
+                MapSerializable.loadList(payload.getOrDefault("playedMoves", Collections.emptyList()), Move::load),
+                players == null ? null : MapSerializable.loadList(players, Player::load),
+                Player.load(payload.get("playerOnTurn")),
+                Optional.ofNullable(payload.get("status")).map(Object::toString).map(Status::valueOf).orElse(null),
+                scores.build(),
+                decks.build(),
+                MapSerializable.loadInstant(payload, "lastUpdated")
+        );
+    }
+
+    /**
+     * Unwraps the default implementation of the session.
+     *
+     * @param session any session
+     * @return the default session backing the given session or <code>null</code> for the foreign implementations
+     */
+    static DefaultSession unwrap(Session session) {
+        if (session instanceof DefaultSession) {
+            return (DefaultSession) session;
+        }
+        if (session instanceof DefaultLocalSession) {
+            return ((DefaultLocalSession) session).getDelegate();
+        }
+        if (session instanceof DefaultObservableLocalSession) {
+            return unwrap(((DefaultObservableLocalSession) session).getDelegate());
+        }
+        if (session instanceof LazySession) {
+            return ((LazySession) session).materialize();
+        }
+        return null;
+    }
+
+    private boolean isApplicableTo(DefaultSession original) {
+        return original.getRound() == baseRound
+            && original.getMoveHistory().size() == baseMoves
+            && original.getStatus() == baseStatus
+            && original.getURL().isPresent()
+            && original.getURL().get().toExternalForm().equals(url.toExternalForm())
+            && fingerprint(original) == baseFingerprint;
+    }
+
+    /**
+     * Computes the fingerprint of the session which is the same for the sender and the receiver of the session.
+     *
+     * Only the values which survive the transfer unchanged are taken into account, the tokens are identified by their
+     * symbols, the players by their usernames and the timestamps are truncated to milliseconds.
+     *
+     * @param session the session
+     * @return the fingerprint of the session
+     */
+    static long fingerprint(DefaultSession session) {
+        long fingerprint = session.getBoard().getZobristHash();
+        for (Player player : session.getPlayers()) {
+            fingerprint = fingerprint * 31 + player.getUsername().hashCode();
+            fingerprint = fingerprint * 31 + session.getScore(player);
+        }
+        Optional<Move> lastMove = session.getLastMove();
+        if (lastMove.isPresent()) {
+            TokenPlacement placement = lastMove.get().getTokenPlacement();
+            fingerprint = fingerprint * 31 + placement.getToken().getSymbol().hashCode();
+            fingerprint = fingerprint * 31 + placement.getPlayer().getUsername().hashCode();
+            fingerprint = fingerprint * 31 + placement.getSource().map(SessionDelta::fingerprint).orElse(0L);
+            fingerprint = fingerprint * 31 + fingerprint(placement.getDestination());
+            fingerprint = fingerprint * 31 + lastMove.get().getTimestamp().toEpochMilli();
+            fingerprint = fingerprint * 31 + lastMove.get().getRuleViolation().map(RuleViolation::getCode).map(String::hashCode).orElse(0);
+        }
+        return fingerprint;
+    }
+
+    private static long fingerprint(Position position) {
+        return ((long) position.getRow() << 32) ^ position.getColumn();
+    }
+
+    private static Board deriveBoard(Board board, List<Move> moves) {
+        Board result = board;
+        for (Move move : moves) {
+            if (!move.getRuleViolation().isPresent()) {
+                result = result.place(move.getTokenPlacement());
+            }
+        }
+        return result;
+    }
+
+    private static Map<Player, Deck> deriveDecks(Map<Player, Deck> decks, List<Player> players, List<Move> moves) {
+        Map<Player, Deck> result = Maps.newLinkedHashMap(decks);
+        result.keySet().retainAll(players);
+        for (Move move : moves) {
+            TokenPlacement placement = move.getTokenPlacement();
+            if (!move.getRuleViolation().isPresent() && !placement.getSource().isPresent() && result.containsKey(placement.getPlayer())) {
+                result.put(placement.getPlayer(), result.get(placement.getPlayer()).remove(placement.getToken()));
+            }
+        }
+        return result;
+    }
+
+    private static Player findPlayer(List<Player> players, String username) {
+        return players.stream()
+            .filter(player -> player.getUsername().equals(username))
+            .findFirst()
+            .orElseThrow(() -> new IllegalArgumentException("Player not present: " + username));
+    }
+
+    private static Map<String, Object> loadMap(Map<String, Object> payload, String property) {
+        Object map = payload.get(property);
+        if (!(map instanceof Map)) {
+            return ImmutableMap.of();
+        }
+        return (Map<String, Object>) map;
+    }
+
+    @Override
+    public String toString() {
+        return "Delta of " + url + " from round " + baseRound + " to round " + round;
+    }
+
+    //CHECKSTYLE:OFF
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        SessionDelta that = (SessionDelta) o;
+        return baseRound == that.baseRound &&
+                baseMoves == that.baseMoves &&
+                baseStatus == that.baseStatus &&
+                baseFingerprint == that.baseFingerprint &&
+                round == that.round &&
+                Objects.equal(url.toExternalForm(), that.url.toExternalForm()) &&
+                Objects.equal(moves, that.moves) &&
+                Objects.equal(players, that.players) &&
+                Objects.equal(playerOnTurn, that.playerOnTurn) &&
+                status == that.status &&
+                Objects.equal(scores, that.scores) &&
+                Objects.equal(decks, that.decks) &&
+                Objects.equal(lastUpdated, that.lastUpdated);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(url.toExternalForm(), baseRound, baseMoves, baseStatus, round, moves, status, lastUpdated);
+    }
+    //CHECKSTYLE:ON
+}
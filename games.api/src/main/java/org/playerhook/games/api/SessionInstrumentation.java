@@ -0,0 +1,109 @@
+package org.playerhook.games.api;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Observes the phases of the moves played in the local sessions.
+ *
+ * The instrumentation is installed for the whole JVM using {@link #install(SessionInstrumentation)}, by default the
+ * {@link #noop()} instrumentation is installed which does not even read the clock. The callbacks are called from the
+ * threads playing the moves so the implementations must be thread safe and fast.
+ *
+ * The phases may be nested, {@link Phase#PLAY} covers the whole move and {@link Phase#KEY_VERIFICATION} is part of
+ * the {@link Phase#GENERIC_CHECKS}.
+ *
+ * @see HistogramInstrumentation
+ */
+public interface SessionInstrumentation {
+
+    /**
+     * Phases of the move.
+     */
+    enum Phase {
+        /**
+         * The whole move from the placement to the new session.
+         */
+        PLAY,
+
+        /**
+         * Checks common to all the games such as whether the player is on turn.
+         */
+        GENERIC_CHECKS,
+
+        /**
+         * Verification of the player key of the signed sessions.
+         */
+        KEY_VERIFICATION,
+
+        /**
+         * Evaluation of the placement by the rules of the game.
+         */
+        RULES_EVALUATION,
+
+        /**
+         * Placing the token on the board.
+         */
+        BOARD_PLACEMENT,
+
+        /**
+         * Building the new session with the updated scores, decks and moves.
+         */
+        RECONSTRUCTION
+    }
+
+    /**
+     * Called when the phase starts.
+     *
+     * @param phase the phase started
+     * @return the token passed to {@link #stop(Phase, long)}, usually the current {@link System#nanoTime()}
+     */
+    default long start(Phase phase) {
+        return 0;
+    }
+
+    /**
+     * Called when the phase stops.
+     *
+     * @param phase the phase stopped
+     * @param started the token returned from {@link #start(Phase)}
+     */
+    default void stop(Phase phase, long started) {
+        // nothing to do by default
+    }
+
+    /**
+     * Called when the placement has been rejected.
+     *
+     * @param session the session before the placement
+     * @param placement the rejected placement
+     * @param violation the rule violated
+     */
+    default void ruleViolated(Session session, TokenPlacement placement, RuleViolation violation) {
+        // nothing to do by default
+    }
+
+    /**
+     * @return the instrumentation which ignores all the callbacks
+     */
+    static SessionInstrumentation noop() {
+        return DefaultLocalSession.NOOP_INSTRUMENTATION;
+    }
+
+    /**
+     * @return the instrumentation currently installed
+     */
+    static SessionInstrumentation installed() {
+        return DefaultLocalSession.getInstrumentation();
+    }
+
+    /**
+     * Installs the instrumentation for all the local sessions in the JVM.
+     *
+     * @param instrumentation the instrumentation to be installed, use {@link #noop()} to disable the instrumentation
+     * @return the instrumentation previously installed
+     */
+    static SessionInstrumentation install(SessionInstrumentation instrumentation) {
+        return DefaultLocalSession.setInstrumentation(Preconditions.checkNotNull(instrumentation, "Instrumentation cannot be null"));
+    }
+
+}
@@ -0,0 +1,209 @@
+package org.playerhook.games.api;
+
+import com.google.common.base.Preconditions;
+
+import java.net.URL;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
+/**
+ * Holds the current state of the local sessions by their URL.
+ *
+ * Each session is kept in its own atomic reference so reading the current state never blocks and the transitions of
+ * different sessions never contend with each other. The transitions are applied using compare-and-swap and retried
+ * if other thread has changed the session meanwhile, so the transition functions must not have side effects. The
+ * transitions of the registered {@link ObservableLocalSession} are applied to the wrapped session and the update is
+ * published only once the new state has been stored, in the order in which the states have been stored.
+ */
+public final class SessionRegistry {
+
+    private final ConcurrentMap<String, AtomicReference<LocalSession>> sessions;
+
+    private SessionRegistry(ConcurrentMap<String, AtomicReference<LocalSession>> sessions) {
+        this.sessions = sessions;
+    }
+
+    public static SessionRegistry create() {
+        return create(16);
+    }
+
+    /**
+     * @param expectedSessions expected number of the live sessions used to size the registry upfront
+     * @return new empty registry
+     */
+    public static SessionRegistry create(int expectedSessions) {
+        return new SessionRegistry(new ConcurrentHashMap<>(expectedSessions, 0.75f, Runtime.getRuntime().availableProcessors()));
+    }
+
+    /**
+     * Creates new session. If the session with given URL already exists, returns the existing one if not yet finished
+     * otherwise replaces it with new one.
+     *
+     * @param game game for this session
+     * @param url url uniquely identifying the session
+     * @return existing or new session
+     * @throws IllegalArgumentException if the session already exists with different game
+     */
+    public LocalSession create(Game game, URL url) {
+        AtomicReference<LocalSession> reference = sessions.computeIfAbsent(key(url), key -> new AtomicReference<>());
+        while (true) {
+            LocalSession current = reference.get();
+            if (current != null && !current.isFinished()) {
+                if (!current.getGame().equals(game)) {
+                    throw new IllegalArgumentException("Session " + url + " already exists with different game: " + current.getGame());
+                }
+                return current;
+            }
+            LocalSession created = LocalSession.create(game, url);
+            if (reference.compareAndSet(current, created)) {
+                return created;
+            }
+        }
+    }
+
+    /**
+     * Loads session based on given payload.
+     *
+     * If the payload contains URL the loaded session replaces the current state of the session with the same URL.
+     *
+     * @param payload payload representing the session
+     * @return the loaded session
+     */
+    public LocalSession load(Object payload) {
+        LocalSession loaded = LocalSession.load(payload);
+        if (loaded.getURL().isPresent()) {
+            return register(loaded);
+        }
+        return loaded;
+    }
+
+    /**
+     * Registers the session replacing the current state of the session with the same URL.
+     *
+     * @param session the session with URL
+     * @return the registered session
+     */
+    public LocalSession register(LocalSession session) {
+        URL url = session.getURL().orElseThrow(() -> new IllegalArgumentException("Only sessions with URL can be registered: " + session));
+        sessions.computeIfAbsent(key(url), key -> new AtomicReference<>()).set(session);
+        return session;
+    }
+
+    /**
+     * Atomically replaces the current state of the session if it is still the expected one.
+     *
+     * @param url url of the session
+     * @param expected the expected current state or <code>null</code> if the session is expected not to exist
+     * @param replacement the new state or <code>null</code> to clear the session
+     * @return <code>true</code> if the state has been replaced
+     */
+    public boolean replace(URL url, LocalSession expected, LocalSession replacement) {
+        return sessions.computeIfAbsent(key(url), key -> new AtomicReference<>()).compareAndSet(expected, replacement);
+    }
+
+    /**
+     * @param url url of the session
+     * @return the current state of the session
+     */
+    public Optional<LocalSession> get(URL url) {
+        AtomicReference<LocalSession> reference = sessions.get(key(url));
+        if (reference == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(reference.get());
+    }
+
+    public LocalSession join(URL url, Player player) {
+        return update(url, session -> session.join(player));
+    }
+
+    public LocalSession start(URL url) {
+        return update(url, LocalSession::start);
+    }
+
+    public LocalSession play(URL url, TokenPlacement placement) {
+        return update(url, session -> session.play(placement));
+    }
+
+    public LocalSession suspend(URL url) {
+        return update(url, LocalSession::suspend);
+    }
+
+    public LocalSession resume(URL url) {
+        return update(url, LocalSession::resume);
+    }
+
+    /**
+     * Atomically applies the transition to the current state of the session.
+     *
+     * @param url url of the session
+     * @param transition function computing the next state of the session, may be called more than once
+     * @return the new state of the session
+     * @throws IllegalArgumentException if there is no such session
+     */
+    public LocalSession update(URL url, UnaryOperator<LocalSession> transition) {
+        AtomicReference<LocalSession> reference = sessions.get(key(url));
+        if (reference == null || reference.get() == null) {
+            throw new IllegalArgumentException("No session registered for " + url);
+        }
+        while (true) {
+            LocalSession current = reference.get();
+            if (current instanceof DefaultObservableLocalSession) {
+                LocalSession next = updateObservable(reference, (DefaultObservableLocalSession) current, transition);
+                if (next != null) {
+                    return next;
+                }
+                continue;
+            }
+            LocalSession next = Preconditions.checkNotNull(transition.apply(current), "Next session cannot be null");
+            if (next == current || reference.compareAndSet(current, next)) {
+                return next;
+            }
+        }
+    }
+
+    /**
+     * @return the new state of the session or <code>null</code> if other thread has changed the session meanwhile
+     */
+    private static LocalSession updateObservable(AtomicReference<LocalSession> reference, DefaultObservableLocalSession current, UnaryOperator<LocalSession> transition) {
+        LocalSession delegate = current.getDelegate();
+        LocalSession next;
+        try {
+            next = Preconditions.checkNotNull(transition.apply(delegate), "Next session cannot be null");
+        } catch (RuntimeException e) {
+            current.fail(reference, e);
+            throw e;
+        }
+        if (next instanceof DefaultObservableLocalSession) {
+            next = ((DefaultObservableLocalSession) next).getDelegate();
+        }
+        if (next == delegate) {
+            return current;
+        }
+        return current.commit(reference, next);
+    }
+
+    /**
+     * @param url url of the session
+     * @return the last state of the removed session
+     */
+    public Optional<LocalSession> remove(URL url) {
+        AtomicReference<LocalSession> reference = sessions.remove(key(url));
+        if (reference == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(reference.get());
+    }
+
+    public int size() {
+        return sessions.size();
+    }
+
+    private static String key(URL url) {
+        return Preconditions.checkNotNull(url, "URL cannot be null").toExternalForm();
+    }
+
+}
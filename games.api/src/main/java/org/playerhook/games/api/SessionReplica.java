@@ -0,0 +1,90 @@
+package org.playerhook.games.api;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.playerhook.games.util.MapSerializable;
+
+import java.net.URL;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Receiver side copy of the sessions rebuilt from the full and the delta encoded session updates.
+ *
+ * The last known session is kept for each session URL. The same delta is usually received once for each local player
+ * of the session, the delta which has already been applied to the known session resolves to the known session again.
+ * When the delta does not match the known session, e.g. some update was lost or the receiver was restarted, the known
+ * session is kept and the sender should be asked for the full snapshot.
+ */
+public final class SessionReplica {
+
+    private final Cache<String, Session> sessions;
+
+    private SessionReplica(Cache<String, Session> sessions) {
+        this.sessions = sessions;
+    }
+
+    public static SessionReplica create() {
+        return create(10000);
+    }
+
+    public static SessionReplica create(long maximumSize) {
+        return new SessionReplica(CacheBuilder.newBuilder().maximumSize(maximumSize).expireAfterAccess(1, TimeUnit.HOURS).build());
+    }
+
+    /**
+     * Accepts the update containing the full session.
+     *
+     * @param update the update with full session
+     * @return the same update
+     */
+    public SessionUpdate accept(SessionUpdate update) {
+        update.getSession().getURL().ifPresent(url -> sessions.put(url.toExternalForm(), update.getSession()));
+        return update;
+    }
+
+    /**
+     * Accepts the delta encoded update.
+     *
+     * @param delta the delta of the session
+     * @param type the type of the update
+     * @return the update with the full session or empty optional if the full snapshot of the session is required
+     */
+    public Optional<SessionUpdate> accept(SessionDelta delta, SessionUpdateType type) {
+        Session[] updated = new Session[1];
+        sessions.asMap().computeIfPresent(delta.getURL().toExternalForm(), (url, known) -> {
+            if (delta.isAppliedTo(known)) {
+                updated[0] = known;
+                return known;
+            }
+            updated[0] = delta.applyTo(known).orElse(null);
+            return updated[0] == null ? known : updated[0];
+        });
+        return Optional.ofNullable(updated[0]).map(session -> SessionUpdate.of(session, type));
+    }
+
+    /**
+     * Accepts either full or delta encoded update.
+     *
+     * @param payload the map representation of the update
+     * @return the update with the full session or empty optional if the full snapshot of the session is required
+     * @see SessionUpdate#toMap(Session, MapSerializable.PrivacyLevel)
+     */
+    public Optional<SessionUpdate> accept(Object payload) {
+        if (payload instanceof Map && ((Map) payload).containsKey("delta")) {
+            Map<String, Object> map = (Map<String, Object>) payload;
+            return accept(SessionDelta.load(map.get("delta")), SessionUpdateType.load(MapSerializable.loadString(map, "type")));
+        }
+        return Optional.ofNullable(SessionUpdate.materialize(payload)).map(this::accept);
+    }
+
+    public Optional<Session> get(URL url) {
+        return Optional.ofNullable(sessions.getIfPresent(url.toExternalForm()));
+    }
+
+    public void forget(URL url) {
+        sessions.invalidate(url.toExternalForm());
+    }
+
+}
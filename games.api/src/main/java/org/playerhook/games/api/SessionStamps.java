@@ -0,0 +1,108 @@
+package org.playerhook.games.api;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Version of the session and the change stamps of its components.
+ *
+ * Every change of the session assigns new version and the stamps of the components which have changed are set to
+ * that version. The versions are taken from the single counter shared by all the sessions in the JVM, so they are
+ * increasing within the session and two sessions never share the version unless one is just the other one loaded
+ * into different wrapper. Sessions with the same version are therefore equal and the components with the same stamps
+ * are the same.
+ *
+ * The sessions created from the same original session belong to the same lineage. The stamps can be only compared
+ * within the lineage, the sessions deserialized from the payloads start new lineage as the stamps are not part of
+ * the serialized form.
+ */
+public final class SessionStamps {
+
+    /**
+     * Components of the session which are stamped separately.
+     */
+    enum Component {
+        BOARD, PLAYERS, MOVES, STATUS
+    }
+
+    private static final AtomicLong VERSIONS = new AtomicLong();
+
+    private final long lineage;
+    private final long version;
+    private final long board;
+    private final long players;
+    private final long moves;
+    private final long status;
+
+    private SessionStamps(long lineage, long version, long board, long players, long moves, long status) {
+        this.lineage = lineage;
+        this.version = version;
+        this.board = board;
+        this.players = players;
+        this.moves = moves;
+        this.status = status;
+    }
+
+    /**
+     * @return stamps of the session starting new lineage
+     */
+    static SessionStamps create() {
+        long version = VERSIONS.incrementAndGet();
+        return new SessionStamps(version, version, version, version, version, version);
+    }
+
+    /**
+     * @param changed the components which have changed
+     * @return the stamps of the next version of the session
+     */
+    SessionStamps next(Component... changed) {
+        long next = VERSIONS.incrementAndGet();
+        long nextBoard = board;
+        long nextPlayers = players;
+        long nextMoves = moves;
+        long nextStatus = status;
+        for (Component component : changed) {
+            switch (component) {
+                case BOARD: nextBoard = next; break;
+                case PLAYERS: nextPlayers = next; break;
+                case MOVES: nextMoves = next; break;
+                case STATUS: nextStatus = next; break;
+                default: throw new IllegalArgumentException("Unknown component " + component);
+            }
+        }
+        return new SessionStamps(lineage, next, nextBoard, nextPlayers, nextMoves, nextStatus);
+    }
+
+    /**
+     * @param other stamps of another session
+     * @return <code>true</code> if both sessions were created from the same original session so the stamps can be
+     *          compared
+     */
+    public boolean isComparableTo(SessionStamps other) {
+        return lineage == other.lineage;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public long getBoard() {
+        return board;
+    }
+
+    public long getPlayers() {
+        return players;
+    }
+
+    public long getMoves() {
+        return moves;
+    }
+
+    public long getStatus() {
+        return status;
+    }
+
+    @Override
+    public String toString() {
+        return "Version " + version + " (board " + board + ", players " + players + ", moves " + moves + ", status " + status + ")";
+    }
+}
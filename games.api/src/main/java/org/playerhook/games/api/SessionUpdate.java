@@ -2,11 +2,14 @@ package org.playerhook.games.api;
 
 import com.google.common.base.Objects;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import org.playerhook.games.util.MapSerializable;
 
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 public final class SessionUpdate implements MapSerializable {
 
@@ -17,17 +20,72 @@ public final class SessionUpdate implements MapSerializable {
         return new SessionUpdate(session, type);
     }
 
+    /**
+     * Returns the most significant change between the sessions. The change of the status is more significant than
+     * the change of the players which is more significant than the new moves.
+     *
+     * @param original the original session
+     * @param updated the updated session
+     * @return the update of the most significant change or empty optional if there is no change
+     * @see #diffAll(Session, Session)
+     */
     public static Optional<SessionUpdate> diff(Session original, Session updated) {
+        List<SessionUpdateType> changes = changes(original, updated);
+        if (changes.isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(SessionUpdate.of(updated, changes.get(0)));
+    }
+
+    /**
+     * Returns all the changes between the sessions ordered from the most significant one.
+     *
+     * If both sessions track {@link SessionStamps} of the same lineage, only the stamps are compared so the diff takes
+     * constant time. Otherwise the status, the players and the moves are compared.
+     *
+     * @param original the original session
+     * @param updated the updated session
+     * @return the updates of every changed component, empty if there is no change
+     */
+    public static List<SessionUpdate> diffAll(Session original, Session updated) {
+        return changes(original, updated).stream().map(type -> SessionUpdate.of(updated, type)).collect(Collectors.toList());
+    }
+
+    private static List<SessionUpdateType> changes(Session original, Session updated) {
+        Optional<SessionStamps> originalStamps = original.getStamps();
+        Optional<SessionStamps> updatedStamps = updated.getStamps();
+        if (originalStamps.isPresent() && updatedStamps.isPresent() && originalStamps.get().isComparableTo(updatedStamps.get())) {
+            return changes(originalStamps.get(), updatedStamps.get());
+        }
+
+        ImmutableList.Builder<SessionUpdateType> changes = ImmutableList.builder();
         if (!original.getStatus().equals(updated.getStatus())) {
-            return Optional.of(SessionUpdate.of(updated, SessionUpdateType.Default.STATUS));
+            changes.add(SessionUpdateType.Default.STATUS);
         }
         if (!original.getPlayers().equals(updated.getPlayers())) {
-            return Optional.of(SessionUpdate.of(updated, SessionUpdateType.Default.PLAYER));
+            changes.add(SessionUpdateType.Default.PLAYER);
         }
         if (!original.getMoves().equals(updated.getMoves())) {
-            return Optional.of(SessionUpdate.of(updated, SessionUpdateType.Default.MOVE));
+            changes.add(SessionUpdateType.Default.MOVE);
+        }
+        return changes.build();
+    }
+
+    private static List<SessionUpdateType> changes(SessionStamps original, SessionStamps updated) {
+        if (original.getVersion() == updated.getVersion()) {
+            return ImmutableList.of();
+        }
+        ImmutableList.Builder<SessionUpdateType> changes = ImmutableList.builder();
+        if (original.getStatus() != updated.getStatus()) {
+            changes.add(SessionUpdateType.Default.STATUS);
+        }
+        if (original.getPlayers() != updated.getPlayers()) {
+            changes.add(SessionUpdateType.Default.PLAYER);
         }
-        return Optional.empty();
+        if (original.getMoves() != updated.getMoves()) {
+            changes.add(SessionUpdateType.Default.MOVE);
+        }
+        return changes.build();
     }
 
     private SessionUpdate(Session session, SessionUpdateType type) {
@@ -48,6 +106,23 @@ public final class SessionUpdate implements MapSerializable {
         return ImmutableMap.of("session", session.toMap(level), "type", type.getCode());
     }
 
+    /**
+     * Serializes the update as a delta against the session already known to the receiver.
+     *
+     * @param base the session known to the receiver, may be <code>null</code>
+     * @param level the privacy level
+     * @return the delta encoded update or the full update if the delta cannot be computed against the base session
+     * @see SessionReplica
+     */
+    public Map<String, Object> toMap(Session base, PrivacyLevel level) {
+        if (base == null) {
+            return toMap(level);
+        }
+        return SessionDelta.between(base, session)
+            .<Map<String, Object>>map(delta -> ImmutableMap.of("delta", delta.toMap(level), "type", type.getCode()))
+            .orElseGet(() -> toMap(level));
+    }
+
     public static SessionUpdate materialize(Object payload) {
         if (payload == null) {
             return null;
@@ -56,7 +131,7 @@ public final class SessionUpdate implements MapSerializable {
             throw new IllegalArgumentException("Cannot load session update from " + payload);
         }
         Map<String, Object> map = (Map<String, Object>) payload;
-        return new SessionUpdate(DefaultSession.load(map.get("session")),
+        return new SessionUpdate(LazySession.load(map.get("session")),
             SessionUpdateType.load(MapSerializable.loadString(map, "type"))
         );
     }
@@ -0,0 +1,62 @@
+package org.playerhook.games.api;
+
+import java.util.List;
+
+/**
+ * Zobrist keys of the token placements used to hash the {@link Board}.
+ *
+ * The key of the placement is derived only from the destination, the symbol of the token and the position of the
+ * placement in the stack of the tokens at the destination. The keys are generated by SplitMix64 from the FNV-1a hash
+ * of the symbol and the coordinates, so they are the same in every JVM and the hashes can be persisted.
+ */
+final class ZobristKeys {
+
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+    private static final long FNV_OFFSET = 0xCBF29CE484222325L;
+    private static final long FNV_PRIME = 0x100000001B3L;
+
+    private ZobristKeys() { }
+
+    /**
+     * @param destination the destination of the placement
+     * @param symbol the symbol of the token
+     * @param layer the index of the placement in the stack of the tokens at the destination
+     * @return the key of the placement
+     */
+    static long key(Position destination, String symbol, int layer) {
+        long key = symbolKey(symbol);
+        key = mix(key + GOLDEN_GAMMA * destination.getRow());
+        key = mix(key + GOLDEN_GAMMA * destination.getColumn());
+        return mix(key + GOLDEN_GAMMA * layer);
+    }
+
+    /**
+     * @param placements the stack of the placements at single destination
+     * @return the combined key of all the placements of the stack
+     */
+    static long key(List<TokenPlacement> placements) {
+        long hash = 0;
+        for (int layer = 0; layer < placements.size(); layer++) {
+            TokenPlacement placement = placements.get(layer);
+            hash ^= key(placement.getDestination(), placement.getToken().getSymbol(), layer);
+        }
+        return hash;
+    }
+
+    private static long symbolKey(String symbol) {
+        // the symbols come from the clients so the keys are not cached, hashing the few characters is cheap anyway
+        long hash = FNV_OFFSET;
+        for (int i = 0; i < symbol.length(); i++) {
+            hash = (hash ^ symbol.charAt(i)) * FNV_PRIME;
+        }
+        return mix(hash);
+    }
+
+    private static long mix(long value) {
+        long z = value;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+}
@@ -0,0 +1,62 @@
+package org.playerhook.games.api
+
+import groovy.json.JsonOutput
+import org.playerhook.games.tictactoe.TicTacToeRules
+import org.playerhook.games.tictactoe.TicTacToeTokens
+import spock.lang.Specification
+
+import static org.playerhook.games.util.MapSerializable.PrivacyLevel.INTERNAL
+import static org.playerhook.games.util.MapSerializable.PrivacyLevel.PROTECTED
+
+/**
+ * Tests for the binary session snapshots.
+ */
+class BinaryCodecSpec extends Specification {
+
+    Player dartagnan = Player.create('dartagnan', Avatar.of('d'), 'D\'Artagnan', '#ff0000')
+    Player athos = Player.create('athos')
+
+    void 'signed session survives the round trip'() {
+        given:
+            LocalSession session = TicTacToeRules.matchThree(new URL('http://www.example.com/ttt'), new URL('http://www.example.com/ttt/1'))
+                .join(dartagnan)
+                .join(athos)
+                .signWith('pa$$word', KeyDerivation.Default.HMAC_SHA256)
+                .start()
+            session = session.play(session.sign(session.newPlacement(TicTacToeTokens.CROSS, dartagnan, Position.at(1, 1))))
+            session = session.play(session.sign(session.newPlacement(TicTacToeTokens.CIRCLE, athos, Position.at(1, 1))))
+            session = session.play(session.newPlacement(TicTacToeTokens.CIRCLE, athos, Position.at(0, 2)))
+            session = session.play(session.sign(session.newPlacement(TicTacToeTokens.CIRCLE, athos, Position.at(-5, 7))))
+            session = session.play(session.sign(session.newPlacement(TicTacToeTokens.CIRCLE, athos, Position.at(2, 2))))
+        when:
+            byte[] snapshot = BinaryCodec.encode(session, INTERNAL)
+            LocalSession loaded = BinaryCodec.decodeLocal(snapshot)
+        then:
+            loaded.toMap(INTERNAL) == LocalSession.load(session.toMap(INTERNAL)).toMap(INTERNAL)
+            loaded.getKey(athos) == session.getKey(athos)
+            loaded.moves.size() == 5
+            loaded.getDeck(dartagnan).playableTokens*.symbol == session.getDeck(dartagnan).playableTokens*.symbol
+            snapshot.length * 3 < JsonOutput.toJson(session.toMap(INTERNAL)).length()
+    }
+
+    void 'key is only written at internal level'() {
+        given:
+            LocalSession session = TicTacToeRules.matchThree(null, null).join(dartagnan).join(athos).signWith('pa$$word').start()
+        expect:
+            BinaryCodec.decodeLocal(BinaryCodec.encode(session, INTERNAL)).getKey(athos).present
+            !BinaryCodec.decodeLocal(BinaryCodec.encode(session, PROTECTED)).getKey(athos).present
+            BinaryCodec.decode(BinaryCodec.encode(session, PROTECTED)).toMap(PROTECTED) == session.toMap(PROTECTED)
+    }
+
+    void 'unknown version is rejected'() {
+        given:
+            byte[] snapshot = BinaryCodec.encode(TicTacToeRules.matchThree(null, null), PROTECTED)
+            snapshot[4] = 42
+        when:
+            BinaryCodec.decode(snapshot)
+        then:
+            IllegalArgumentException e = thrown(IllegalArgumentException)
+            e.message == 'Unsupported session snapshot version 42'
+    }
+
+}
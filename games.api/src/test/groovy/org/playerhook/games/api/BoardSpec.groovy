@@ -1,6 +1,7 @@
 package org.playerhook.games.api
 
 import com.google.common.collect.ImmutableList
+import org.playerhook.games.util.MapSerializable
 import spock.lang.Specification
 
 /**
@@ -42,4 +43,93 @@ class BoardSpec extends Specification {
             board.tokenPlacements.size() == 1
     }
 
+    void 'Placed tokens are shared with previous boards untouched'() {
+        given:
+            Player player = Player.create('tester')
+            TokenPlacement first = TokenPlacement.create(Token.HIDDEN, player, Position.at(2, 3))
+            TokenPlacement second = TokenPlacement.create(Token.HIDDEN, player, Position.at(9, 9))
+            Board empty = Board.square(10)
+        when:
+            Board one = empty.place(first)
+            Board two = one.place(second)
+        then:
+            !empty.getTokenPlacement(Position.at(2, 3)).present
+            one.getTokenPlacement(Position.at(2, 3)).get() == first
+            !one.getTokenPlacement(Position.at(9, 9)).present
+            two.getTokenPlacement(Position.at(9, 9)).get() == second
+            two.tokenPlacements == [first, second]
+            two == Board.square(10, [second, first])
+            two.hashCode() == Board.square(10, [second, first]).hashCode()
+    }
+
+    void 'Board survives the round trip including placements outside of the board'() {
+        given:
+            Player player = Player.create('tester')
+            TokenPlacement inside = TokenPlacement.create(Token.HIDDEN, player, Position.at(1, 1))
+            TokenPlacement stacked = TokenPlacement.create(Token.stub('x'), player, Position.at(1, 1))
+            TokenPlacement outside = TokenPlacement.create(Token.HIDDEN, player, Position.at(5, 5))
+            Board board = Board.rectangle(0, 3, 0, 2).place(inside).place(stacked).place(outside)
+        when:
+            Board loaded = Board.load(board.toMap(MapSerializable.PrivacyLevel.INTERNAL))
+        then:
+            loaded == board
+            loaded.getTokenPlacements(Position.at(1, 1)).get() == [inside, stacked]
+            loaded.getTokenPlacement(Position.at(5, 5)).get() == outside
+            !loaded.contains(Position.at(5, 5))
+            !loaded.completelyFilled
+    }
+
+    void 'Occupied and free cells are tracked'() {
+        given:
+            Player player = Player.create('tester')
+            Board board = Board.rectangle(1, 3, 10, 2)
+        when:
+            board = board
+                .place(TokenPlacement.create(Token.HIDDEN, player, Position.at(10, 1)))
+                .place(TokenPlacement.create(Token.HIDDEN, player, Position.at(10, 1)))
+                .place(TokenPlacement.create(Token.HIDDEN, player, Position.at(11, 2)))
+                .place(TokenPlacement.create(Token.HIDDEN, player, Position.at(0, 0)))
+        then:
+            board.occupiedCount == 2
+            board.freeCount == 4
+            board.freePositions == [Position.at(10, 2), Position.at(10, 3), Position.at(11, 1), Position.at(11, 3)]
+            board.freePositions[3] == Position.at(11, 3)
+            !board.completelyFilled
+    }
+
+    void 'Free positions of large board'() {
+        given:
+            Player player = Player.create('tester')
+            Board board = Board.square(20)
+        when:
+            for (int i = 0; i < 20 * 20; i += 3) {
+                board = board.place(TokenPlacement.create(Token.HIDDEN, player, Position.at(i.intdiv(20), i % 20)))
+            }
+        then:
+            board.occupiedCount == 134
+            board.freePositions.size() == 20 * 20 - 134
+            board.freePositions.every { !board.getTokenPlacement(it).present }
+            board.freePositions.toSet().size() == board.freeCount
+    }
+
+    void 'Zobrist hash is updated incrementally'() {
+        given:
+            Player player = Player.create('tester')
+            TokenPlacement cross = TokenPlacement.create(Token.stub('x'), player, Position.at(0, 0))
+            TokenPlacement circle = TokenPlacement.create(Token.stub('o'), player, Position.at(1, 2))
+            TokenPlacement stacked = TokenPlacement.create(Token.stub('x'), player, Position.at(1, 2))
+            TokenPlacement outside = TokenPlacement.create(Token.stub('x'), player, Position.at(7, 7))
+        when:
+            Board placed = Board.square(3).place(cross).place(circle).place(stacked).place(outside)
+            Board built = Board.square(3, [outside, cross, circle, stacked])
+        then:
+            placed.zobristHash == built.zobristHash
+            placed.zobristHash == Board.load(placed.toMap(MapSerializable.PrivacyLevel.INTERNAL)).zobristHash
+            placed.zobristHash == 1700957233966038311L  // pinned, the keys must not change between the JVMs
+            Board.square(3).zobristHash == 0
+            Board.square(3).place(cross).zobristHash != Board.square(3).place(cross).place(stacked.sign(null)).zobristHash
+            Board.square(3, [circle, stacked]).zobristHash != Board.square(3, [stacked, circle]).zobristHash
+            Board.square(3, [circle, stacked]) != Board.square(3, [stacked, circle])
+    }
+
 }
@@ -0,0 +1,74 @@
+package org.playerhook.games.api
+
+import spock.lang.Specification
+
+import static org.playerhook.games.util.MapSerializable.PrivacyLevel.PROTECTED
+
+/**
+ * Tests for the deck.
+ */
+class DeckSpec extends Specification {
+
+    Token x = Token.stub('x')
+    Token o = Token.stub('o')
+
+    void 'deck of same tokens'() {
+        when:
+            Deck deck = Deck.ofSame(x, 1000000)
+        then:
+            deck.playableCount == 1000000
+            deck.playableTokens.size() == 1000000
+            deck.playableTokens[999999] == x
+            deck.contains(x)
+            !deck.contains(o)
+            deck.remove(x).playableCount == 999999
+            deck.remove(o).is(deck)
+            Deck.ofSame(x, 0).playableTokens.empty
+    }
+
+    void 'order of the tokens is preserved'() {
+        when:
+            Deck deck = Deck.of(x, x, o, x, o)
+        then:
+            deck.playableTokens == [x, x, o, x, o]
+            deck.count(x) == 3
+            deck.remove(o).playableTokens == [x, x, x, o]
+            deck.remove(o) == Deck.of(x, x, x, o)
+            deck.remove(o).remove(o).remove(x).remove(x).remove(x).playableTokens.empty
+            !deck.remove(o).remove(o).contains(o)
+    }
+
+    void 'tokens are matched by symbol'() {
+        given:
+            Token enumLike = Stub(Token) { getSymbol() >> 'x' }
+        when:
+            Deck deck = Deck.ofSame(enumLike, 2)
+        then:
+            deck.contains(x)
+            deck.remove(x).playableCount == 1
+    }
+
+    void 'decoded runs are normalized'() {
+        expect:
+            Deck.ofRuns([x, x, o], [1, 2, 1] as int[], []) == Deck.of(x, x, x, o)
+            Deck.ofRuns([x, x, o], [1, 2, 1] as int[], []).playableCount == 4
+    }
+
+    void 'decoded runs must not be empty'() {
+        when:
+            Deck.ofRuns([x, o], [2, count] as int[], [])
+        then:
+            thrown(IllegalArgumentException)
+        where:
+            count << [0, -1]
+    }
+
+    void 'deck survives the round trip'() {
+        given:
+            Deck deck = Deck.of(x, o, o)
+        expect:
+            Deck.load(deck.toMap(PROTECTED)).playableTokens == deck.playableTokens
+            deck.toMap(PROTECTED) == [tokens: ['x', 'o', 'o'], secretTokens: ['x', 'o', 'o']]
+    }
+
+}
@@ -0,0 +1,41 @@
+package org.playerhook.games.api
+
+import spock.lang.Specification
+
+import java.util.concurrent.atomic.AtomicBoolean
+
+/**
+ * Tests for loading the key derivations.
+ */
+class KeyDerivationSpec extends Specification {
+
+    static final AtomicBoolean INITIALIZED = new AtomicBoolean()
+
+    void 'default derivations are loaded by their codes'() {
+        expect:
+            KeyDerivation.load(null) == KeyDerivation.Default.PBKDF2_HMAC_SHA1
+            KeyDerivation.load('HMAC_SHA256') == KeyDerivation.Default.HMAC_SHA256
+    }
+
+    void 'classes which are not key derivations are never initialized'() {
+        when:
+            KeyDerivation.load(InitializedOnLoad.name)
+        then:
+            thrown(IllegalArgumentException)
+            !INITIALIZED.get()
+    }
+
+    void 'unknown classes are rejected'() {
+        when:
+            KeyDerivation.load('org.playerhook.games.api.MissingDerivation')
+        then:
+            thrown(IllegalArgumentException)
+    }
+
+    static class InitializedOnLoad {
+        static {
+            INITIALIZED.set(true)
+        }
+    }
+
+}
@@ -0,0 +1,76 @@
+package org.playerhook.games.api
+
+import groovy.json.JsonOutput
+import groovy.json.JsonSlurper
+import org.playerhook.games.tictactoe.TicTacToeRules
+import org.playerhook.games.tictactoe.TicTacToeTokens
+import spock.lang.Specification
+
+import static org.playerhook.games.util.MapSerializable.PrivacyLevel.PROTECTED
+
+/**
+ * Tests for the lazily materialized sessions.
+ */
+class LazySessionSpec extends Specification {
+
+    Player dartagnan = Player.create('dartagnan')
+    Player athos = Player.create('athos')
+
+    LocalSession session = played()
+
+    void 'lazy session is equivalent to the eager one'() {
+        given:
+            Map<String, Object> map = transfer(session.toMap(PROTECTED))
+        when:
+            Session fromJson = JsonCodec.readSessionUpdate(JsonCodec.toJson(SessionUpdate.of(session, SessionUpdateType.Default.MOVE), PROTECTED)).session
+            Session fromMap = SessionUpdate.materialize([session: map, type: 'MOVE']).session
+        then:
+            fromJson instanceof LazySession
+            fromMap instanceof LazySession
+            fromJson.toMap(PROTECTED) == Session.load(map).toMap(PROTECTED)
+            fromMap.toMap(PROTECTED) == Session.load(map).toMap(PROTECTED)
+            fromJson.board == session.board
+            fromJson.getDeck(dartagnan).playableCount == session.getDeck(dartagnan).playableCount
+            fromJson.moves.size() == 2
+            fromJson.lastMove.get().tokenPlacement.destination == Position.at(0, 1)
+            JsonCodec.toJson(fromJson, PROTECTED) == JsonCodec.toJson(session, PROTECTED)
+    }
+
+    void 'only header is read until the rest is needed'() {
+        given:
+            Map<String, Object> map = transfer(session.toMap(PROTECTED))
+            map.board = [width: 'not a number']
+            map.playedMoves = [[broken: true]]
+            map.decks.athos = 'not a deck'
+            String json = JsonOutput.toJson([session: map, type: 'MOVE'])
+        when:
+            Session lazy = JsonCodec.readSessionUpdate(json).session
+        then:
+            lazy.status == Status.IN_PROGRESS
+            lazy.playerOnTurn.get() == dartagnan
+            lazy.players == [dartagnan, athos]
+            lazy.getScore(dartagnan) == 0
+            lazy.getDeck(dartagnan).playableCount == session.getDeck(dartagnan).playableCount
+
+        when:
+            lazy.board
+        then:
+            thrown(IllegalArgumentException)
+
+        when:
+            lazy.getDeck(athos)
+        then:
+            thrown(IllegalArgumentException)
+    }
+
+    private LocalSession played() {
+        LocalSession session = TicTacToeRules.matchThree(null, new URL('http://www.example.com/ttt/1')).join(dartagnan).join(athos).start()
+        session = session.play(session.newPlacement(TicTacToeTokens.CROSS, dartagnan, Position.at(1, 1)))
+        return session.play(session.newPlacement(TicTacToeTokens.CIRCLE, athos, Position.at(0, 1)))
+    }
+
+    private static Map<String, Object> transfer(Map<String, Object> payload) {
+        return new JsonSlurper().parseText(JsonOutput.toJson(payload)) as Map<String, Object>
+    }
+
+}
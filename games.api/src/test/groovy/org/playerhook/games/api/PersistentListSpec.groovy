@@ -0,0 +1,48 @@
+package org.playerhook.games.api
+
+import spock.lang.Specification
+import spock.lang.Unroll
+
+/**
+ * Tests for the append optimized list used for the moves.
+ */
+class PersistentListSpec extends Specification {
+
+    @Unroll
+    void 'list of #size elements behaves as plain list'() {
+        when:
+            PersistentList<Integer> list = PersistentList.empty()
+            List<Integer> expected = []
+            for (int i = 0; i < size; i++) {
+                list = list.append(i)
+                expected << i
+            }
+        then:
+            list.size() == size
+            list == expected
+            list.hashCode() == expected.hashCode()
+            (0..<size).every { list.get(it) == it }
+        where:
+            size << [0, 1, 31, 32, 33, 64, 1024, 1025, 32 * 32 * 32 + 33]
+    }
+
+    void 'previous versions are not affected by appending'() {
+        given:
+            PersistentList<String> base = PersistentList.copyOf(['a', 'b', 'c'])
+        when:
+            PersistentList<String> first = base.append('d')
+            PersistentList<String> second = base.append('e')
+        then:
+            base == ['a', 'b', 'c']
+            first == ['a', 'b', 'c', 'd']
+            second == ['a', 'b', 'c', 'e']
+    }
+
+    void 'list is immutable'() {
+        when:
+            PersistentList.copyOf(['a']).add('b')
+        then:
+            thrown(UnsupportedOperationException)
+    }
+
+}
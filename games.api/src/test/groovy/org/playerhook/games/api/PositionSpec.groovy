@@ -0,0 +1,31 @@
+package org.playerhook.games.api
+
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import static org.playerhook.games.util.MapSerializable.PrivacyLevel.PUBLIC
+
+/**
+ * Tests for the position flyweights.
+ */
+class PositionSpec extends Specification {
+
+    @Unroll
+    void 'position [#row, #column] is canonical'() {
+        expect:
+            Position.at(row, column).is(Position.at(row, column))
+            Position.at(row, column).is(Position.load(Position.at(row, column).toMap(PUBLIC)))
+            Position.at(row, column).is(Position.at(row + 1, column - 1).at(Direction.UPPER_RIGHT))
+            Position.at(row, column).row == row
+            Position.at(row, column).column == column
+            Position.at(row, column).hashCode() == Objects.hash(row, column)
+        where:
+            row                 | column
+            0                   | 0
+            -16                 | 239
+            -17                 | 240
+            100000              | -100000
+            -1                  | 1000000
+    }
+
+}
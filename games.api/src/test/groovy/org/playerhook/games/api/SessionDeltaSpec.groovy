@@ -0,0 +1,128 @@
+package org.playerhook.games.api
+
+import groovy.json.JsonOutput
+import groovy.json.JsonSlurper
+import org.playerhook.games.tictactoe.TicTacToeRules
+import org.playerhook.games.tictactoe.TicTacToeTokens
+import spock.lang.Specification
+
+import static org.playerhook.games.util.MapSerializable.PrivacyLevel.PROTECTED
+
+/**
+ * Tests for the delta encoded session updates.
+ */
+class SessionDeltaSpec extends Specification {
+
+    Player dartagnan = Player.create('dartagnan')
+    Player athos = Player.create('athos')
+
+    void 'replica rebuilds the sessions from the deltas'() {
+        given:
+            SessionReplica replica = SessionReplica.create()
+            LocalSession session = TicTacToeRules.matchThree(null, new URL('http://www.example.com/ttt/1'))
+            List<LocalSession> rounds = [session]
+            rounds << (session = session.join(dartagnan))
+            rounds << (session = session.join(athos))
+            rounds << (session = session.start())
+            rounds << (session = session.play(session.newPlacement(TicTacToeTokens.CROSS, dartagnan, Position.at(1, 1))))
+            rounds << (session = session.play(session.newPlacement(TicTacToeTokens.CROSS, dartagnan, Position.at(1, 2))))
+            rounds << (session = session.play(session.newPlacement(TicTacToeTokens.CIRCLE, athos, Position.at(1, 1))))
+            rounds << (session = session.play(session.newPlacement(TicTacToeTokens.CIRCLE, athos, Position.at(0, 0))))
+        expect:
+            replica.accept(transfer(SessionUpdate.of(rounds[0], SessionUpdateType.Default.STATUS).toMap(null, PROTECTED))).present
+            (1..<rounds.size()).every { int i ->
+                SessionUpdate update = SessionUpdate.diff(rounds[i - 1], rounds[i]).get()
+                Map<String, Object> payload = transfer(update.toMap(rounds[i - 1], PROTECTED))
+                assert payload.delta
+                assert JsonOutput.toJson(payload).length() < JsonOutput.toJson(update.toMap(PROTECTED)).length()
+                Session rebuilt = replica.accept(payload).get().session
+                assert rebuilt.toMap(PROTECTED) == transfer(rounds[i].toMap(PROTECTED))
+                true
+            }
+    }
+
+    void 'full snapshot is required when the rounds do not match'() {
+        given:
+            SessionReplica replica = SessionReplica.create()
+            LocalSession base = TicTacToeRules.matchThree(null, new URL('http://www.example.com/ttt/2')).join(dartagnan).join(athos).start()
+            LocalSession first = base.play(base.newPlacement(TicTacToeTokens.CROSS, dartagnan, Position.at(1, 1)))
+            LocalSession second = first.play(first.newPlacement(TicTacToeTokens.CIRCLE, athos, Position.at(0, 1)))
+        when:
+            replica.accept(SessionUpdate.of(base, SessionUpdateType.Default.STATUS))
+        then:
+            !replica.accept(transfer(SessionUpdate.of(second, SessionUpdateType.Default.MOVE).toMap(first, PROTECTED))).present
+            replica.get(base.URL.get()).get().moves.empty
+
+        when:
+            replica.accept(transfer(SessionUpdate.of(first, SessionUpdateType.Default.MOVE).toMap(PROTECTED)))
+        then:
+            replica.accept(transfer(SessionUpdate.of(second, SessionUpdateType.Default.MOVE).toMap(first, PROTECTED))).get().session.toMap(PROTECTED) == transfer(second.toMap(PROTECTED))
+    }
+
+    void 'full snapshot is required when the status change was missed'() {
+        given:
+            SessionReplica replica = SessionReplica.create()
+            LocalSession base = TicTacToeRules.matchThree(null, new URL('http://www.example.com/ttt/4')).join(dartagnan).join(athos).start()
+            LocalSession suspended = base.suspend()
+            LocalSession resumed = suspended.resume()
+            LocalSession first = resumed.play(resumed.newPlacement(TicTacToeTokens.CROSS, dartagnan, Position.at(1, 1)))
+        when:
+            replica.accept(SessionUpdate.of(suspended, SessionUpdateType.Default.STATUS))
+        then:
+            !replica.accept(transfer(SessionUpdate.of(first, SessionUpdateType.Default.MOVE).toMap(resumed, PROTECTED))).present
+            replica.get(base.URL.get()).get().status == Status.SUSPENDED
+        when:
+            replica.accept(transfer(SessionUpdate.of(resumed, SessionUpdateType.Default.STATUS).toMap(suspended, PROTECTED)))
+        then:
+            replica.accept(transfer(SessionUpdate.of(first, SessionUpdateType.Default.MOVE).toMap(resumed, PROTECTED))).get().session.status == Status.IN_PROGRESS
+    }
+
+    void 'full snapshot is required when the known session diverged'() {
+        given:
+            SessionReplica replica = SessionReplica.create()
+            LocalSession base = TicTacToeRules.matchThree(null, new URL('http://www.example.com/ttt/5')).join(dartagnan).join(athos).start()
+            LocalSession first = base.play(base.newPlacement(TicTacToeTokens.CROSS, dartagnan, Position.at(1, 1)))
+            LocalSession diverged = base.play(base.newPlacement(TicTacToeTokens.CROSS, dartagnan, Position.at(2, 2)))
+            LocalSession second = first.play(first.newPlacement(TicTacToeTokens.CIRCLE, athos, Position.at(0, 1)))
+            Map<String, Object> payload = transfer(SessionUpdate.of(second, SessionUpdateType.Default.MOVE).toMap(first, PROTECTED))
+        when:
+            replica.accept(transfer(SessionUpdate.of(diverged, SessionUpdateType.Default.MOVE).toMap(PROTECTED)))
+        then:
+            payload.delta
+            !replica.accept(payload).present
+        when:
+            replica.accept(transfer(SessionUpdate.of(first, SessionUpdateType.Default.MOVE).toMap(PROTECTED)))
+        then:
+            replica.accept(payload).get().session.toMap(PROTECTED) == transfer(second.toMap(PROTECTED))
+    }
+
+    void 'same delta is accepted for each local player of the session'() {
+        given:
+            SessionReplica replica = SessionReplica.create()
+            LocalSession base = TicTacToeRules.matchThree(null, new URL('http://www.example.com/ttt/3')).join(dartagnan).join(athos).start()
+            LocalSession first = base.play(base.newPlacement(TicTacToeTokens.CROSS, dartagnan, Position.at(1, 1)))
+            Map<String, Object> payload = transfer(SessionUpdate.of(first, SessionUpdateType.Default.MOVE).toMap(base, PROTECTED))
+        when:
+            replica.accept(SessionUpdate.of(base, SessionUpdateType.Default.STATUS))
+            Optional<SessionUpdate> forDartagnan = replica.accept(payload)
+            Optional<SessionUpdate> forAthos = replica.accept(payload)
+        then:
+            payload.delta
+            forDartagnan.get().session.toMap(PROTECTED) == transfer(first.toMap(PROTECTED))
+            forAthos.get().session.is(forDartagnan.get().session)
+            replica.get(base.URL.get()).get().is(forDartagnan.get().session)
+    }
+
+    void 'sessions without url are always sent in full'() {
+        given:
+            LocalSession base = TicTacToeRules.matchThree(null, null).join(dartagnan).join(athos)
+        expect:
+            !SessionDelta.between(base, base.start()).present
+            SessionUpdate.of(base.start(), SessionUpdateType.Default.STATUS).toMap(base, PROTECTED).session
+    }
+
+    private static Map<String, Object> transfer(Map<String, Object> payload) {
+        return new JsonSlurper().parseText(JsonOutput.toJson(payload)) as Map<String, Object>
+    }
+
+}
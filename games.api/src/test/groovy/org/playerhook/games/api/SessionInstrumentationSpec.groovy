@@ -0,0 +1,79 @@
+package org.playerhook.games.api
+
+import org.playerhook.games.tictactoe.TicTacToeRules
+import org.playerhook.games.tictactoe.TicTacToeTokens
+import spock.lang.Specification
+
+import static org.playerhook.games.api.SessionInstrumentation.Phase.BOARD_PLACEMENT
+import static org.playerhook.games.api.SessionInstrumentation.Phase.GENERIC_CHECKS
+import static org.playerhook.games.api.SessionInstrumentation.Phase.KEY_VERIFICATION
+import static org.playerhook.games.api.SessionInstrumentation.Phase.PLAY
+import static org.playerhook.games.api.SessionInstrumentation.Phase.RECONSTRUCTION
+import static org.playerhook.games.api.SessionInstrumentation.Phase.RULES_EVALUATION
+
+/**
+ * Tests for the session instrumentation.
+ */
+class SessionInstrumentationSpec extends Specification {
+
+    Player dartagnan = Player.create('dartagnan')
+    Player athos = Player.create('athos')
+
+    void cleanup() {
+        SessionInstrumentation.install(SessionInstrumentation.noop())
+    }
+
+    void 'phases of the moves are recorded'() {
+        given:
+            HistogramInstrumentation instrumentation = new HistogramInstrumentation()
+            LocalSession session = TicTacToeRules.matchThree(null, null).join(dartagnan).join(athos).signWith('secret').start()
+        when:
+            SessionInstrumentation previous = SessionInstrumentation.install(instrumentation)
+            session = session.play(session.newPlacement(TicTacToeTokens.CROSS, dartagnan, Position.at(1, 1)))
+            session = session.play(session.newPlacement(TicTacToeTokens.CROSS, dartagnan, Position.at(1, 2)))
+            session = session.play(session.newPlacement(TicTacToeTokens.CIRCLE, athos, Position.at(1, 1)))
+            session = session.play(session.newPlacement(TicTacToeTokens.CIRCLE, athos, Position.at(2, 2)))
+        then:
+            previous == SessionInstrumentation.noop()
+            SessionInstrumentation.installed() == instrumentation
+            instrumentation.getHistogram(PLAY).count == 4
+            instrumentation.getHistogram(GENERIC_CHECKS).count == 4
+            instrumentation.getHistogram(KEY_VERIFICATION).count == 4
+            instrumentation.getHistogram(RULES_EVALUATION).count == 2
+            instrumentation.getHistogram(BOARD_PLACEMENT).count == 2
+            instrumentation.getHistogram(RECONSTRUCTION).count == 4
+            instrumentation.violations == [NOT_YOUR_TURN: 1L, POSITION_ALREADY_TAKEN: 1L]
+            instrumentation.getHistogram(PLAY).getPercentile(99) >= instrumentation.getHistogram(PLAY).getPercentile(50)
+            instrumentation.getHistogram(PLAY).max > 0
+    }
+
+    void 'nothing is recorded once the instrumentation is removed'() {
+        given:
+            HistogramInstrumentation instrumentation = new HistogramInstrumentation()
+            LocalSession session = TicTacToeRules.matchThree(null, null).join(dartagnan).join(athos).start()
+        when:
+            SessionInstrumentation.install(instrumentation)
+            SessionInstrumentation.install(SessionInstrumentation.noop())
+            session.play(session.newPlacement(TicTacToeTokens.CROSS, dartagnan, Position.at(1, 1)))
+        then:
+            instrumentation.getHistogram(PLAY).count == 0
+    }
+
+    void 'histogram reports percentiles within the bucket precision'() {
+        given:
+            LatencyHistogram histogram = new LatencyHistogram()
+        when:
+            (1..1000).each { histogram.record(it * 1000L) }
+        then:
+            histogram.count == 1000
+            histogram.mean == 500_500d
+            Math.abs(histogram.getPercentile(50) - 500_000) <= 500_000 * 0.125
+            Math.abs(histogram.getPercentile(99) - 990_000) <= 990_000 * 0.125
+            histogram.getPercentile(100) >= 1_000_000
+            histogram.max == histogram.getPercentile(100)
+        and:
+            (0..<100_000).every { long value -> LatencyHistogram.upperBound(LatencyHistogram.bucket(value)) >= value }
+            LatencyHistogram.upperBound(LatencyHistogram.bucket(Long.MAX_VALUE)) == Long.MAX_VALUE
+    }
+
+}
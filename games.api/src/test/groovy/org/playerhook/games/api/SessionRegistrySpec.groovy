@@ -0,0 +1,119 @@
+package org.playerhook.games.api
+
+import org.playerhook.games.tictactoe.TicTacToeRules
+import org.playerhook.games.tictactoe.TicTacToeTokens
+import spock.lang.Specification
+
+import java.util.concurrent.Callable
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+
+import static org.playerhook.games.util.MapSerializable.PrivacyLevel.INTERNAL
+
+/**
+ * Tests for the session registry.
+ */
+class SessionRegistrySpec extends Specification {
+
+    Player dartagnan = Player.create('dartagnan')
+    Player athos = Player.create('athos')
+    URL url = new URL('http://www.example.com/ttt/1')
+    Game game = TicTacToeRules.matchThree(null, null).game
+
+    SessionRegistry registry = SessionRegistry.create()
+
+    void 'existing unfinished session is reused'() {
+        when:
+            LocalSession created = registry.create(game, url)
+        then:
+            registry.create(game, url).is(created)
+            registry.get(url).get().is(created)
+            registry.size() == 1
+
+        when:
+            registry.create(TicTacToeRules.matchFour(null, null).game, url)
+        then:
+            thrown(IllegalArgumentException)
+    }
+
+    void 'session transitions'() {
+        given:
+            registry.create(game, url)
+        when:
+            registry.join(url, dartagnan)
+            registry.join(url, athos)
+            registry.start(url)
+            LocalSession played = registry.play(url, registry.get(url).get().newPlacement(TicTacToeTokens.CROSS, dartagnan, Position.at(0, 0)))
+            registry.suspend(url)
+        then:
+            played.moves.size() == 1
+            registry.get(url).get().status == Status.SUSPENDED
+            registry.resume(url).status == Status.IN_PROGRESS
+
+        when:
+            LocalSession loaded = registry.load(registry.get(url).get().toMap(INTERNAL))
+        then:
+            registry.get(url).get().is(loaded)
+            registry.remove(url).get().is(loaded)
+            !registry.get(url).present
+    }
+
+    void 'concurrent transitions are not lost'() {
+        given:
+            int moves = 64
+            registry.create(game, url)
+            registry.join(url, dartagnan)
+            registry.join(url, athos)
+            registry.start(url)
+            ExecutorService executor = Executors.newFixedThreadPool(8)
+        when:
+            List<Callable<LocalSession>> plays = (0..<moves).collect { int i ->
+                { ->
+                    registry.update(url) { LocalSession session ->
+                        Player onTurn = session.playerOnTurn.orElse(dartagnan)
+                        session.play(session.newPlacement(session.getDeck(onTurn).playableTokens.find() ?: TicTacToeTokens.CROSS, onTurn, Position.at(i.intdiv(8), i % 8)))
+                    }
+                } as Callable<LocalSession>
+            }
+            executor.invokeAll(plays)*.get()
+        then:
+            registry.get(url).get().moves.size() == moves
+        cleanup:
+            executor.shutdown()
+    }
+
+    void 'observable session publishes each committed transition once'() {
+        given:
+            int moves = 64
+            ObservableLocalSession observable = LocalSession.create(game, url).join(dartagnan).join(athos).start().asObservableSession()
+            Queue<SessionUpdate> published = new ConcurrentLinkedQueue<>()
+            observable.observe().subscribe { SessionUpdate update -> published << update }
+            registry.register(observable)
+            ExecutorService executor = Executors.newFixedThreadPool(8)
+        when:
+            List<Callable<LocalSession>> plays = (0..<moves).collect { int i ->
+                { ->
+                    registry.update(url) { LocalSession session ->
+                        Player onTurn = session.playerOnTurn.orElse(dartagnan)
+                        session.play(session.newPlacement(session.getDeck(onTurn).playableTokens.find() ?: TicTacToeTokens.CROSS, onTurn, Position.at(i.intdiv(8), i % 8)))
+                    }
+                } as Callable<LocalSession>
+            }
+            executor.invokeAll(plays)*.get()
+        then:
+            registry.get(url).get() instanceof ObservableLocalSession
+            registry.get(url).get().moves.size() == moves
+            published.findAll { it.type == SessionUpdateType.Default.MOVE }*.session*.moves*.size().sort() == (1..published.count { it.type == SessionUpdateType.Default.MOVE }).toList()
+        cleanup:
+            executor.shutdown()
+    }
+
+    void 'unknown session cannot be updated'() {
+        when:
+            registry.start(url)
+        then:
+            thrown(IllegalArgumentException)
+    }
+
+}
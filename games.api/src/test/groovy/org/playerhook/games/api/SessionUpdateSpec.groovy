@@ -0,0 +1,68 @@
+package org.playerhook.games.api
+
+import org.playerhook.games.tictactoe.TicTacToeRules
+import org.playerhook.games.tictactoe.TicTacToeTokens
+import spock.lang.Specification
+
+import static org.playerhook.games.api.SessionUpdateType.Default.MOVE
+import static org.playerhook.games.api.SessionUpdateType.Default.PLAYER
+import static org.playerhook.games.api.SessionUpdateType.Default.STATUS
+import static org.playerhook.games.util.MapSerializable.PrivacyLevel.INTERNAL
+
+/**
+ * Tests for the session updates.
+ */
+class SessionUpdateSpec extends Specification {
+
+    Player dartagnan = Player.create('dartagnan')
+    Player athos = Player.create('athos')
+
+    void 'every changed component is reported'() {
+        given:
+            LocalSession created = TicTacToeRules.matchThree(null, new URL('http://www.example.com/ttt/1'))
+            LocalSession joined = created.join(dartagnan).join(athos)
+            LocalSession signed = joined.signWith('secret')
+            LocalSession started = signed.start()
+            LocalSession rejected = started.play(started.newPlacement(TicTacToeTokens.CIRCLE, athos, Position.at(0, 0)))
+            LocalSession played = play(rejected, [0, 0], [1, 0], [0, 1], [1, 1])
+            LocalSession finished = play(played, [0, 2])
+        expect:
+            SessionUpdate.diffAll(created, joined)*.type == [PLAYER]
+            SessionUpdate.diffAll(joined, signed).empty
+            SessionUpdate.diffAll(signed, started)*.type == [STATUS]
+            SessionUpdate.diffAll(started, rejected)*.type == [MOVE]
+            SessionUpdate.diffAll(played, finished)*.type == [STATUS, MOVE]
+            SessionUpdate.diff(played, finished).get().type == STATUS
+            SessionUpdate.diffAll(created, finished)*.type == [STATUS, PLAYER, MOVE]
+            SessionUpdate.diffAll(finished, finished).empty
+        and:
+            [created, joined, signed, started, rejected, played, finished]*.stamps*.get()*.version.collate(2, 1, false).every { it[0] < it[1] }
+            played.stamps.get().board != finished.stamps.get().board
+            started.stamps.get().board == rejected.stamps.get().board
+    }
+
+    void 'sessions of different lineages are compared by value'() {
+        given:
+            LocalSession session = play(TicTacToeRules.matchThree(null, new URL('http://www.example.com/ttt/2')).join(dartagnan).join(athos).start(), [2, 2])
+            LocalSession loaded = LocalSession.load(session.toMap(INTERNAL))
+            LocalSession reloaded = LocalSession.load(loaded.toMap(INTERNAL))
+            LocalSession next = play(loaded, [1, 1])
+        expect:
+            !session.stamps.get().isComparableTo(loaded.stamps.get())
+            !loaded.stamps.get().isComparableTo(reloaded.stamps.get())
+            reloaded == loaded
+            SessionUpdate.diffAll(reloaded, loaded).empty
+            SessionUpdate.diffAll(reloaded, next)*.type == [MOVE]
+            SessionUpdate.diffAll(loaded, next)*.type == [MOVE]
+    }
+
+    private LocalSession play(LocalSession session, List<Integer>... positions) {
+        LocalSession current = session
+        for (List<Integer> position : positions) {
+            Player onTurn = current.playerOnTurn.get()
+            current = current.play(current.newPlacement(onTurn == dartagnan ? TicTacToeTokens.CROSS : TicTacToeTokens.CIRCLE, onTurn, Position.at(position[0], position[1])))
+        }
+        return current
+    }
+
+}
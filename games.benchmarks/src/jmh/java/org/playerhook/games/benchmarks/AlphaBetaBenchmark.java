@@ -0,0 +1,83 @@
+package org.playerhook.games.benchmarks;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.playerhook.games.api.LocalSession;
+import org.playerhook.games.api.Player;
+import org.playerhook.games.tictactoe.AlphaBetaSearch;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures fixed depth {@link AlphaBetaSearch} of the midgame positions with empty transposition table.
+ *
+ * The nodes, table probes and table hits are reported as auxiliary counters, so nodes per second and the table hit
+ * rate may be read from the results next to the time of the search.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class AlphaBetaBenchmark {
+
+    @Param({"3", "4", "5"})
+    private int toWin;
+
+    @Param({"4"})
+    private int depth;
+
+    @Param({"16"})
+    private int tableBits;
+
+    private LocalSession session;
+    private Player onTurn;
+    private AlphaBetaSearch search;
+
+    /**
+     * Statistics of the searches summed over the iteration.
+     */
+    @AuxCounters
+    @State(Scope.Thread)
+    public static class Statistics {
+        public long nodes;
+        public long tableProbes;
+        public long tableHits;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            nodes = 0;
+            tableProbes = 0;
+            tableHits = 0;
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        LocalSession started = Games.start(toWin);
+        int cells = started.getBoard().getWidth() * started.getBoard().getHeight();
+        session = Games.playUnfinished(started, Math.min(cells / 4, 12));
+        onTurn = session.getPlayerOnTurn().get();
+    }
+
+    @Setup(Level.Invocation)
+    public void newSearch() {
+        search = AlphaBetaSearch.create(tableBits);
+    }
+
+    @Benchmark
+    public AlphaBetaSearch.Result search(Statistics statistics) {
+        AlphaBetaSearch.Result result = search.search(session, onTurn, Duration.ofMinutes(1), depth);
+        statistics.nodes += result.getNodes();
+        statistics.tableProbes += result.getTableProbes();
+        statistics.tableHits += result.getTableHits();
+        return result;
+    }
+}
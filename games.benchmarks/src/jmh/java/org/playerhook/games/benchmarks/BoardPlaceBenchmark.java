@@ -0,0 +1,82 @@
+package org.playerhook.games.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.playerhook.games.api.Board;
+import org.playerhook.games.api.LocalSession;
+import org.playerhook.games.api.Position;
+import org.playerhook.games.api.TokenPlacement;
+import org.playerhook.games.tictactoe.TicTacToeTokens;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link Board#place(TokenPlacement)} on empty and half filled boards of various sizes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class BoardPlaceBenchmark {
+
+    @Param({"3", "9", "16", "64"})
+    private int size;
+
+    private Board empty;
+    private Board halfFilled;
+    private TokenPlacement[] placements;
+    private TokenPlacement next;
+
+    @Setup
+    public void setUp() {
+        LocalSession session = Games.start(3);
+
+        List<Position> positions = new ArrayList<>();
+        for (int row = 0; row < size; row++) {
+            for (int column = 0; column < size; column++) {
+                positions.add(Position.at(row, column));
+            }
+        }
+        Collections.shuffle(positions, new Random(42));
+
+        placements = new TokenPlacement[positions.size()];
+        for (int i = 0; i < placements.length; i++) {
+            if (i % 2 == 0) {
+                placements[i] = session.newPlacement(TicTacToeTokens.CROSS, Games.DARTAGNAN, positions.get(i));
+            } else {
+                placements[i] = session.newPlacement(TicTacToeTokens.CIRCLE, Games.ATHOS, positions.get(i));
+            }
+        }
+
+        empty = Board.square(size);
+        halfFilled = empty;
+        for (int i = 0; i < placements.length / 2; i++) {
+            halfFilled = halfFilled.place(placements[i]);
+        }
+        next = placements[placements.length / 2];
+    }
+
+    @Benchmark
+    public Board placeOnHalfFilled() {
+        return halfFilled.place(next);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Board fillBoard() {
+        Board board = empty;
+        for (TokenPlacement placement : placements) {
+            board = board.place(placement);
+        }
+        return board;
+    }
+}
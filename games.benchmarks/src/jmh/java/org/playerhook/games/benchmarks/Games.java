@@ -0,0 +1,99 @@
+package org.playerhook.games.benchmarks;
+
+import org.playerhook.games.api.KeyDerivation;
+import org.playerhook.games.api.LocalSession;
+import org.playerhook.games.api.Player;
+import org.playerhook.games.api.Position;
+import org.playerhook.games.api.Token;
+import org.playerhook.games.tictactoe.TicTacToeRules;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Deterministic games shared by the benchmarks.
+ */
+final class Games {
+
+    static final Player DARTAGNAN = Player.create("dartagnan");
+    static final Player ATHOS = Player.create("athos");
+
+    private Games() { }
+
+    static LocalSession newSession(int toWin) {
+        URL gameUrl = url("http://www.example.com/ttt");
+        URL sessionUrl = url("http://www.example.com/ttt/" + toWin);
+        switch (toWin) {
+            case 3: return TicTacToeRules.matchThree(gameUrl, sessionUrl);
+            case 4: return TicTacToeRules.matchFour(gameUrl, sessionUrl);
+            case 5: return TicTacToeRules.matchFive(gameUrl, sessionUrl);
+            case 6: return TicTacToeRules.matchSix(gameUrl, sessionUrl);
+            default: throw new IllegalArgumentException("Unsupported tic tac toe variant: " + toWin);
+        }
+    }
+
+    /**
+     * @param toWin the tic tac toe variant
+     * @param privateKey private key to sign the session with or <code>null</code> for unsigned session
+     * @param derivation the key derivation used for signed session
+     * @return new started session
+     */
+    static LocalSession start(int toWin, String privateKey, KeyDerivation derivation) {
+        LocalSession session = newSession(toWin).join(DARTAGNAN).join(ATHOS);
+        if (privateKey != null) {
+            session = session.signWith(privateKey, derivation);
+        }
+        return session.start();
+    }
+
+    static LocalSession start(int toWin) {
+        return start(toWin, null, null);
+    }
+
+    /**
+     * Plays pseudo random moves to the free positions until the game is finished or number of moves is reached.
+     *
+     * @param session the session to play
+     * @param moves maximum number of the moves to be played
+     * @param seed seed for the choice of the positions
+     * @return the session after the moves
+     */
+    static LocalSession play(LocalSession session, int moves, long seed) {
+        Random random = new Random(seed);
+        LocalSession current = session;
+        for (int i = 0; i < moves && !current.isFinished(); i++) {
+            current = playRandom(current, random);
+        }
+        return current;
+    }
+
+    static LocalSession playRandom(LocalSession session, Random random) {
+        Player onTurn = session.getPlayerOnTurn().get();
+        List<Position> free = session.getBoard().getFreePositions();
+        Token token = session.getDeck(onTurn).getPlayableTokens().get(0);
+        return session.play(session.newPlacement(token, onTurn, free.get(random.nextInt(free.size()))));
+    }
+
+    /**
+     * Plays the longest game not finished after given number of moves, trying the seeds one by one.
+     */
+    static LocalSession playUnfinished(LocalSession session, int moves) {
+        for (long seed = 0; seed < 1000; seed++) {
+            LocalSession played = play(session, moves, seed);
+            if (!played.isFinished()) {
+                return played;
+            }
+        }
+        throw new IllegalStateException("Cannot find game unfinished after " + moves + " moves");
+    }
+
+    static URL url(String url) {
+        try {
+            return new URL(url);
+        } catch (MalformedURLException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package org.playerhook.games.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.playerhook.games.api.LocalSession;
+import org.playerhook.games.api.Player;
+import org.playerhook.games.api.Rules;
+import org.playerhook.games.api.TokenPlacement;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link org.playerhook.games.tictactoe.TicTacToeRules#evaluate} for every board size on half played games.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RulesEvaluateBenchmark {
+
+    @Param({"3", "4", "5", "6"})
+    private int toWin;
+
+    private LocalSession session;
+    private Rules rules;
+    private TokenPlacement placement;
+
+    @Setup
+    public void setUp() {
+        LocalSession started = Games.start(toWin);
+        int cells = started.getBoard().getWidth() * started.getBoard().getHeight();
+        session = Games.playUnfinished(started, cells / 2);
+        rules = session.getGame().getRules();
+
+        Player onTurn = session.getPlayerOnTurn().get();
+        placement = session.newPlacement(
+                session.getDeck(onTurn).getPlayableTokens().get(0),
+                onTurn,
+                session.getBoard().getFreePositions().get(0)
+        );
+    }
+
+    @Benchmark
+    public Rules.EvaluationResult evaluate() {
+        return rules.evaluate(session, placement);
+    }
+}
@@ -0,0 +1,71 @@
+package org.playerhook.games.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.playerhook.games.api.HistogramInstrumentation;
+import org.playerhook.games.api.KeyDerivation;
+import org.playerhook.games.api.LocalSession;
+import org.playerhook.games.api.SessionInstrumentation;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Plays whole games through {@link LocalSession#play(org.playerhook.games.api.TokenPlacement)}.
+ *
+ * Signed sessions get new private key for every invocation so the key derivation is measured rather than the key
+ * cache. The overhead of the {@link SessionInstrumentation} can be measured by running with
+ * <code>-p instrumentation=noop,histogram</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SessionPlayBenchmark {
+
+    @Param({"3", "4", "5", "6"})
+    private int toWin;
+
+    @Param({"10", "40"})
+    private int gameLength;
+
+    @Param({"NONE", "PBKDF2_HMAC_SHA1", "HMAC_SHA256"})
+    private String signature;
+
+    @Param({"noop"})
+    private String instrumentation;
+
+    private long keys;
+
+    private LocalSession started;
+
+    @Setup
+    public void installInstrumentation() {
+        SessionInstrumentation.install("histogram".equals(instrumentation) ? new HistogramInstrumentation() : SessionInstrumentation.noop());
+    }
+
+    @TearDown
+    public void removeInstrumentation() {
+        SessionInstrumentation.install(SessionInstrumentation.noop());
+    }
+
+    @Setup(Level.Invocation)
+    public void setUp() {
+        if ("NONE".equals(signature)) {
+            started = Games.start(toWin);
+        } else {
+            started = Games.start(toWin, "secret-" + keys++, KeyDerivation.Default.valueOf(signature));
+        }
+    }
+
+    @Benchmark
+    public LocalSession playGame() {
+        return Games.play(started, gameLength, 42);
+    }
+}
@@ -0,0 +1,61 @@
+package org.playerhook.games.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.playerhook.games.api.LocalSession;
+import org.playerhook.games.api.SessionRegistry;
+import org.playerhook.games.api.Status;
+
+import java.net.URL;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures reads and transitions of the registered sessions from all the available cores.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Threads(Threads.MAX)
+public class SessionRegistryBenchmark {
+
+    @Param({"1000", "200000"})
+    private int sessions;
+
+    private SessionRegistry registry;
+    private URL[] urls;
+
+    @Setup
+    public void setUp() {
+        LocalSession template = Games.newSession(3);
+        registry = SessionRegistry.create(sessions);
+        urls = new URL[sessions];
+        for (int i = 0; i < sessions; i++) {
+            urls[i] = Games.url("http://www.example.com/ttt/3/" + i);
+            registry.create(template.getGame(), urls[i]);
+            registry.join(urls[i], Games.DARTAGNAN);
+            registry.join(urls[i], Games.ATHOS);
+            registry.start(urls[i]);
+        }
+    }
+
+    @Benchmark
+    public Optional<LocalSession> get() {
+        return registry.get(urls[ThreadLocalRandom.current().nextInt(sessions)]);
+    }
+
+    @Benchmark
+    public LocalSession toggleSuspended() {
+        return registry.update(urls[ThreadLocalRandom.current().nextInt(sessions)], session ->
+            Status.IN_PROGRESS.equals(session.getStatus()) ? session.suspend() : session.resume()
+        );
+    }
+}
@@ -0,0 +1,54 @@
+package org.playerhook.games.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.playerhook.games.api.LocalSession;
+import org.playerhook.games.api.Session;
+import org.playerhook.games.util.MapSerializable;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the map serialization of the sessions of various lengths.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SessionSerializationBenchmark {
+
+    @Param({"10", "40"})
+    private int gameLength;
+
+    private LocalSession session;
+    private Map<String, Object> internal;
+    private Map<String, Object> protectedMap;
+
+    @Setup
+    public void setUp() {
+        session = Games.playUnfinished(Games.start(6), gameLength);
+        internal = session.toMap(MapSerializable.PrivacyLevel.INTERNAL);
+        protectedMap = session.toMap(MapSerializable.PrivacyLevel.PROTECTED);
+    }
+
+    @Benchmark
+    public Map<String, Object> toMap() {
+        return session.toMap(MapSerializable.PrivacyLevel.PROTECTED);
+    }
+
+    @Benchmark
+    public Session load() {
+        return Session.load(protectedMap);
+    }
+
+    @Benchmark
+    public LocalSession loadLocal() {
+        return LocalSession.load(internal);
+    }
+}
@@ -0,0 +1,85 @@
+package org.playerhook.games.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.playerhook.games.api.BinaryCodec;
+import org.playerhook.games.api.JsonCodec;
+import org.playerhook.games.api.KeyDerivation;
+import org.playerhook.games.api.LocalSession;
+import org.playerhook.games.util.MapSerializable;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the binary snapshots of the signed sessions with the map and JSON representation.
+ *
+ * The sizes of the snapshots are printed when the trial ends.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SessionSnapshotBenchmark {
+
+    @Param({"10", "40"})
+    private int gameLength;
+
+    private LocalSession session;
+    private Map<String, Object> map;
+    private String json;
+    private byte[] binary;
+
+    @Setup
+    public void setUp() {
+        session = Games.playUnfinished(Games.start(6, "pa$$word", KeyDerivation.Default.HMAC_SHA256), gameLength);
+        map = session.toMap(MapSerializable.PrivacyLevel.INTERNAL);
+        json = JsonCodec.toJson(session, MapSerializable.PrivacyLevel.INTERNAL);
+        binary = BinaryCodec.encode(session, MapSerializable.PrivacyLevel.INTERNAL);
+    }
+
+    @TearDown(Level.Trial)
+    public void printSizes() {
+        System.out.println();
+        System.out.println("Snapshot of " + session.getMoves().size() + " moves: binary " + binary.length
+            + " bytes, json " + json.getBytes(StandardCharsets.UTF_8).length + " bytes");
+    }
+
+    @Benchmark
+    public byte[] encodeBinary() {
+        return BinaryCodec.encode(session, MapSerializable.PrivacyLevel.INTERNAL);
+    }
+
+    @Benchmark
+    public LocalSession decodeBinary() {
+        return BinaryCodec.decodeLocal(binary);
+    }
+
+    @Benchmark
+    public Map<String, Object> encodeMap() {
+        return session.toMap(MapSerializable.PrivacyLevel.INTERNAL);
+    }
+
+    @Benchmark
+    public LocalSession decodeMap() {
+        return LocalSession.load(map);
+    }
+
+    @Benchmark
+    public String encodeJson() {
+        return JsonCodec.toJson(session, MapSerializable.PrivacyLevel.INTERNAL);
+    }
+
+    @Benchmark
+    public LocalSession decodeJson() {
+        return JsonCodec.readLocalSession(json);
+    }
+}
@@ -0,0 +1,42 @@
+package org.playerhook.games.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.playerhook.games.api.LocalSession;
+import org.playerhook.games.api.SessionUpdate;
+
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link SessionUpdate#diff} between two consecutive sessions of various lengths.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SessionUpdateDiffBenchmark {
+
+    @Param({"10", "40"})
+    private int gameLength;
+
+    private LocalSession original;
+    private LocalSession updated;
+
+    @Setup
+    public void setUp() {
+        original = Games.playUnfinished(Games.start(6), gameLength);
+        updated = Games.playRandom(original, new Random(42));
+    }
+
+    @Benchmark
+    public Optional<SessionUpdate> diff() {
+        return SessionUpdate.diff(original, updated);
+    }
+}
@@ -0,0 +1,345 @@
+package org.playerhook.games.persistence;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Append-only log of the session events stored in the memory-mapped segment files.
+ *
+ * The events are appended to the current segment under short lock which only assigns the sequence number and copies
+ * the record into the mapped memory. The returned future is completed once the record is forced to the storage. The
+ * forcing is done by single background thread which forces all the records appended since the last commit at once,
+ * so the concurrent appends share the cost of the single sync (group commit). The commit delay trades the latency of
+ * the single append for the size of the groups. The log tracks the highest sequence number known to be durable, which
+ * only advances once the forcing has returned.
+ *
+ * When the current segment is full new segment named after the sequence number of its first event is created. The
+ * records torn by the crash are dropped when the log is opened again.
+ */
+public final class EventLog implements Closeable {
+
+    public static final int DEFAULT_SEGMENT_SIZE = 16 * 1024 * 1024;
+
+    private static final long DEFAULT_COMMIT_DELAY_MICROS = 500;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final long commitDelayMicros;
+    private final List<Segment> segments;
+    private final ScheduledExecutorService committer;
+    private final Queue<PendingAppend> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean commitScheduled = new AtomicBoolean();
+    private final AtomicLong durableSequence;
+
+    private final Object appendLock = new Object();
+    private Segment current;
+    private long nextSequence;
+    private boolean closed;
+
+    private EventLog(Path directory, int segmentSize, long commitDelayMicros, List<Segment> segments) throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.commitDelayMicros = commitDelayMicros;
+        this.segments = new CopyOnWriteArrayList<>(segments);
+        this.committer = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                .setDaemon(true)
+                .setNameFormat("event-log-committer-%d")
+                .build());
+
+        if (this.segments.isEmpty()) {
+            this.segments.add(Segment.create(directory, 0, segmentSize));
+        }
+
+        this.current = this.segments.get(this.segments.size() - 1);
+        this.nextSequence = current.getLastSequence() + 1;
+        this.durableSequence = new AtomicLong(nextSequence - 1);
+    }
+
+    public static EventLog open(Path directory) throws IOException {
+        return open(directory, DEFAULT_SEGMENT_SIZE, DEFAULT_COMMIT_DELAY_MICROS, TimeUnit.MICROSECONDS);
+    }
+
+    /**
+     * Opens the log stored in given directory, creating new one if the directory is empty.
+     *
+     * @param directory directory containing the segment files
+     * @param segmentSize the size of the newly created segments in bytes
+     * @param commitDelay how long to wait for other appends before forcing the records to the storage
+     * @param unit the unit of the commit delay
+     * @return the log ready for appending new events
+     * @throws IOException if the segments cannot be opened
+     */
+    public static EventLog open(Path directory, int segmentSize, long commitDelay, TimeUnit unit) throws IOException {
+        Preconditions.checkArgument(segmentSize > 0, "Segment size must be positive");
+        Preconditions.checkArgument(commitDelay >= 0, "Commit delay cannot be negative");
+
+        Files.createDirectories(directory);
+
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path file : stream) {
+                if (Segment.isSegment(file)) {
+                    files.add(file);
+                }
+            }
+        }
+        files.sort(null);
+
+        List<Segment> segments = new ArrayList<>(files.size());
+        for (Path file : files) {
+            segments.add(Segment.open(file, segmentSize));
+        }
+
+        return new EventLog(directory, segmentSize, unit.toMicros(commitDelay), segments);
+    }
+
+    /**
+     * Appends the event to the log.
+     *
+     * @param event the event to be appended
+     * @return future completed with the event with the sequence number assigned once the event is durable
+     */
+    public CompletableFuture<SessionEvent> append(SessionEvent event) {
+        CompletableFuture<SessionEvent> future = new CompletableFuture<>();
+        synchronized (appendLock) {
+            if (closed) {
+                throw new IllegalStateException("Event log " + directory + " is already closed");
+            }
+            SessionEvent sequenced = event.withSequence(nextSequence);
+            if (!current.append(sequenced)) {
+                if (current.isEmpty()) {
+                    throw new IllegalArgumentException("Event " + sequenced + " does not fit into the segment of size " + segmentSize);
+                }
+                roll();
+                if (!current.append(sequenced)) {
+                    throw new IllegalArgumentException("Event " + sequenced + " does not fit into the segment of size " + segmentSize);
+                }
+            }
+            nextSequence++;
+            pending.add(new PendingAppend(sequenced, future));
+        }
+        scheduleCommit();
+        return future;
+    }
+
+    /**
+     * Reads all the events appended so far.
+     *
+     * @param consumer consumer of the events in the order of the sequence numbers
+     */
+    public void forEach(Consumer<SessionEvent> consumer) {
+        forEach(0, consumer);
+    }
+
+    /**
+     * Reads the events appended so far starting with given sequence number.
+     *
+     * @param fromSequence the lowest sequence number of the events to be read
+     * @param consumer consumer of the events in the order of the sequence numbers
+     */
+    public void forEach(long fromSequence, Consumer<SessionEvent> consumer) {
+        for (Segment segment : segments) {
+            if (segment.getLastSequence() >= fromSequence) {
+                segment.forEach(fromSequence, consumer);
+            }
+        }
+    }
+
+    /**
+     * Forces all the events appended so far to the storage without waiting for the next group commit.
+     *
+     * @return the sequence number of the first event which has not been forced
+     */
+    public long sync() {
+        long durable;
+        List<Segment> toForce = new ArrayList<>();
+        synchronized (appendLock) {
+            durable = nextSequence - 1;
+            collectNotDurable(toForce);
+        }
+        force(toForce, durable);
+        return durable + 1;
+    }
+
+    /**
+     * Deletes the segments containing only the events which are no longer needed.
+     *
+     * The current segment and the segments which have not been forced to the storage yet are always kept.
+     *
+     * @param obsolete predicate telling whether the event is no longer needed, e.g. because it is covered by the snapshot
+     * @return the number of deleted segments
+     */
+    public int compact(Predicate<SessionEvent> obsolete) {
+        List<Segment> candidates = new ArrayList<>();
+        synchronized (appendLock) {
+            long durable = durableSequence.get();
+            for (Segment segment : segments) {
+                if (segment != current && segment.getLastSequence() <= durable) {
+                    candidates.add(segment);
+                }
+            }
+        }
+
+        int deleted = 0;
+        for (Segment segment : candidates) {
+            if (segment.allMatch(0, obsolete)) {
+                segments.remove(segment);
+                try {
+                    segment.delete();
+                } catch (IOException e) {
+                    throw new IllegalStateException("Cannot delete " + segment, e);
+                }
+                deleted++;
+            }
+        }
+        return deleted;
+    }
+
+    /**
+     * @return the number of the segment files
+     */
+    public int getSegmentCount() {
+        return segments.size();
+    }
+
+    /**
+     * @return the sequence number which will be assigned to the next appended event
+     */
+    public long getNextSequence() {
+        synchronized (appendLock) {
+            return nextSequence;
+        }
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Forces all the appended events to the storage and closes the segments.
+     *
+     * @throws IOException if the segments cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (appendLock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+
+        committer.execute(this::commit);
+        committer.shutdown();
+        try {
+            committer.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        for (Segment segment : segments) {
+            segment.close();
+        }
+    }
+
+    private void roll() {
+        try {
+            current = Segment.create(directory, nextSequence, segmentSize);
+            segments.add(current);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot create new segment in " + directory, e);
+        }
+    }
+
+    private void scheduleCommit() {
+        if (commitScheduled.compareAndSet(false, true)) {
+            committer.schedule(this::commit, commitDelayMicros, TimeUnit.MICROSECONDS);
+        }
+    }
+
+    private void commit() {
+        commitScheduled.set(false);
+
+        long durable;
+        List<Segment> toForce = new ArrayList<>();
+        synchronized (appendLock) {
+            durable = nextSequence - 1;
+            collectNotDurable(toForce);
+        }
+
+        RuntimeException failure = null;
+        try {
+            force(toForce, durable);
+        } catch (RuntimeException e) {
+            failure = e;
+        }
+
+        PendingAppend append = pending.peek();
+        while (append != null && append.event.getSequence() <= durable) {
+            pending.poll();
+            if (failure == null) {
+                append.future.complete(append.event);
+            } else {
+                append.future.completeExceptionally(failure);
+            }
+            append = pending.peek();
+        }
+    }
+
+    /**
+     * Collects the segments which may contain the events not forced to the storage yet. Must be called under the append
+     * lock.
+     */
+    private void collectNotDurable(List<Segment> toForce) {
+        long durable = durableSequence.get();
+        for (Segment segment : segments) {
+            if (segment.getLastSequence() > durable) {
+                toForce.add(segment);
+            }
+        }
+    }
+
+    /**
+     * Forces the segments and marks the events up to given sequence number durable once all of them have been forced.
+     */
+    private void force(List<Segment> toForce, long durable) {
+        for (Segment segment : toForce) {
+            segment.force();
+        }
+        durableSequence.accumulateAndGet(durable, Math::max);
+    }
+
+    @Override
+    public String toString() {
+        return "Event log " + directory + " with " + segments.size() + " segments";
+    }
+
+    private static final class PendingAppend {
+        private final SessionEvent event;
+        private final CompletableFuture<SessionEvent> future;
+
+        PendingAppend(SessionEvent event, CompletableFuture<SessionEvent> future) {
+            this.event = event;
+            this.future = future;
+        }
+    }
+}
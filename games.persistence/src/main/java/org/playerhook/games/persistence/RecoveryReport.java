@@ -0,0 +1,65 @@
+package org.playerhook.games.persistence;
+
+import java.time.Duration;
+
+/**
+ * Summary of the recovery of the sessions used to size the restart windows.
+ */
+public final class RecoveryReport {
+
+    private final int sessions;
+    private final int snapshots;
+    private final long events;
+    private final Duration duration;
+
+    RecoveryReport(int sessions, int snapshots, long events, Duration duration) {
+        this.sessions = sessions;
+        this.snapshots = snapshots;
+        this.events = events;
+        this.duration = duration;
+    }
+
+    /**
+     * @return the number of the recovered sessions
+     */
+    public int getSessions() {
+        return sessions;
+    }
+
+    /**
+     * @return the number of the sessions recovered from the snapshots
+     */
+    public int getSnapshots() {
+        return snapshots;
+    }
+
+    /**
+     * @return the number of the events replayed on top of the snapshots
+     */
+    public long getEvents() {
+        return events;
+    }
+
+    public Duration getDuration() {
+        return duration;
+    }
+
+    public double getSessionsPerSecond() {
+        return perSecond(sessions);
+    }
+
+    public double getEventsPerSecond() {
+        return perSecond(events);
+    }
+
+    private double perSecond(long count) {
+        long nanos = Math.max(1, duration.toNanos());
+        return count * 1e9 / nanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Recovered %d sessions (%d from snapshots) replaying %d events in %d ms: %.1f sessions/s, %.1f events/s",
+                sessions, snapshots, events, duration.toMillis(), getSessionsPerSecond(), getEventsPerSecond());
+    }
+}
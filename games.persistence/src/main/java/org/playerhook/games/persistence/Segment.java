@@ -0,0 +1,246 @@
+package org.playerhook.games.persistence;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.zip.CRC32;
+
+/**
+ * Single memory-mapped file of the {@link EventLog}.
+ *
+ * Each record is written as the length of the body, the CRC32 checksum of the body and the body itself. The body
+ * contains the sequence number, the type, the URL of the session and the payload of the event. The length is written
+ * last so the zero length marks the end of the records, the records with wrong checksum left by the crash are
+ * ignored together with all the following records.
+ */
+final class Segment {
+
+    static final String SUFFIX = ".log";
+
+    private static final int HEADER_SIZE = 8;
+
+    private final Path file;
+    private final long firstSequence;
+    private final RandomAccessFile raf;
+    private final MappedByteBuffer buffer;
+    private volatile int position;
+    private volatile long lastSequence;
+    private boolean closed;
+
+    private Segment(Path file, long firstSequence, RandomAccessFile raf, MappedByteBuffer buffer) {
+        this.file = file;
+        this.firstSequence = firstSequence;
+        this.raf = raf;
+        this.buffer = buffer;
+        this.lastSequence = firstSequence - 1;
+    }
+
+    static Segment create(Path directory, long firstSequence, int size) throws IOException {
+        Path file = directory.resolve(fileName(firstSequence));
+        RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw");
+        return new Segment(file, firstSequence, raf, raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size));
+    }
+
+    static Segment open(Path file, int size) throws IOException {
+        String name = file.getFileName().toString();
+        long firstSequence = Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+        RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw");
+        long length = Math.max(size, raf.length());
+        Segment segment = new Segment(file, firstSequence, raf, raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, length));
+        segment.recover();
+        return segment;
+    }
+
+    static boolean isSegment(Path file) {
+        return file.getFileName().toString().matches("\\d{20}\\" + SUFFIX);
+    }
+
+    private static String fileName(long firstSequence) {
+        return String.format("%020d%s", firstSequence, SUFFIX);
+    }
+
+    /**
+     * Appends the event to the segment.
+     *
+     * Must not be called concurrently.
+     *
+     * @param event the event with the sequence number assigned
+     * @return <code>false</code> if there is not enough space left in this segment
+     */
+    boolean append(SessionEvent event) {
+        byte[] url = event.getKey().getBytes(StandardCharsets.UTF_8);
+        byte[] payload = event.getPayload();
+        int bodySize = 8 + 1 + 4 + url.length + 4 + payload.length;
+
+        if (position + HEADER_SIZE + bodySize + 4 > buffer.capacity()) {
+            return false;
+        }
+
+        ByteBuffer body = ByteBuffer.allocate(bodySize);
+        body.putLong(event.getSequence());
+        body.put((byte) event.getType().ordinal());
+        body.putInt(url.length);
+        body.put(url);
+        body.putInt(payload.length);
+        body.put(payload);
+
+        CRC32 crc = new CRC32();
+        crc.update(body.array(), 0, bodySize);
+
+        int start = position;
+        ByteBuffer target = buffer.duplicate();
+        target.position(start + HEADER_SIZE);
+        target.put(body.array());
+        buffer.putInt(start + 4, (int) crc.getValue());
+        buffer.putInt(start, bodySize);
+
+        lastSequence = event.getSequence();
+        position = start + HEADER_SIZE + bodySize;
+        return true;
+    }
+
+    /**
+     * Forces the appended records to the storage.
+     */
+    synchronized void force() {
+        if (!closed) {
+            buffer.force();
+        }
+    }
+
+    /**
+     * Iterates the records appended so far.
+     *
+     * @param fromSequence the lowest sequence number of the events to be read
+     * @param consumer consumer of the events
+     */
+    void forEach(long fromSequence, Consumer<SessionEvent> consumer) {
+        allMatch(fromSequence, event -> {
+            consumer.accept(event);
+            return true;
+        });
+    }
+
+    /**
+     * Checks the records appended so far, stopping at the first record not matching the predicate.
+     *
+     * @param fromSequence the lowest sequence number of the events to be checked
+     * @param predicate predicate of the events
+     * @return <code>true</code> if all the checked events match the predicate
+     */
+    boolean allMatch(long fromSequence, Predicate<SessionEvent> predicate) {
+        int limit = position;
+        ByteBuffer records = buffer.duplicate();
+        int offset = 0;
+        while (offset < limit) {
+            int bodySize = records.getInt(offset);
+            records.position(offset + HEADER_SIZE);
+            long sequence = records.getLong();
+            if (sequence >= fromSequence && !predicate.test(readBody(records, sequence))) {
+                return false;
+            }
+            offset += HEADER_SIZE + bodySize;
+        }
+        return true;
+    }
+
+    private static SessionEvent readBody(ByteBuffer records, long sequence) {
+        SessionEvent.Type type = SessionEvent.Type.values()[records.get()];
+        byte[] url = new byte[records.getInt()];
+        records.get(url);
+        byte[] payload = new byte[records.getInt()];
+        records.get(payload);
+        return new SessionEvent(sequence, new String(url, StandardCharsets.UTF_8), type, payload);
+    }
+
+    /**
+     * Finds the end of the valid records after the segment has been opened.
+     */
+    private void recover() {
+        int offset = 0;
+        long last = firstSequence - 1;
+        ByteBuffer records = buffer.duplicate();
+        while (offset + HEADER_SIZE <= records.capacity()) {
+            int bodySize = records.getInt(offset);
+            if (bodySize <= 0 || offset + HEADER_SIZE + bodySize > records.capacity()) {
+                break;
+            }
+            byte[] body = new byte[bodySize];
+            records.position(offset + HEADER_SIZE);
+            records.get(body);
+            CRC32 crc = new CRC32();
+            crc.update(body, 0, bodySize);
+            if ((int) crc.getValue() != records.getInt(offset + 4)) {
+                break;
+            }
+            long sequence = ByteBuffer.wrap(body).getLong();
+            if (sequence != last + 1) {
+                // stale record left behind an earlier torn record which has been overwritten since
+                break;
+            }
+            last = sequence;
+            offset += HEADER_SIZE + bodySize;
+        }
+
+        // clear everything after the last valid record, otherwise the next appended records could end exactly where
+        // some stale record starts and the stale record would be read back as valid one after reopening
+        boolean cleared = false;
+        int i = offset;
+        for (; i + 8 <= records.capacity(); i += 8) {
+            if (buffer.getLong(i) != 0) {
+                buffer.putLong(i, 0);
+                cleared = true;
+            }
+        }
+        for (; i < records.capacity(); i++) {
+            if (buffer.get(i) != 0) {
+                buffer.put(i, (byte) 0);
+                cleared = true;
+            }
+        }
+        if (cleared) {
+            buffer.force();
+        }
+
+        position = offset;
+        lastSequence = last;
+    }
+
+    Path getFile() {
+        return file;
+    }
+
+    long getFirstSequence() {
+        return firstSequence;
+    }
+
+    long getLastSequence() {
+        return lastSequence;
+    }
+
+    boolean isEmpty() {
+        return position == 0;
+    }
+
+    synchronized void close() throws IOException {
+        closed = true;
+        raf.close();
+    }
+
+    synchronized void delete() throws IOException {
+        close();
+        Files.delete(file);
+    }
+
+    @Override
+    public String toString() {
+        return "Segment " + file + " of events from " + firstSequence + " to " + lastSequence;
+    }
+}
@@ -0,0 +1,291 @@
+package org.playerhook.games.persistence;
+
+import com.google.common.base.Preconditions;
+import org.playerhook.games.api.Avatar;
+import org.playerhook.games.api.BinaryCodec;
+import org.playerhook.games.api.KeyDerivation;
+import org.playerhook.games.api.LocalSession;
+import org.playerhook.games.api.Player;
+import org.playerhook.games.api.Position;
+import org.playerhook.games.api.SessionClock;
+import org.playerhook.games.api.Token;
+import org.playerhook.games.api.TokenPlacement;
+import org.playerhook.games.util.MapSerializable;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.time.Instant;
+import java.util.Arrays;
+
+/**
+ * Accepted transition of the session.
+ *
+ * The session is rebuilt by applying its events in order to the session created by the first event using the
+ * {@link LocalSession} API. Every event records the time of the transition in milliseconds and the transition is
+ * replayed at the same time using {@link SessionClock}, so the rebuilt session is equal to the original one including
+ * the timestamps of the moves.
+ */
+public final class SessionEvent {
+
+    /**
+     * Transitions of the session.
+     */
+    public enum Type {
+        /**
+         * New session was created. The payload is the binary snapshot of the created session.
+         */
+        CREATED,
+
+        /**
+         * Player has joined the session.
+         */
+        JOINED,
+
+        /**
+         * Session has started.
+         */
+        STARTED,
+
+        /**
+         * Token placement was played, including the rejected ones.
+         */
+        PLAYED,
+
+        /**
+         * Session was suspended.
+         */
+        SUSPENDED,
+
+        /**
+         * Session was resumed.
+         */
+        RESUMED,
+
+        /**
+         * Session was signed with the private key.
+         */
+        SIGNED
+    }
+
+    private final long sequence;
+    private final String url;
+    private final Type type;
+    private final byte[] payload;
+
+    SessionEvent(long sequence, String url, Type type, byte[] payload) {
+        this.sequence = sequence;
+        this.url = Preconditions.checkNotNull(url, "URL cannot be null");
+        this.type = Preconditions.checkNotNull(type, "Type cannot be null");
+        this.payload = Preconditions.checkNotNull(payload, "Payload cannot be null");
+    }
+
+    public static SessionEvent created(LocalSession session) {
+        URL url = session.getURL().orElseThrow(() -> new IllegalArgumentException("Only sessions with URL can be persisted: " + session));
+        return new SessionEvent(-1, url.toExternalForm(), Type.CREATED, BinaryCodec.encode(session, MapSerializable.PrivacyLevel.INTERNAL));
+    }
+
+    public static SessionEvent joined(URL url, Player player, Instant timestamp) {
+        return new SessionEvent(-1, url.toExternalForm(), Type.JOINED, encode(timestamp, output -> writePlayer(output, player)));
+    }
+
+    public static SessionEvent started(URL url, Instant timestamp) {
+        return new SessionEvent(-1, url.toExternalForm(), Type.STARTED, encode(timestamp, output -> { }));
+    }
+
+    public static SessionEvent played(URL url, TokenPlacement placement, Instant timestamp) {
+        return new SessionEvent(-1, url.toExternalForm(), Type.PLAYED, encode(timestamp, output -> {
+            output.writeUTF(placement.getToken().getSymbol());
+            writePlayer(output, placement.getPlayer());
+            writePosition(output, placement.getDestination());
+            output.writeBoolean(placement.getSource().isPresent());
+            if (placement.getSource().isPresent()) {
+                writePosition(output, placement.getSource().get());
+            }
+            writeString(output, (String) placement.toMap(MapSerializable.PrivacyLevel.INTERNAL).get("key"));
+        }));
+    }
+
+    public static SessionEvent suspended(URL url, Instant timestamp) {
+        return new SessionEvent(-1, url.toExternalForm(), Type.SUSPENDED, encode(timestamp, output -> { }));
+    }
+
+    public static SessionEvent resumed(URL url, Instant timestamp) {
+        return new SessionEvent(-1, url.toExternalForm(), Type.RESUMED, encode(timestamp, output -> { }));
+    }
+
+    public static SessionEvent signed(URL url, String privateKey, KeyDerivation derivation, Instant timestamp) {
+        return new SessionEvent(-1, url.toExternalForm(), Type.SIGNED, encode(timestamp, output -> {
+            output.writeUTF(privateKey);
+            output.writeUTF(derivation.getCode());
+        }));
+    }
+
+    /**
+     * Applies the transition to the session.
+     *
+     * @param session the current state of the session or <code>null</code> for the {@link Type#CREATED} events
+     * @return the next state of the session
+     */
+    public LocalSession applyTo(LocalSession session) {
+        if (Type.CREATED.equals(type)) {
+            return BinaryCodec.decodeLocal(payload);
+        }
+        if (session == null) {
+            throw new IllegalStateException("Session " + url + " has not been created yet, cannot apply " + type);
+        }
+        DataInputStream input = new DataInputStream(new ByteArrayInputStream(payload));
+        Instant timestamp;
+        try {
+            timestamp = Instant.ofEpochMilli(input.readLong());
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot read payload of " + this, e);
+        }
+        return SessionClock.at(timestamp, () -> transition(session, input));
+    }
+
+    private LocalSession transition(LocalSession session, DataInput input) {
+        try {
+            switch (type) {
+                case JOINED:
+                    return session.join(readPlayer(input));
+                case STARTED:
+                    return session.start();
+                case PLAYED:
+                    Token token = Token.stub(input.readUTF());
+                    Player player = readPlayer(input);
+                    Position destination = readPosition(input);
+                    Position source = input.readBoolean() ? readPosition(input) : null;
+                    String key = readString(input);
+                    TokenPlacement placement = session.newPlacement(token, player, source, destination);
+                    return session.play(key == null ? placement : placement.sign(key));
+                case SUSPENDED:
+                    return session.suspend();
+                case RESUMED:
+                    return session.resume();
+                case SIGNED:
+                    String privateKey = input.readUTF();
+                    return session.signWith(privateKey, KeyDerivation.load(input.readUTF()));
+                default:
+                    throw new IllegalStateException("Unknown event type " + type);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot read payload of " + this, e);
+        }
+    }
+
+    /**
+     * @return sequence number assigned by the log or <code>-1</code> if the event has not been appended yet
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    public URL getURL() {
+        return parseURL(url);
+    }
+
+    static URL parseURL(String url) {
+        try {
+            return new URL(url);
+        } catch (MalformedURLException e) {
+            throw new IllegalStateException("Error parsing the URL", e);
+        }
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    String getKey() {
+        return url;
+    }
+
+    byte[] getPayload() {
+        return payload;
+    }
+
+    SessionEvent withSequence(long newSequence) {
+        return new SessionEvent(newSequence, url, type, payload);
+    }
+
+    private static byte[] encode(Instant timestamp, Writer writer) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            output.writeLong(timestamp.toEpochMilli());
+            writer.write(output);
+        } catch (IOException e) {
+            throw new IllegalStateException("Exception writing event payload", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void writePlayer(DataOutput output, Player player) throws IOException {
+        output.writeUTF(player.getUsername());
+        writeString(output, player.getAvatar().map(Avatar::toString).orElse(null));
+        writeString(output, player.getDisplayName().orElse(null));
+        writeString(output, player.getDisplayColor().orElse(null));
+    }
+
+    private static Player readPlayer(DataInput input) throws IOException {
+        String username = input.readUTF();
+        String avatar = readString(input);
+        String displayName = readString(input);
+        String displayColor = readString(input);
+        return Player.create(username, avatar == null ? null : Avatar.of(avatar), displayName, displayColor);
+    }
+
+    private static void writePosition(DataOutput output, Position position) throws IOException {
+        output.writeInt(position.getRow());
+        output.writeInt(position.getColumn());
+    }
+
+    private static Position readPosition(DataInput input) throws IOException {
+        int row = input.readInt();
+        return Position.at(row, input.readInt());
+    }
+
+    private static void writeString(DataOutput output, String value) throws IOException {
+        output.writeBoolean(value != null);
+        if (value != null) {
+            output.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInput input) throws IOException {
+        return input.readBoolean() ? input.readUTF() : null;
+    }
+
+    @FunctionalInterface private interface Writer {
+        void write(DataOutput output) throws IOException;
+    }
+
+    @Override
+    public String toString() {
+        return "Event #" + sequence + " " + type + " of " + url;
+    }
+
+    //CHECKSTYLE:OFF
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        SessionEvent that = (SessionEvent) o;
+        return sequence == that.sequence &&
+                url.equals(that.url) &&
+                type == that.type &&
+                Arrays.equals(payload, that.payload);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * Long.hashCode(sequence) + url.hashCode()) + type.hashCode();
+    }
+    //CHECKSTYLE:ON
+}
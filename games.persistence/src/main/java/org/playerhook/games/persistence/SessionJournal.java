@@ -0,0 +1,321 @@
+package org.playerhook.games.persistence;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.Striped;
+import org.playerhook.games.api.Game;
+import org.playerhook.games.api.KeyDerivation;
+import org.playerhook.games.api.LocalSession;
+import org.playerhook.games.api.Player;
+import org.playerhook.games.api.SessionClock;
+import org.playerhook.games.api.SessionRegistry;
+import org.playerhook.games.api.TokenPlacement;
+
+import java.net.URL;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+
+/**
+ * Session registry which records every accepted transition into the {@link EventLog}.
+ *
+ * The transition and the append of its event happen under the lock of the session so the events of each session are
+ * logged in the same order as they were applied. The locks are striped so the different sessions rarely contend. The
+ * next state is published to the registry only after its event has been appended and it is rolled back to the
+ * previous state if the event cannot be forced to the storage. The returned futures are completed once the event is
+ * durable. The transitions which fail with an exception are not logged, the rejected moves are logged as they change
+ * the session too.
+ *
+ * If the {@link SnapshotStore} is present, the snapshot of the session is taken after every given number of its
+ * events and on demand. The events covered by the snapshots are dropped by {@link #compact()} and the recovery only
+ * replays the events appended after the latest snapshot of each session. Failing to take the periodic snapshot is not
+ * fatal as the events are kept in the log until the snapshot succeeds.
+ *
+ * All the transitions of the registered sessions must go through the journal otherwise they are not persisted.
+ */
+public final class SessionJournal {
+
+    private static final int LOCK_STRIPES = 256;
+
+    private final SessionRegistry registry;
+    private final EventLog log;
+    private final SnapshotStore snapshots;
+    private final int snapshotInterval;
+    private final RecoveryReport recoveryReport;
+    private final Striped<Lock> locks = Striped.lock(LOCK_STRIPES);
+    private final ConcurrentMap<String, AtomicInteger> eventsSinceSnapshot = new ConcurrentHashMap<>();
+
+    private SessionJournal(SessionRegistry registry, EventLog log, SnapshotStore snapshots, int snapshotInterval, RecoveryReport recoveryReport) {
+        Preconditions.checkArgument(snapshotInterval >= 0, "Snapshot interval cannot be negative");
+        Preconditions.checkArgument(snapshots != null || snapshotInterval == 0, "Snapshot interval requires snapshot store");
+        this.registry = Preconditions.checkNotNull(registry, "Registry cannot be null");
+        this.log = Preconditions.checkNotNull(log, "Log cannot be null");
+        this.snapshots = snapshots;
+        this.snapshotInterval = snapshotInterval;
+        this.recoveryReport = recoveryReport;
+    }
+
+    /**
+     * Rebuilds the sessions by replaying all the events of the log.
+     *
+     * @param log the log to be replayed and appended to
+     * @return the journal with the registry containing the last state of each of the logged sessions
+     */
+    public static SessionJournal recover(EventLog log) {
+        return recover(log, null, 0);
+    }
+
+    /**
+     * Rebuilds the sessions from their latest snapshots and the events appended after them.
+     *
+     * The log is read once and the sessions are then rebuilt in parallel.
+     *
+     * @param log the log to be replayed and appended to
+     * @param snapshots the store of the snapshots, may be <code>null</code> if the snapshots are not used
+     * @param snapshotInterval take the snapshot of the session after this number of its events, <code>0</code> to
+     *                         take the snapshots only on demand
+     * @return the journal with the registry containing the last state of each of the logged sessions
+     */
+    public static SessionJournal recover(EventLog log, SnapshotStore snapshots, int snapshotInterval) {
+        long start = System.nanoTime();
+
+        Map<String, Long> covered = snapshots == null ? Collections.emptyMap() : snapshots.getSequences();
+        Map<String, List<SessionEvent>> tails = new HashMap<>();
+        AtomicLong events = new AtomicLong();
+        log.forEach(event -> {
+            if (event.getSequence() >= covered.getOrDefault(event.getKey(), 0L)) {
+                tails.computeIfAbsent(event.getKey(), key -> new ArrayList<>()).add(event);
+                events.incrementAndGet();
+            }
+        });
+
+        Set<String> keys = new LinkedHashSet<>(covered.keySet());
+        keys.addAll(tails.keySet());
+
+        List<LocalSession> sessions = keys.parallelStream()
+                .map(key -> {
+                    LocalSession session = snapshots == null ? null : snapshots.load(key).orElse(null);
+                    for (SessionEvent event : tails.getOrDefault(key, Collections.emptyList())) {
+                        session = event.applyTo(session);
+                    }
+                    return session;
+                })
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+
+        SessionRegistry registry = SessionRegistry.create(Math.max(16, sessions.size()));
+        sessions.forEach(registry::register);
+
+        RecoveryReport report = new RecoveryReport(sessions.size(), covered.size(), events.get(), Duration.ofNanos(System.nanoTime() - start));
+        SessionJournal journal = new SessionJournal(registry, log, snapshots, snapshotInterval, report);
+        for (String key : keys) {
+            journal.eventsSinceSnapshot.put(key, new AtomicInteger(tails.getOrDefault(key, Collections.emptyList()).size()));
+        }
+        return journal;
+    }
+
+    /**
+     * Creates new session or returns the existing one if it is not finished yet.
+     *
+     * @param game game for this session
+     * @param url url uniquely identifying the session
+     * @return future completed with the session once the creation is durable
+     * @see SessionRegistry#create(Game, URL)
+     */
+    public CompletableFuture<LocalSession> create(Game game, URL url) {
+        return locked(url, () -> {
+            LocalSession previous = registry.get(url).orElse(null);
+            if (previous != null && !previous.isFinished()) {
+                if (!previous.getGame().equals(game)) {
+                    throw new IllegalArgumentException("Session " + url + " already exists with different game: " + previous.getGame());
+                }
+                return CompletableFuture.completedFuture(previous);
+            }
+            LocalSession created = SessionClock.at(now(), () -> LocalSession.create(game, url));
+            return published(url, previous, created, SessionEvent.created(created));
+        });
+    }
+
+    public CompletableFuture<LocalSession> join(URL url, Player player) {
+        return update(url, session -> session.join(player), timestamp -> SessionEvent.joined(url, player, timestamp));
+    }
+
+    public CompletableFuture<LocalSession> start(URL url) {
+        return update(url, LocalSession::start, timestamp -> SessionEvent.started(url, timestamp));
+    }
+
+    public CompletableFuture<LocalSession> play(URL url, TokenPlacement placement) {
+        return update(url, session -> session.play(placement), timestamp -> SessionEvent.played(url, placement, timestamp));
+    }
+
+    public CompletableFuture<LocalSession> suspend(URL url) {
+        return update(url, LocalSession::suspend, timestamp -> SessionEvent.suspended(url, timestamp));
+    }
+
+    public CompletableFuture<LocalSession> resume(URL url) {
+        return update(url, LocalSession::resume, timestamp -> SessionEvent.resumed(url, timestamp));
+    }
+
+    public CompletableFuture<LocalSession> signWith(URL url, String privateKey, KeyDerivation derivation) {
+        return update(url, session -> session.signWith(privateKey, derivation), timestamp -> SessionEvent.signed(url, privateKey, derivation, timestamp));
+    }
+
+    /**
+     * Takes the snapshot of the current state of the session.
+     *
+     * @param url url of the session
+     * @return <code>true</code> if the snapshot has been saved
+     * @throws IllegalStateException if the journal has no snapshot store
+     */
+    public boolean snapshot(URL url) {
+        if (snapshots == null) {
+            throw new IllegalStateException("Snapshots are not enabled for " + log);
+        }
+
+        LocalSession session;
+        long sequence;
+        Lock lock = locks.get(url.toExternalForm());
+        lock.lock();
+        try {
+            Optional<LocalSession> current = registry.get(url);
+            if (!current.isPresent()) {
+                return false;
+            }
+            session = current.get();
+            sequence = log.getNextSequence();
+        } finally {
+            lock.unlock();
+        }
+
+        // the events covered by the snapshot must be durable so the log never restarts below the snapshot
+        log.sync();
+        return snapshots.save(session, sequence);
+    }
+
+    /**
+     * Takes the snapshots of all the sessions.
+     *
+     * @return the number of the saved snapshots
+     */
+    public int snapshotAll() {
+        int saved = 0;
+        for (AtomicInteger counter : eventsSinceSnapshot.values()) {
+            counter.set(0);
+        }
+        for (String key : eventsSinceSnapshot.keySet()) {
+            if (snapshot(SessionEvent.parseURL(key))) {
+                saved++;
+            }
+        }
+        return saved;
+    }
+
+    /**
+     * Deletes the segments of the log containing only the events covered by the snapshots.
+     *
+     * @return the number of deleted segments
+     * @throws IllegalStateException if the journal has no snapshot store
+     */
+    public int compact() {
+        if (snapshots == null) {
+            throw new IllegalStateException("Snapshots are not enabled for " + log);
+        }
+        return log.compact(snapshots::covers);
+    }
+
+    /**
+     * @param url url of the session
+     * @return the current state of the session
+     */
+    public Optional<LocalSession> get(URL url) {
+        return registry.get(url);
+    }
+
+    public SessionRegistry getRegistry() {
+        return registry;
+    }
+
+    public EventLog getLog() {
+        return log;
+    }
+
+    /**
+     * @return the summary of the recovery which has created this journal
+     */
+    public RecoveryReport getRecoveryReport() {
+        return recoveryReport;
+    }
+
+    private CompletableFuture<LocalSession> update(URL url, UnaryOperator<LocalSession> transition, Function<Instant, SessionEvent> event) {
+        return locked(url, () -> {
+            LocalSession previous = registry.get(url).orElseThrow(() -> new IllegalArgumentException("No session registered for " + url));
+            Instant timestamp = now();
+            LocalSession next = Preconditions.checkNotNull(SessionClock.at(timestamp, () -> transition.apply(previous)), "Next session cannot be null");
+            if (next == previous) {
+                return CompletableFuture.completedFuture(next);
+            }
+            return published(url, previous, next, event.apply(timestamp));
+        });
+    }
+
+    /**
+     * @return the current time truncated to the milliseconds recorded by the events
+     */
+    private static Instant now() {
+        return Instant.ofEpochMilli(System.currentTimeMillis());
+    }
+
+    /**
+     * Appends the event and publishes the next state of the session to the registry. Must be called under the lock of
+     * the session.
+     */
+    private CompletableFuture<LocalSession> published(URL url, LocalSession previous, LocalSession next, SessionEvent event) {
+        CompletableFuture<SessionEvent> append = log.append(event);
+        if (!registry.replace(url, previous, next)) {
+            throw new IllegalStateException("Session " + url + " has been changed outside of the journal");
+        }
+        append.whenComplete((appended, failure) -> {
+            if (failure != null) {
+                registry.replace(url, next, previous);
+            }
+        });
+        return appended(url, append, next);
+    }
+
+    private CompletableFuture<LocalSession> appended(URL url, CompletableFuture<SessionEvent> append, LocalSession session) {
+        AtomicInteger counter = eventsSinceSnapshot.computeIfAbsent(url.toExternalForm(), key -> new AtomicInteger());
+        if (snapshotInterval > 0 && counter.incrementAndGet() >= snapshotInterval) {
+            counter.set(0);
+            append.thenRunAsync(() -> snapshot(url));
+        }
+        return append.thenApply(event -> session);
+    }
+
+    private <T> T locked(URL url, Supplier<T> action) {
+        Lock lock = locks.get(url.toExternalForm());
+        lock.lock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+}
@@ -0,0 +1,179 @@
+package org.playerhook.games.persistence;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.hash.Hashing;
+import org.playerhook.games.api.BinaryCodec;
+import org.playerhook.games.api.LocalSession;
+import org.playerhook.games.util.MapSerializable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Latest binary snapshot of each session.
+ *
+ * Each snapshot is stored in its own file together with the sequence number of the first event which is not covered
+ * by the snapshot. The snapshots are written to the temporary file first and then atomically moved in place, so
+ * the crash never leaves the snapshot half written. The snapshot is never replaced by the older one.
+ */
+public final class SnapshotStore {
+
+    private static final String SUFFIX = ".snapshot";
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+
+    private final Path directory;
+    private final ConcurrentMap<String, Long> sequences;
+
+    private SnapshotStore(Path directory, ConcurrentMap<String, Long> sequences) {
+        this.directory = directory;
+        this.sequences = sequences;
+    }
+
+    /**
+     * Opens the snapshots stored in given directory, creating the directory if it does not exist.
+     *
+     * @param directory directory containing the snapshot files
+     * @return the store ready to save new snapshots
+     * @throws IOException if the snapshots cannot be read
+     */
+    public static SnapshotStore open(Path directory) throws IOException {
+        Files.createDirectories(directory);
+
+        ConcurrentMap<String, Long> sequences = new ConcurrentHashMap<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path file : stream) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(TEMPORARY_SUFFIX)) {
+                    Files.delete(file);
+                } else if (name.endsWith(SUFFIX)) {
+                    try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+                        String key = input.readUTF();
+                        sequences.put(key, input.readLong());
+                    }
+                }
+            }
+        }
+
+        return new SnapshotStore(directory, sequences);
+    }
+
+    /**
+     * Saves the snapshot of the session unless there is already newer one.
+     *
+     * @param session the session to be saved
+     * @param sequence the sequence number of the first event of the session which is not part of the snapshot
+     * @return <code>true</code> if the snapshot has been saved
+     */
+    public boolean save(LocalSession session, long sequence) {
+        URL url = session.getURL().orElseThrow(() -> new IllegalArgumentException("Only sessions with URL can be saved: " + session));
+        String key = url.toExternalForm();
+        byte[] snapshot = BinaryCodec.encode(session, MapSerializable.PrivacyLevel.INTERNAL);
+        boolean[] saved = new boolean[1];
+        sequences.compute(key, (k, current) -> {
+            if (current != null && current >= sequence) {
+                return current;
+            }
+            write(key, sequence, snapshot);
+            saved[0] = true;
+            return sequence;
+        });
+        return saved[0];
+    }
+
+    /**
+     * @param url url of the session
+     * @return the latest snapshot of the session
+     */
+    public Optional<LocalSession> load(URL url) {
+        return load(url.toExternalForm());
+    }
+
+    Optional<LocalSession> load(String key) {
+        if (!sequences.containsKey(key)) {
+            return Optional.empty();
+        }
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file(key))))) {
+            input.readUTF();
+            input.readLong();
+            byte[] snapshot = new byte[input.readInt()];
+            input.readFully(snapshot);
+            return Optional.of(BinaryCodec.decodeLocal(snapshot));
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot read snapshot of " + key, e);
+        }
+    }
+
+    /**
+     * @param url url of the session
+     * @return the sequence number of the first event of the session which is not part of the latest snapshot
+     */
+    public Optional<Long> getSequence(URL url) {
+        return Optional.ofNullable(sequences.get(url.toExternalForm()));
+    }
+
+    /**
+     * @return the sequence number of the first event not covered by the snapshot by the URL of the session
+     */
+    Map<String, Long> getSequences() {
+        return ImmutableMap.copyOf(sequences);
+    }
+
+    /**
+     * @param event event of the session
+     * @return <code>true</code> if the event is already part of the snapshot of its session
+     */
+    boolean covers(SessionEvent event) {
+        Long sequence = sequences.get(event.getKey());
+        return sequence != null && event.getSequence() < sequence;
+    }
+
+    public int size() {
+        return sequences.size();
+    }
+
+    private void write(String key, long sequence, byte[] snapshot) {
+        Path file = file(key);
+        Path temporary = file.resolveSibling(file.getFileName() + TEMPORARY_SUFFIX);
+        try (FileOutputStream stream = new FileOutputStream(temporary.toFile())) {
+            DataOutputStream output = new DataOutputStream(new BufferedOutputStream(stream));
+            output.writeUTF(key);
+            output.writeLong(sequence);
+            output.writeInt(snapshot.length);
+            output.write(snapshot);
+            output.flush();
+            stream.getFD().sync();
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot write snapshot of " + key, e);
+        }
+        try {
+            Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot replace snapshot of " + key, e);
+        }
+    }
+
+    private Path file(String key) {
+        Preconditions.checkNotNull(key, "Key cannot be null");
+        return directory.resolve(Hashing.sha256().hashString(key, StandardCharsets.UTF_8) + SUFFIX);
+    }
+
+    @Override
+    public String toString() {
+        return "Snapshots " + directory + " of " + sequences.size() + " sessions";
+    }
+}
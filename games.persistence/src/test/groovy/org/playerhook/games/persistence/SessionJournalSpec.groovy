@@ -0,0 +1,226 @@
+package org.playerhook.games.persistence
+
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import org.playerhook.games.api.Game
+import org.playerhook.games.api.KeyDerivation
+import org.playerhook.games.api.LocalSession
+import org.playerhook.games.api.Player
+import org.playerhook.games.api.Position
+import org.playerhook.games.api.Status
+import org.playerhook.games.tictactoe.TicTacToeRules
+import org.playerhook.games.tictactoe.TicTacToeTokens
+import org.playerhook.games.util.MapSerializable
+import spock.lang.Specification
+
+import java.nio.ByteBuffer
+import java.nio.channels.FileChannel
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.StandardOpenOption
+import java.time.Instant
+import java.util.concurrent.TimeUnit
+
+/**
+ * Tests for the event log and the session journal.
+ */
+class SessionJournalSpec extends Specification {
+
+    @Rule TemporaryFolder folder = new TemporaryFolder()
+
+    Player dartagnan = Player.create('dartagnan')
+    Player athos = Player.create('athos')
+    URL url = new URL('http://www.example.com/ttt/1')
+    Game game = TicTacToeRules.matchThree(null, null).game
+
+    void 'events are appended and read back after reopening'() {
+        given:
+            Path directory = folder.root.toPath()
+            EventLog log = EventLog.open(directory, 256, 0, TimeUnit.MILLISECONDS)
+        when:
+            List<SessionEvent> appended = (0..<20).collect {
+                log.append(SessionEvent.joined(url, Player.create("player$it"), Instant.now())).get()
+            }
+        then:
+            appended*.sequence == (0L..<20L).toList()
+            Files.list(directory).count() > 1
+
+        when:
+            log.close()
+            log = EventLog.open(directory, 256, 0, TimeUnit.MILLISECONDS)
+            List<SessionEvent> read = []
+            log.forEach(5) { read << it }
+        then:
+            read == appended.drop(5)
+            log.nextSequence == 20
+        cleanup:
+            log?.close()
+    }
+
+    void 'replay rebuilds the session'() {
+        given:
+            EventLog log = EventLog.open(folder.root.toPath())
+            SessionJournal journal = SessionJournal.recover(log)
+        when:
+            journal.create(game, url).get()
+            journal.join(url, dartagnan).get()
+            journal.join(url, athos).get()
+            journal.signWith(url, 'pa$$word', KeyDerivation.Default.HMAC_SHA256).get()
+            journal.start(url).get()
+            play(journal, TicTacToeTokens.CROSS, dartagnan, 1, 1)
+            play(journal, TicTacToeTokens.CIRCLE, athos, 1, 1)
+            play(journal, TicTacToeTokens.CIRCLE, athos, 0, 0)
+            journal.suspend(url).get()
+            journal.resume(url).get()
+            journal.join(url, Player.create('porthos')).get()
+        then:
+            thrown(Exception)
+
+        when:
+            LocalSession original = journal.get(url).get()
+            log.close()
+            log = EventLog.open(folder.root.toPath())
+            LocalSession replayed = SessionJournal.recover(log).get(url).get()
+        then:
+            log.nextSequence == 10
+            replayed.status == Status.IN_PROGRESS
+            replayed.toMap(MapSerializable.PrivacyLevel.INTERNAL) == original.toMap(MapSerializable.PrivacyLevel.INTERNAL)
+            replayed.moves*.timestamp == original.moves*.timestamp
+            replayed.getKey(athos) == original.getKey(athos)
+            replayed.getDeck(dartagnan).playableTokens*.symbol == original.getDeck(dartagnan).playableTokens*.symbol
+        cleanup:
+            log?.close()
+    }
+
+    void 'session is not changed when its event cannot be appended'() {
+        given:
+            EventLog log = EventLog.open(folder.root.toPath())
+            SessionJournal journal = SessionJournal.recover(log)
+            LocalSession created = journal.create(game, url).get()
+            log.close()
+        when:
+            journal.join(url, dartagnan)
+        then:
+            thrown(IllegalStateException)
+            journal.get(url).get().is(created)
+        cleanup:
+            log?.close()
+    }
+
+    void 'torn tail is dropped'() {
+        given:
+            Path directory = folder.root.toPath()
+            EventLog log = EventLog.open(directory)
+            SessionJournal journal = SessionJournal.recover(log)
+            journal.create(game, url).get()
+            journal.join(url, dartagnan).get()
+            long end = log.append(SessionEvent.started(url, Instant.now())).get().sequence
+            log.close()
+        when:
+            Path segment = Files.list(directory).findFirst().get()
+            FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)
+            int offset = 0
+            ByteBuffer header = ByteBuffer.allocate(4)
+            2.times {
+                header.clear()
+                channel.read(header, offset)
+                offset += 8 + header.getInt(0)
+            }
+            channel.write(ByteBuffer.wrap([0xff, 0xff] as byte[]), offset + 20)
+            channel.close()
+            log = EventLog.open(directory)
+            LocalSession recovered = SessionJournal.recover(log).get(url).get()
+        then:
+            end == 2
+            log.nextSequence == 2
+            recovered.status == Status.WAITING
+            recovered.players == [dartagnan]
+        cleanup:
+            log?.close()
+    }
+
+    void 'records after torn record are not read back once it is overwritten by record of the same size'() {
+        given:
+            Path directory = folder.root.toPath()
+            EventLog log = EventLog.open(directory)
+            List<SessionEvent> appended = (0..<3).collect {
+                log.append(SessionEvent.joined(url, Player.create("player$it"), Instant.now())).get()
+            }
+            log.close()
+        when:
+            Path segment = Files.list(directory).findFirst().get()
+            FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)
+            ByteBuffer header = ByteBuffer.allocate(4)
+            channel.read(header, 0)
+            channel.write(ByteBuffer.wrap([0xff, 0xff] as byte[]), 8 + header.getInt(0) + 20)
+            channel.close()
+            log = EventLog.open(directory)
+            SessionEvent replacement = log.append(SessionEvent.joined(url, Player.create('player9'), Instant.now())).get()
+            log.close()
+            log = EventLog.open(directory)
+            List<SessionEvent> read = []
+            log.forEach { read << it }
+        then:
+            replacement.sequence == 1
+            read == [appended[0], replacement]
+            log.nextSequence == 2
+        cleanup:
+            log?.close()
+    }
+
+    void 'snapshots cover compacted events'() {
+        given:
+            Path logDirectory = folder.newFolder('log').toPath()
+            Path snapshotDirectory = folder.newFolder('snapshots').toPath()
+            EventLog log = EventLog.open(logDirectory, 512, 0, TimeUnit.MILLISECONDS)
+            SessionJournal journal = SessionJournal.recover(log, SnapshotStore.open(snapshotDirectory), 0)
+            URL other = new URL('http://www.example.com/ttt/2')
+        when:
+            journal.create(game, url).get()
+            journal.join(url, dartagnan).get()
+            journal.join(url, athos).get()
+            journal.start(url).get()
+            journal.create(game, other).get()
+            journal.join(other, athos).get()
+            (0..<6).each {
+                journal.suspend(url).get()
+                journal.resume(url).get()
+            }
+            int segments = log.segmentCount
+        then:
+            segments > 2
+            journal.compact() == 0
+
+        when:
+            int saved = journal.snapshotAll()
+            play(journal, TicTacToeTokens.CROSS, dartagnan, 0, 0)
+            (0..<6).each {
+                journal.suspend(url).get()
+                journal.resume(url).get()
+            }
+            int deleted = journal.compact()
+            LocalSession original = journal.get(url).get()
+            log.close()
+            log = EventLog.open(logDirectory, 512, 0, TimeUnit.MILLISECONDS)
+            SessionJournal recovered = SessionJournal.recover(log, SnapshotStore.open(snapshotDirectory), 0)
+        then:
+            saved == 2
+            deleted > 0
+            log.segmentCount < segments + 3
+            recovered.recoveryReport.sessions == 2
+            recovered.recoveryReport.snapshots == 2
+            recovered.recoveryReport.events == 13
+            recovered.recoveryReport.eventsPerSecond > 0
+            recovered.get(url).get().moves*.tokenPlacement == original.moves*.tokenPlacement
+            recovered.get(url).get().status == Status.IN_PROGRESS
+            recovered.get(other).get().players == [athos]
+        cleanup:
+            log?.close()
+    }
+
+    private void play(SessionJournal journal, TicTacToeTokens token, Player player, int row, int column) {
+        LocalSession session = journal.get(url).get()
+        journal.play(url, session.sign(session.newPlacement(token, player, Position.at(row, column)))).get()
+    }
+
+}
@@ -0,0 +1,34 @@
+package org.playerhook.games.simulation;
+
+import org.playerhook.games.api.LocalSession;
+import org.playerhook.games.api.Player;
+import org.playerhook.games.api.TokenPlacement;
+
+import java.util.Random;
+
+/**
+ * Chooses the moves of single seat in the simulated games.
+ *
+ * Each worker thread of the {@link Simulation} uses its own instance of the strategy, so the strategies do not have
+ * to be thread safe. The strategies must not keep any state between the games other than caches reset by
+ * {@link #newGame()}, otherwise the results are not reproducible.
+ */
+@FunctionalInterface
+public interface PlayerStrategy {
+
+    /**
+     * @param session the session in progress
+     * @param player the player on turn
+     * @param random the source of randomness seeded for the current game
+     * @return the placement to be played
+     */
+    TokenPlacement play(LocalSession session, Player player, Random random);
+
+    /**
+     * Called before each game played by the strategy.
+     */
+    default void newGame() {
+        // no state by default
+    }
+
+}
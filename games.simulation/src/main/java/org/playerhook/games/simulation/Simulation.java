@@ -0,0 +1,282 @@
+package org.playerhook.games.simulation;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.playerhook.games.api.LocalSession;
+import org.playerhook.games.api.Player;
+import org.playerhook.games.api.TokenPlacement;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Plays many games between the player strategies in parallel without any network involved.
+ *
+ * The games are sharded between the worker threads, the worker <code>w</code> plays the games
+ * <code>w, w + threads, w + 2 * threads...</code> using its own instances of the strategies. Each game is played with
+ * the random generator seeded from the seed of the simulation and the index of the game, so every game is played
+ * the same regardless of the number of the threads and the outcome of the simulation is reproducible.
+ *
+ * Each game is created, joined by the players in the order of the seats, started and played until finished or until
+ * the maximal number of moves is reached.
+ */
+public final class Simulation {
+
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private final Supplier<LocalSession> sessions;
+    private final ImmutableList<Player> players;
+    private final ImmutableList<Supplier<PlayerStrategy>> strategies;
+    private final long games;
+    private final int threads;
+    private final long seed;
+    private final int maxMoves;
+
+    /**
+     * Builder of the simulation.
+     */
+    public static final class Builder {
+        private final Supplier<LocalSession> sessions;
+        private final ImmutableList.Builder<Player> players = ImmutableList.builder();
+        private final ImmutableList.Builder<Supplier<PlayerStrategy>> strategies = ImmutableList.builder();
+        private long games = 1000;
+        private int threads = Runtime.getRuntime().availableProcessors();
+        private long seed;
+        private int maxMoves = 10_000;
+
+        private Builder(Supplier<LocalSession> sessions) {
+            this.sessions = Preconditions.checkNotNull(sessions, "Sessions cannot be null");
+        }
+
+        /**
+         * Adds the player taking the next seat.
+         *
+         * @param username the username of the player
+         * @param strategy the factory of the strategy, called once per worker thread
+         * @return self
+         */
+        public Builder player(String username, Supplier<PlayerStrategy> strategy) {
+            players.add(Player.create(username));
+            strategies.add(Preconditions.checkNotNull(strategy, "Strategy cannot be null"));
+            return this;
+        }
+
+        public Builder games(long games) {
+            this.games = games;
+            return this;
+        }
+
+        public Builder threads(int threads) {
+            this.threads = threads;
+            return this;
+        }
+
+        public Builder seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        /**
+         * @param maxMoves maximal number of the moves of single game including the rejected ones
+         * @return self
+         */
+        public Builder maxMoves(int maxMoves) {
+            this.maxMoves = maxMoves;
+            return this;
+        }
+
+        public Simulation build() {
+            return new Simulation(this);
+        }
+    }
+
+    private Simulation(Builder builder) {
+        this.sessions = builder.sessions;
+        this.players = builder.players.build();
+        this.strategies = builder.strategies.build();
+        this.games = builder.games;
+        this.threads = builder.threads;
+        this.seed = builder.seed;
+        this.maxMoves = builder.maxMoves;
+
+        Preconditions.checkArgument(!players.isEmpty(), "At least one player is required");
+        Preconditions.checkArgument(games >= 0, "Number of games cannot be negative");
+        Preconditions.checkArgument(threads > 0, "At least one thread is required");
+        Preconditions.checkArgument(maxMoves > 0, "Maximal number of moves must be positive");
+    }
+
+    /**
+     * @param sessions the factory of the new sessions to be played
+     * @return new builder
+     */
+    public static Builder builder(Supplier<LocalSession> sessions) {
+        return new Builder(sessions);
+    }
+
+    /**
+     * Plays all the games and waits until they are finished.
+     *
+     * @return the report of the simulation
+     */
+    public SimulationReport run() {
+        AtomicInteger counter = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "simulation-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            long start = System.nanoTime();
+            List<CompletableFuture<Tally>> workers = new ArrayList<>(threads);
+            for (int worker = 0; worker < threads; worker++) {
+                int shard = worker;
+                workers.add(CompletableFuture.supplyAsync(() -> playShard(shard), executor));
+            }
+
+            Tally total = new Tally(players.size());
+            for (CompletableFuture<Tally> worker : workers) {
+                total.add(worker.join());
+            }
+            return total.toReport(players, Duration.ofNanos(System.nanoTime() - start));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Tally playShard(int shard) {
+        List<PlayerStrategy> seats = new ArrayList<>(strategies.size());
+        for (Supplier<PlayerStrategy> strategy : strategies) {
+            seats.add(strategy.get());
+        }
+
+        Tally tally = new Tally(players.size());
+        long allocatedBefore = allocatedBytes();
+        for (long game = shard; game < games; game += threads) {
+            play(game, seats, tally);
+        }
+        long allocatedAfter = allocatedBytes();
+        tally.allocatedBytes = allocatedBefore < 0 || allocatedAfter < 0 ? -1 : allocatedAfter - allocatedBefore;
+        return tally;
+    }
+
+    private void play(long game, List<PlayerStrategy> seats, Tally tally) {
+        Random random = new Random(mix(seed + GOLDEN_GAMMA * game));
+        for (PlayerStrategy strategy : seats) {
+            strategy.newGame();
+        }
+
+        LocalSession session = sessions.get();
+        for (Player player : players) {
+            session = session.join(player);
+        }
+        session = session.start();
+
+        int moves = 0;
+        while (!session.isFinished() && moves < maxMoves) {
+            Player onTurn = session.getPlayerOnTurn().orElseThrow(() -> new IllegalStateException("Nobody is on turn"));
+            TokenPlacement placement = seats.get(players.indexOf(onTurn)).play(session, onTurn, random);
+            session = session.play(placement);
+            moves++;
+            if (session.getLastMove().get().getRuleViolation().isPresent()) {
+                tally.rejectedMoves++;
+            }
+        }
+
+        tally.games++;
+        tally.moves += moves;
+        if (!session.isFinished()) {
+            tally.unfinished++;
+            return;
+        }
+        int winner = winner(session);
+        if (winner < 0) {
+            tally.draws++;
+        } else {
+            tally.wins[winner]++;
+        }
+    }
+
+    /**
+     * @return the seat of the only player with the highest score or <code>-1</code> if it is a draw
+     */
+    private int winner(LocalSession session) {
+        int winner = -1;
+        int best = Integer.MIN_VALUE;
+        for (int seat = 0; seat < players.size(); seat++) {
+            int score = session.getScore(players.get(seat));
+            if (score > best) {
+                best = score;
+                winner = seat;
+            } else if (score == best) {
+                winner = -1;
+            }
+        }
+        return best > 0 ? winner : -1;
+    }
+
+    private static long allocatedBytes() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+            if (allocations.isThreadAllocatedMemorySupported() && allocations.isThreadAllocatedMemoryEnabled()) {
+                return allocations.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+
+    private static long mix(long value) {
+        long z = value;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Counters of single worker, merged when all the workers are finished.
+     */
+    private static final class Tally {
+        private long games;
+        private long moves;
+        private long rejectedMoves;
+        private final long[] wins;
+        private long draws;
+        private long unfinished;
+        private long allocatedBytes;
+
+        Tally(int seats) {
+            this.wins = new long[seats];
+        }
+
+        void add(Tally other) {
+            games += other.games;
+            moves += other.moves;
+            rejectedMoves += other.rejectedMoves;
+            for (int seat = 0; seat < wins.length; seat++) {
+                wins[seat] += other.wins[seat];
+            }
+            draws += other.draws;
+            unfinished += other.unfinished;
+            allocatedBytes = allocatedBytes < 0 || other.allocatedBytes < 0 ? -1 : allocatedBytes + other.allocatedBytes;
+        }
+
+        SimulationReport toReport(List<Player> players, Duration elapsed) {
+            ImmutableMap.Builder<String, Long> winsByPlayer = ImmutableMap.builder();
+            for (int seat = 0; seat < wins.length; seat++) {
+                winsByPlayer.put(players.get(seat).getUsername(), wins[seat]);
+            }
+            return new SimulationReport(games, moves, rejectedMoves, winsByPlayer.build(), draws, unfinished, allocatedBytes, elapsed);
+        }
+    }
+
+}
@@ -0,0 +1,124 @@
+package org.playerhook.games.simulation;
+
+import com.google.common.collect.ImmutableMap;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Outcome of the {@link Simulation}.
+ */
+public final class SimulationReport {
+
+    private final long games;
+    private final long moves;
+    private final long rejectedMoves;
+    private final ImmutableMap<String, Long> wins;
+    private final long draws;
+    private final long unfinished;
+    private final long allocatedBytes;
+    private final Duration elapsed;
+
+    SimulationReport(long games, long moves, long rejectedMoves, ImmutableMap<String, Long> wins, long draws,
+                     long unfinished, long allocatedBytes, Duration elapsed) {
+        this.games = games;
+        this.moves = moves;
+        this.rejectedMoves = rejectedMoves;
+        this.wins = wins;
+        this.draws = draws;
+        this.unfinished = unfinished;
+        this.allocatedBytes = allocatedBytes;
+        this.elapsed = elapsed;
+    }
+
+    public long getGames() {
+        return games;
+    }
+
+    /**
+     * @return number of the moves played in all the games including the rejected ones
+     */
+    public long getMoves() {
+        return moves;
+    }
+
+    public long getRejectedMoves() {
+        return rejectedMoves;
+    }
+
+    /**
+     * @return number of the games won by each of the players by their usernames, in the order of the seats
+     */
+    public Map<String, Long> getWins() {
+        return wins;
+    }
+
+    /**
+     * @return number of the finished games without single player with the highest score
+     */
+    public long getDraws() {
+        return draws;
+    }
+
+    /**
+     * @return number of the games which have not finished within the maximal number of moves
+     */
+    public long getUnfinished() {
+        return unfinished;
+    }
+
+    /**
+     * @return bytes allocated by the worker threads or <code>-1</code> if the JVM does not measure the allocations
+     */
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    public Duration getElapsed() {
+        return elapsed;
+    }
+
+    public double getGamesPerSecond() {
+        return perSecond(games);
+    }
+
+    public double getMovesPerSecond() {
+        return perSecond(moves);
+    }
+
+    /**
+     * @return average bytes allocated per game or <code>-1</code> if the JVM does not measure the allocations
+     */
+    public long getAllocatedBytesPerGame() {
+        if (allocatedBytes < 0 || games == 0) {
+            return -1;
+        }
+        return allocatedBytes / games;
+    }
+
+    private double perSecond(long count) {
+        long nanos = elapsed.toNanos();
+        return nanos == 0 ? 0 : count * 1e9 / nanos;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(String.format("%d games and %d moves (%d rejected) in %d ms, %.0f games/s, %.0f moves/s%n",
+                games, moves, rejectedMoves, elapsed.toMillis(), getGamesPerSecond(), getMovesPerSecond()));
+        for (Map.Entry<String, Long> win : wins.entrySet()) {
+            builder.append(String.format("  %s won %d (%.1f%%)%n", win.getKey(), win.getValue(), percent(win.getValue())));
+        }
+        builder.append(String.format("  draws %d (%.1f%%), unfinished %d%n", draws, percent(draws), unfinished));
+        if (allocatedBytes >= 0) {
+            builder.append(String.format("  allocated %d bytes per game", getAllocatedBytesPerGame()));
+        } else {
+            builder.append("  allocations not measured");
+        }
+        return builder.toString();
+    }
+
+    private double percent(long count) {
+        return games == 0 ? 0 : count * 100.0 / games;
+    }
+}
@@ -0,0 +1,51 @@
+package org.playerhook.games.simulation;
+
+import org.playerhook.games.api.LocalSession;
+import org.playerhook.games.tictactoe.TicTacToeRules;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Runs the tic tac toe simulation from the command line.
+ *
+ * The arguments are given as <code>name=value</code> pairs, for example
+ * <code>toWin=5 games=100000 threads=8 seed=42 first=random second=alphabeta:2</code>. The strategies are either
+ * <code>random</code> or <code>alphabeta:depth</code>.
+ */
+public final class SimulationRunner {
+
+    private SimulationRunner() { }
+
+    public static void main(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Arguments must be given as name=value but was " + arg);
+            }
+            options.put(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+
+        Simulation simulation = Simulation.builder(ticTacToe(Integer.parseInt(options.getOrDefault("toWin", "3"))))
+                .player("first", Strategies.parse(options.getOrDefault("first", "random")))
+                .player("second", Strategies.parse(options.getOrDefault("second", "random")))
+                .games(Long.parseLong(options.getOrDefault("games", "100000")))
+                .threads(Integer.parseInt(options.getOrDefault("threads", String.valueOf(Runtime.getRuntime().availableProcessors()))))
+                .seed(Long.parseLong(options.getOrDefault("seed", "0")))
+                .build();
+
+        System.out.println(simulation.run());
+    }
+
+    static Supplier<LocalSession> ticTacToe(int toWin) {
+        switch (toWin) {
+            case 3: return () -> TicTacToeRules.matchThree(null, null);
+            case 4: return () -> TicTacToeRules.matchFour(null, null);
+            case 5: return () -> TicTacToeRules.matchFive(null, null);
+            case 6: return () -> TicTacToeRules.matchSix(null, null);
+            default: throw new IllegalArgumentException("Unsupported tic tac toe variant: " + toWin);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package org.playerhook.games.simulation;
+
+import com.google.common.base.Preconditions;
+import org.playerhook.games.api.LocalSession;
+import org.playerhook.games.api.Player;
+import org.playerhook.games.api.Position;
+import org.playerhook.games.api.Token;
+import org.playerhook.games.api.TokenPlacement;
+import org.playerhook.games.tictactoe.AlphaBetaSearch;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * Built-in player strategies.
+ */
+public final class Strategies {
+
+    private static final Duration UNLIMITED = Duration.ofDays(1);
+
+    private Strategies() { }
+
+    /**
+     * @return strategy placing the first playable token to the random free position
+     */
+    public static Supplier<PlayerStrategy> random() {
+        return () -> Strategies::playRandom;
+    }
+
+    /**
+     * @param depth the depth of the search in plies
+     * @return strategy playing the best moves found by the alpha-beta search of fixed depth
+     * @see AlphaBetaSearch
+     */
+    public static Supplier<PlayerStrategy> alphaBeta(int depth) {
+        return alphaBeta(depth, AlphaBetaSearch.DEFAULT_TABLE_BITS);
+    }
+
+    /**
+     * @param depth the depth of the search in plies
+     * @param tableBits the size of the transposition table as the power of two
+     * @return strategy playing the best moves found by the alpha-beta search of fixed depth
+     * @see AlphaBetaSearch
+     */
+    public static Supplier<PlayerStrategy> alphaBeta(int depth, int tableBits) {
+        Preconditions.checkArgument(depth > 0, "Depth must be at least 1");
+        return () -> new AlphaBetaStrategy(AlphaBetaSearch.create(tableBits), depth);
+    }
+
+    /**
+     * Parses the strategy from its name, either <code>random</code> or <code>alphabeta:depth</code>.
+     *
+     * @param name the name of the strategy
+     * @return the strategy
+     * @throws IllegalArgumentException if the strategy is not known
+     */
+    public static Supplier<PlayerStrategy> parse(String name) {
+        if ("random".equals(name)) {
+            return random();
+        }
+        if (name.startsWith("alphabeta:")) {
+            return alphaBeta(Integer.parseInt(name.substring("alphabeta:".length())));
+        }
+        throw new IllegalArgumentException("Unknown strategy: " + name);
+    }
+
+    private static TokenPlacement playRandom(LocalSession session, Player player, Random random) {
+        List<Position> free = session.getBoard().getFreePositions();
+        Preconditions.checkState(!free.isEmpty(), "There is no free position left");
+        return session.newPlacement(firstPlayable(session, player), player, free.get(random.nextInt(free.size())));
+    }
+
+    private static Token firstPlayable(LocalSession session, Player player) {
+        List<Token> tokens = session.getDeck(player).getPlayableTokens();
+        Preconditions.checkState(!tokens.isEmpty(), "Player %s has no token left", player);
+        return tokens.get(0);
+    }
+
+    private static final class AlphaBetaStrategy implements PlayerStrategy {
+
+        private final AlphaBetaSearch search;
+        private final int depth;
+
+        AlphaBetaStrategy(AlphaBetaSearch search, int depth) {
+            this.search = search;
+            this.depth = depth;
+        }
+
+        @Override
+        public TokenPlacement play(LocalSession session, Player player, Random random) {
+            AlphaBetaSearch.Result result = search.search(session, player, UNLIMITED, depth);
+            if (!result.getPosition().isPresent()) {
+                return playRandom(session, player, random);
+            }
+            return session.newPlacement(firstPlayable(session, player), player, result.getPosition().get());
+        }
+
+        @Override
+        public void newGame() {
+            search.clear();
+        }
+    }
+
+}
@@ -0,0 +1,66 @@
+package org.playerhook.games.simulation
+
+import org.playerhook.games.tictactoe.TicTacToeRules
+import spock.lang.Specification
+
+/**
+ * Tests for the simulation.
+ */
+class SimulationSpec extends Specification {
+
+    void 'outcome does not depend on number of threads'() {
+        when:
+            SimulationReport single = simulation(1, 42).run()
+            SimulationReport parallel = simulation(4, 42).run()
+        then:
+            single.games == 200
+            single.wins.keySet().toList() == ['dartagnan', 'athos']
+            single.wins.values().sum() + single.draws + single.unfinished == 200
+            single.unfinished == 0
+            single.rejectedMoves == 0
+            single.moves >= 200 * 5
+            single.gamesPerSecond > 0
+        and:
+            parallel.wins == single.wins
+            parallel.draws == single.draws
+            parallel.moves == single.moves
+    }
+
+    void 'search always beats random player'() {
+        when:
+            SimulationReport report = Simulation.builder { TicTacToeRules.matchThree(null, null) }
+                .player('dartagnan', Strategies.alphaBeta(3, 12))
+                .player('athos', Strategies.random())
+                .games(20)
+                .threads(2)
+                .build()
+                .run()
+        then:
+            report.wins.dartagnan == 20
+    }
+
+    void 'games are stopped after maximal number of moves'() {
+        when:
+            SimulationReport report = Simulation.builder { TicTacToeRules.matchFive(null, null) }
+                .player('dartagnan', Strategies.random())
+                .player('athos', Strategies.random())
+                .games(10)
+                .maxMoves(4)
+                .build()
+                .run()
+        then:
+            report.unfinished == 10
+            report.moves == 40
+    }
+
+    private static Simulation simulation(int threads, long seed) {
+        return Simulation.builder { TicTacToeRules.matchThree(null, null) }
+            .player('dartagnan', Strategies.random())
+            .player('athos', Strategies.random())
+            .games(200)
+            .threads(threads)
+            .seed(seed)
+            .build()
+    }
+
+}
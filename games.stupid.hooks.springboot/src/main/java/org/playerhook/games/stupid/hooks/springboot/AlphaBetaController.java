@@ -0,0 +1,56 @@
+package org.playerhook.games.stupid.hooks.springboot;
+
+import org.playerhook.games.api.Player;
+import org.playerhook.games.api.Position;
+import org.playerhook.games.api.Session;
+import org.playerhook.games.api.SessionReplica;
+import org.playerhook.games.api.Token;
+import org.playerhook.games.tictactoe.AlphaBetaSearch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.metrics.GaugeService;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.RequestMapping;
+
+import java.time.Duration;
+
+/**
+ * Plays the tic tac toe moves found by the alpha-beta search within the configured time budget.
+ */
+@Controller
+@RequestMapping("/alphabeta")
+public class AlphaBetaController extends HookController {
+
+    @Autowired
+    public AlphaBetaController(GameService gameService, SessionReplica sessionReplica, UpdateDispatcher updateDispatcher, AlphaBetaProperties properties, ObjectProvider<GaugeService> gaugeService) {
+        super(gameService, sessionReplica, updateDispatcher, gaugeService.getIfAvailable(), new SearchStrategy(properties));
+    }
+
+    /**
+     * Keeps the search and its transposition table per thread as the updates are processed by the fixed threads.
+     */
+    private static final class SearchStrategy implements MoveStrategy {
+
+        private final Logger log = LoggerFactory.getLogger(AlphaBetaController.class);
+
+        private final Duration budget;
+        private final ThreadLocal<AlphaBetaSearch> search;
+
+        SearchStrategy(AlphaBetaProperties properties) {
+            this.budget = Duration.ofMillis(properties.getBudget());
+            this.search = ThreadLocal.withInitial(() -> AlphaBetaSearch.create(properties.getTableBits()));
+        }
+
+        @Override
+        public Position choose(Session session, Player player, Token token) {
+            AlphaBetaSearch.Result result = search.get().search(session, player, budget);
+            if (log.isDebugEnabled()) {
+                log.debug(result.toString());
+            }
+            return result.getPosition().orElseGet(() -> GameService.randomPosition(session, player, token));
+        }
+    }
+
+}
@@ -0,0 +1,37 @@
+package org.playerhook.games.stupid.hooks.springboot;
+
+import org.playerhook.games.tictactoe.AlphaBetaSearch;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Settings of the {@link AlphaBetaController}, configured using <code>playerhook.alphabeta.*</code> properties.
+ */
+@ConfigurationProperties(prefix = "playerhook.alphabeta")
+public class AlphaBetaProperties {
+
+    /**
+     * Time budget of the search of single move in milliseconds.
+     */
+    private long budget = 200;
+
+    /**
+     * Size of the transposition table of each of the threads as the power of two.
+     */
+    private int tableBits = AlphaBetaSearch.DEFAULT_TABLE_BITS;
+
+    public long getBudget() {
+        return budget;
+    }
+
+    public void setBudget(long budget) {
+        this.budget = budget;
+    }
+
+    public int getTableBits() {
+        return tableBits;
+    }
+
+    public void setTableBits(int tableBits) {
+        this.tableBits = tableBits;
+    }
+}
@@ -0,0 +1,33 @@
+package org.playerhook.games.stupid.hooks.springboot;
+
+import org.springframework.http.HttpStatus;
+
+/**
+ * Acknowledgement of single entry of the batch of the session updates.
+ *
+ * The status is the same as the status which would be returned for the entry sent separately.
+ */
+public class BatchAcknowledgement {
+
+    private final String username;
+    private final boolean acknowledged;
+    private final int status;
+
+    BatchAcknowledgement(String username, HttpStatus status) {
+        this.username = username;
+        this.acknowledged = status.is2xxSuccessful();
+        this.status = status.value();
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public boolean isAcknowledged() {
+        return acknowledged;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+}
@@ -1,40 +1,106 @@
 package org.playerhook.games.stupid.hooks.springboot;
 
-import com.google.common.collect.ImmutableList;
 import org.playerhook.games.api.*;
 import org.playerhook.games.util.Acknowledgement;
-import org.playerhook.games.util.MapSerializable;
 import org.playerhook.games.util.SessionPrinter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.metrics.CounterService;
+import org.springframework.boot.actuate.metrics.GaugeService;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestClientException;
-import org.springframework.web.client.RestTemplate;
 
 import java.net.URL;
-import java.security.SecureRandom;
+import java.util.List;
 import java.util.Optional;
-
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Plays the moves of the hooked players.
+ *
+ * The time of the decision is recorded as <code>histogram.updates.decision</code> in microseconds, the latency of the
+ * placements as <code>timer.placements.acknowledged</code>, <code>timer.placements.notAcknowledged</code> or
+ * <code>timer.placements.failed</code> in milliseconds and the skipped updates are counted as
+ * <code>updates.skipped.*</code> by the reason. The percentiles of the histograms and the timers are exposed by
+ * the actuator as Dropwizard metrics are on the classpath.
+ */
 @Service
 public class GameService {
 
     private final Logger log = LoggerFactory.getLogger(this.getClass());
-    private final SecureRandom random = new SecureRandom();
+    private final PlacementClient placementClient;
+    private final CounterService counterService;
+    private final GaugeService gaugeService;
+
+    @Autowired
+    public GameService(PlacementClient placementClient, ObjectProvider<CounterService> counterService, ObjectProvider<GaugeService> gaugeService) {
+        this(placementClient, counterService.getIfAvailable(), gaugeService.getIfAvailable());
+    }
 
-    public void sendPlacement(URL url, TokenPlacement placement) {
+    GameService(PlacementClient placementClient, CounterService counterService, GaugeService gaugeService) {
+        this.placementClient = placementClient;
+        this.counterService = counterService;
+        this.gaugeService = gaugeService;
+    }
+
+    /**
+     * Sends the placement in the background.
+     *
+     * @return future completed once the session server has acknowledged the placement, never completed exceptionally
+     *          as the failures are only logged
+     */
+    public CompletableFuture<Acknowledgement> sendPlacement(URL url, TokenPlacement placement) {
         if (log.isInfoEnabled()) {
             log.info("Notifying session " + url + " with " + placement);
         }
+        long start = System.nanoTime();
+        return placementClient.send(url, placement).handle((acknowledgement, e) -> {
+            long latency = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            if (e != null) {
+                submit("timer.placements.failed", latency);
+                log.error("Exception sending placement " + placement + " to " + url + ": " + e.toString());
+                return Acknowledgement.NOT_ACKNOWLEDGED;
+            }
+            submit(acknowledgement.isAcknowledged() ? "timer.placements.acknowledged" : "timer.placements.notAcknowledged", latency);
+            return acknowledgement;
+        });
+    }
+
+    public void playIfOnTurn(SessionUpdate update, String username, String key) {
+        playIfOnTurn(update, username, key, GameService::randomPosition);
+    }
+
+    /**
+     * Plays the next token of the player if the player is on turn.
+     *
+     * @param update the session update received
+     * @param username the username of the player
+     * @param key the key to sign the placement with
+     * @param strategy strategy choosing the destination of the token
+     */
+    public void playIfOnTurn(SessionUpdate update, String username, String key, MoveStrategy strategy) {
+        long start = System.nanoTime();
+        Optional<TokenPlacement> placement;
         try {
-            new RestTemplate().postForObject(url.toExternalForm(), placement.toMap(MapSerializable.PrivacyLevel.PROTECTED), Acknowledgement.class);
-        } catch (RestClientException e) {
-            log.error("Exception sending placement " + placement + " to " + url + ": " + e.toString());
+            placement = decide(update, username, key, strategy);
+        } finally {
+            // recorded for the skipped updates too so the histogram covers every decision, not only the placements sent
+            submit("histogram.updates.decision", TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
         }
+        placement.ifPresent(p -> sendPlacement(update.getSession().getURL().get(), p));
     }
 
-    public void playIfOnTurn(SessionUpdate update, String username, String key) {
-        if (log.isInfoEnabled()) {
-            log.info("Processing session update for " + username + ": " + update + "\n" + SessionPrinter.toString(update));
+    /**
+     * @return the placement to be sent or empty if the player should not play
+     */
+    private Optional<TokenPlacement> decide(SessionUpdate update, String username, String key, MoveStrategy strategy) {
+        if (log.isDebugEnabled()) {
+            log.debug("Processing session update for " + username + ": " + update + "\n" + SessionPrinter.toString(update));
+        } else if (log.isInfoEnabled()) {
+            log.info("Processing session update for " + username + ": " + update);
         }
         Session session = update.getSession();
 
@@ -42,7 +108,8 @@ public class GameService {
             if (log.isInfoEnabled()) {
                 log.info("Session is no longer in progress: " + update);
             }
-            return;
+            increment("updates.skipped.notInProgress");
+            return Optional.empty();
         }
 
         Optional<Player> playerOnTurn = session.getPlayerOnTurn();
@@ -51,7 +118,8 @@ public class GameService {
             if (log.isInfoEnabled()) {
                 log.info("There is no player on turn: " + update);
             }
-            return;
+            increment("updates.skipped.noPlayerOnTurn");
+            return Optional.empty();
         }
 
         Player player = session.getPlayers().stream()
@@ -64,37 +132,54 @@ public class GameService {
             if (log.isInfoEnabled()) {
                 log.info("Current player " + username + " is not on turn: " + update);
             }
-            return;
+            increment("updates.skipped.notOnTurn");
+            return Optional.empty();
         }
 
         Deck deck = session.getDeck(player);
 
-        ImmutableList<Token> playableTokens = deck.getPlayableTokens();
-
-        if (playableTokens.size() == 0) {
+        if (deck.getPlayableCount() == 0) {
             if (log.isInfoEnabled()) {
                 log.info("No more moves for " + username + ": " + update);
             }
-            return;
+            increment("updates.skipped.noTokens");
+            return Optional.empty();
         }
 
-        Token token = playableTokens.get(0);
+        Token token = deck.getPlayableTokens().get(0);
 
-        session.getURL().ifPresent(url -> sendPlacement(url, randomPlacement(key, session, player, token)));
+        if (!session.getURL().isPresent()) {
+            return Optional.empty();
+        }
+        return Optional.of(session.newPlacement(token, player, strategy.choose(session, player, token)).sign(key));
     }
 
-    private TokenPlacement randomPlacement(String key, Session session, Player player, Token token) {
-        int counter = 0;
-        while (++counter <= 100) {
-            int nextRow = session.getBoard().getFirstRow() + random.nextInt(session.getBoard().getHeight());
-            int nextCol = session.getBoard().getFirstColumn() + random.nextInt(session.getBoard().getHeight());
-            if (!session.getBoard().getTokenPlacement(Position.at(nextRow, nextCol)).isPresent()
-                    || session.getBoard().isCompletelyFilled()
-                    || counter == 100
-            ) {
-                return session.newPlacement(token, player, Position.at(nextRow, nextCol)).sign(key);
-            }
+    /**
+     * Picks the destination uniformly from the free positions of the board.
+     */
+    static Position randomPosition(Session session, Player player, Token token) {
+        Board board = session.getBoard();
+        List<Position> freePositions = board.getFreePositions();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Position destination;
+        if (freePositions.isEmpty()) {
+            // nothing left to play, the session will reject the placement
+            destination = Position.at(board.getFirstRow() + random.nextInt(board.getHeight()), board.getFirstColumn() + random.nextInt(board.getWidth()));
+        } else {
+            destination = freePositions.get(random.nextInt(freePositions.size()));
+        }
+        return destination;
+    }
+
+    private void increment(String metric) {
+        if (counterService != null) {
+            counterService.increment(metric);
+        }
+    }
+
+    private void submit(String metric, double value) {
+        if (gaugeService != null) {
+            gaugeService.submit(metric, value);
         }
-        throw new IllegalStateException("Problem retrieving next random move after 100 attemps!");
     }
 }
@@ -0,0 +1,129 @@
+package org.playerhook.games.stupid.hooks.springboot;
+
+import org.playerhook.games.api.JsonCodec;
+import org.playerhook.games.api.SessionReplica;
+import org.playerhook.games.api.SessionUpdate;
+import org.playerhook.games.util.Acknowledgement;
+import org.springframework.boot.actuate.metrics.GaugeService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Base of the hook endpoints which play the moves chosen by the given strategy.
+ *
+ * The time spent parsing the request bodies is recorded as <code>histogram.updates.parse</code> and
+ * <code>histogram.updates.batch.parse</code> in microseconds.
+ */
+public abstract class HookController {
+
+    private final GameService gameService;
+    private final SessionReplica sessionReplica;
+    private final UpdateDispatcher updateDispatcher;
+    private final GaugeService gaugeService;
+    private final MoveStrategy strategy;
+
+    /**
+     * @param gaugeService the gauge service used to record the parse time, may be <code>null</code>
+     */
+    protected HookController(GameService gameService, SessionReplica sessionReplica, UpdateDispatcher updateDispatcher, GaugeService gaugeService, MoveStrategy strategy) {
+        this.gameService = gameService;
+        this.sessionReplica = sessionReplica;
+        this.updateDispatcher = updateDispatcher;
+        this.gaugeService = gaugeService;
+        this.strategy = strategy;
+    }
+
+    /**
+     * Accepts full or delta encoded session updates. If the delta does not match the last known session then
+     * <code>409 Conflict</code> is returned and the full snapshot of the session should be sent.
+     *
+     * The update is only decoded before returning <code>202 Accepted</code>, the move is played in the background.
+     * If there are too many updates waiting then <code>503 Service Unavailable</code> is returned with
+     * <code>Retry-After</code> header.
+     */
+    @RequestMapping(method=RequestMethod.POST)
+    public @ResponseBody
+    ResponseEntity<Acknowledgement> playIfOnTurn(@RequestBody String body,
+                                 @RequestParam("u") String username,
+                                 @RequestHeader(name = "X-PlayerHook-Player-Key", required = false) String key) {
+        long start = System.nanoTime();
+        Optional<SessionUpdate> update = JsonCodec.readSessionUpdate(body, sessionReplica);
+        submit("histogram.updates.parse", start);
+        if (!update.isPresent()) {
+            return new ResponseEntity<>(Acknowledgement.NOT_ACKNOWLEDGED, HttpStatus.CONFLICT);
+        }
+        if (!dispatch(update.get(), username, key)) {
+            return new ResponseEntity<>(Acknowledgement.NOT_ACKNOWLEDGED, retryAfter(), HttpStatus.SERVICE_UNAVAILABLE);
+        }
+        return new ResponseEntity<>(Acknowledgement.ACKNOWLEDGED, HttpStatus.ACCEPTED);
+    }
+
+    /**
+     * Accepts the batch of the session updates for multiple players as JSON array or newline delimited JSON of
+     * entries such as <code>{"username": "athos", "key": "...", "update": { ... }}</code>.
+     *
+     * Each entry is acknowledged separately with the status which would be returned if the entry was sent alone.
+     * The identical updates for the players of the same session are decoded only once. If any of the entries have
+     * been rejected because of too many updates waiting, the <code>Retry-After</code> header is present.
+     */
+    @RequestMapping(path = "/batch", method = RequestMethod.POST)
+    public @ResponseBody
+    ResponseEntity<List<BatchAcknowledgement>> playBatchIfOnTurn(@RequestBody String body) {
+        long start = System.nanoTime();
+        UpdateBatch batch = UpdateBatch.read(body);
+        Map<String, Optional<SessionUpdate>> updates = batch.decode(sessionReplica);
+        submit("histogram.updates.batch.parse", start);
+
+        List<BatchAcknowledgement> acknowledgements = new ArrayList<>(batch.getEntries().size());
+        boolean rejected = false;
+        for (UpdateBatch.Entry entry : batch.getEntries()) {
+            Optional<SessionUpdate> update = updates.get(entry.getUpdate());
+            HttpStatus status;
+            if (entry.getUsername() == null || update == null) {
+                status = HttpStatus.BAD_REQUEST;
+            } else if (!update.isPresent()) {
+                status = HttpStatus.CONFLICT;
+            } else if (dispatch(update.get(), entry.getUsername(), entry.getKey())) {
+                status = HttpStatus.ACCEPTED;
+            } else {
+                status = HttpStatus.SERVICE_UNAVAILABLE;
+                rejected = true;
+            }
+            acknowledgements.add(new BatchAcknowledgement(entry.getUsername(), status));
+        }
+
+        return new ResponseEntity<>(acknowledgements, rejected ? retryAfter() : new HttpHeaders(), HttpStatus.OK);
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Acknowledgement> malformedUpdate() {
+        return new ResponseEntity<>(Acknowledgement.NOT_ACKNOWLEDGED, HttpStatus.BAD_REQUEST);
+    }
+
+    private boolean dispatch(SessionUpdate update, String username, String key) {
+        String sessionKey = update.getSession().getURL().map(URL::toExternalForm).orElse(username);
+        return updateDispatcher.dispatch(sessionKey, () -> gameService.playIfOnTurn(update, username, key, strategy));
+    }
+
+    private HttpHeaders retryAfter() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, String.valueOf(updateDispatcher.getRetryAfter()));
+        return headers;
+    }
+
+    private void submit(String metric, long start) {
+        if (gaugeService != null) {
+            gaugeService.submit(metric, TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+        }
+    }
+
+}
@@ -0,0 +1,22 @@
+package org.playerhook.games.stupid.hooks.springboot;
+
+import org.playerhook.games.api.Player;
+import org.playerhook.games.api.Position;
+import org.playerhook.games.api.Session;
+import org.playerhook.games.api.Token;
+
+/**
+ * Chooses the destination of the next token of the player on turn.
+ */
+@FunctionalInterface
+public interface MoveStrategy {
+
+    /**
+     * @param session the current session in progress
+     * @param player the player on turn
+     * @param token the token to be placed
+     * @return the destination of the token
+     */
+    Position choose(Session session, Player player, Token token);
+
+}
@@ -0,0 +1,151 @@
+package org.playerhook.games.stupid.hooks.springboot;
+
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.playerhook.games.api.TokenPlacement;
+import org.playerhook.games.util.Acknowledgement;
+import org.playerhook.games.util.MapSerializable;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.metrics.CounterService;
+import org.springframework.boot.actuate.metrics.GaugeService;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.net.URL;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends the token placements to the session servers in the background.
+ *
+ * The connections are pooled and kept alive between the placements, limited both in total and per session server.
+ * The number of the placements in flight is bounded, the placements over the limit are rejected immediately instead
+ * of queueing up behind slow session servers. The outcome of each placement is counted as
+ * <code>counter.placements.sent</code>, <code>counter.placements.failed</code> or
+ * <code>counter.placements.rejected</code> and the number of the placements in flight is reported as
+ * <code>gauge.placements.inFlight</code> if the actuator metrics are available.
+ *
+ * The requests are deliberately executed by the blocking {@link RestTemplate} on a fixed pool of threads rather than
+ * by a non-blocking HTTP client. The service keeps its single HTTP stack and the callers are never blocked anyway as
+ * they only receive the future.
+ */
+@Component
+public class PlacementClient {
+
+    private final PoolingHttpClientConnectionManager connectionManager;
+    private final CloseableHttpClient httpClient;
+    private final RestTemplate restTemplate;
+    private final ExecutorService executor;
+    private final Semaphore window;
+    private final int maxInFlight;
+    private final CounterService counterService;
+    private final GaugeService gaugeService;
+
+    @Autowired
+    public PlacementClient(PlacementClientProperties properties, ObjectProvider<CounterService> counterService, ObjectProvider<GaugeService> gaugeService) {
+        this(properties, counterService.getIfAvailable(), gaugeService.getIfAvailable());
+    }
+
+    PlacementClient(PlacementClientProperties properties, CounterService counterService, GaugeService gaugeService) {
+        this.connectionManager = new PoolingHttpClientConnectionManager();
+        this.connectionManager.setMaxTotal(properties.getMaxConnections());
+        this.connectionManager.setDefaultMaxPerRoute(properties.getMaxConnectionsPerHost());
+
+        this.httpClient = HttpClients.custom()
+            .setConnectionManager(connectionManager)
+            .setDefaultRequestConfig(RequestConfig.custom()
+                .setConnectionRequestTimeout(properties.getConnectTimeout())
+                .setConnectTimeout(properties.getConnectTimeout())
+                .setSocketTimeout(properties.getReadTimeout())
+                .build())
+            .build();
+
+        this.restTemplate = new RestTemplate(new HttpComponentsClientHttpRequestFactory(httpClient));
+        this.executor = Executors.newFixedThreadPool(properties.getThreads(), new CustomizableThreadFactory("placement-client-"));
+        this.maxInFlight = properties.getMaxInFlight();
+        this.window = new Semaphore(maxInFlight);
+        this.counterService = counterService;
+        this.gaugeService = gaugeService;
+    }
+
+    /**
+     * Sends the placement to the session server without blocking the caller.
+     *
+     * @param url url of the session
+     * @param placement placement to be sent
+     * @return future completed with the acknowledgement of the session server or failed with
+     *          {@link RejectedExecutionException} if there are too many placements in flight
+     */
+    public CompletableFuture<Acknowledgement> send(URL url, TokenPlacement placement) {
+        if (!window.tryAcquire()) {
+            return rejected(new RejectedExecutionException("Too many placements in flight, rejecting " + placement));
+        }
+
+        reportInFlight();
+
+        Object payload = placement.toMap(MapSerializable.PrivacyLevel.PROTECTED);
+        CompletableFuture<Acknowledgement> result;
+        try {
+            result = CompletableFuture.supplyAsync(() -> restTemplate.postForObject(url.toExternalForm(), payload, Acknowledgement.class), executor);
+        } catch (RejectedExecutionException e) {
+            window.release();
+            reportInFlight();
+            return rejected(e);
+        }
+
+        return result.whenComplete((acknowledgement, throwable) -> {
+            window.release();
+            reportInFlight();
+            increment(throwable == null ? "placements.sent" : "placements.failed");
+        });
+    }
+
+    /**
+     * @return the number of the placements being sent or waiting to be sent
+     */
+    public int getInFlight() {
+        return maxInFlight - window.availablePermits();
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        httpClient.close();
+    }
+
+    private CompletableFuture<Acknowledgement> rejected(RejectedExecutionException e) {
+        increment("placements.rejected");
+        CompletableFuture<Acknowledgement> rejected = new CompletableFuture<>();
+        rejected.completeExceptionally(e);
+        return rejected;
+    }
+
+    private void increment(String metric) {
+        if (counterService != null) {
+            counterService.increment(metric);
+        }
+    }
+
+    private void reportInFlight() {
+        if (gaugeService != null) {
+            gaugeService.submit("placements.inFlight", getInFlight());
+        }
+    }
+
+}
@@ -0,0 +1,88 @@
+package org.playerhook.games.stupid.hooks.springboot;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Settings of the {@link PlacementClient}, configured using <code>playerhook.placements.*</code> properties.
+ */
+@ConfigurationProperties(prefix = "playerhook.placements")
+public class PlacementClientProperties {
+
+    /**
+     * Timeout for establishing the connection to the session server in milliseconds.
+     */
+    private int connectTimeout = 2000;
+
+    /**
+     * Timeout for reading the response of the session server in milliseconds.
+     */
+    private int readTimeout = 5000;
+
+    /**
+     * Maximum number of the pooled connections.
+     */
+    private int maxConnections = 64;
+
+    /**
+     * Maximum number of the pooled connections to single session server.
+     */
+    private int maxConnectionsPerHost = 8;
+
+    /**
+     * Maximum number of the placements being sent or waiting to be sent, the placements over this limit are rejected.
+     */
+    private int maxInFlight = 256;
+
+    /**
+     * Number of the threads sending the placements.
+     */
+    private int threads = 16;
+
+    public int getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    public void setConnectTimeout(int connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+
+    public int getReadTimeout() {
+        return readTimeout;
+    }
+
+    public void setReadTimeout(int readTimeout) {
+        this.readTimeout = readTimeout;
+    }
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    public void setMaxConnections(int maxConnections) {
+        this.maxConnections = maxConnections;
+    }
+
+    public int getMaxConnectionsPerHost() {
+        return maxConnectionsPerHost;
+    }
+
+    public void setMaxConnectionsPerHost(int maxConnectionsPerHost) {
+        this.maxConnectionsPerHost = maxConnectionsPerHost;
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    public void setMaxInFlight(int maxInFlight) {
+        this.maxInFlight = maxInFlight;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+}
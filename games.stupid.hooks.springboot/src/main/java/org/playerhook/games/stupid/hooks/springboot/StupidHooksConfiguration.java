@@ -1,14 +1,22 @@
 package org.playerhook.games.stupid.hooks.springboot;
 
+import org.playerhook.games.api.SessionReplica;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 
-@SpringBootApplication @ComponentScan
+@SpringBootApplication @ComponentScan @EnableConfigurationProperties({PlacementClientProperties.class, UpdateDispatcherProperties.class, AlphaBetaProperties.class})
 public class StupidHooksConfiguration {
 
     public static void main(String[] args) {
         SpringApplication.run(StupidHooksConfiguration.class, args);
     }
 
+    @Bean
+    public SessionReplica sessionReplica() {
+        return SessionReplica.create();
+    }
+
 }
@@ -0,0 +1,152 @@
+package org.playerhook.games.stupid.hooks.springboot;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.google.common.collect.ImmutableList;
+import org.playerhook.games.api.JsonCodec;
+import org.playerhook.games.api.SessionReplica;
+import org.playerhook.games.api.SessionUpdate;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Batch of the session updates for multiple players.
+ *
+ * The batch is either JSON array or newline delimited JSON of the entries such as
+ * <code>{"username": "athos", "key": "...", "update": { ... }}</code>. The updates are kept as JSON until
+ * {@link #decode(SessionReplica)} is called, the identical updates sent to the different players of the same session
+ * are decoded only once.
+ */
+final class UpdateBatch {
+
+    private static final JsonFactory FACTORY = new JsonFactory();
+
+    /**
+     * Single entry of the batch.
+     */
+    static final class Entry {
+        private final String username;
+        private final String key;
+        private final String update;
+
+        Entry(String username, String key, String update) {
+            this.username = username;
+            this.key = key;
+            this.update = update;
+        }
+
+        String getUsername() {
+            return username;
+        }
+
+        String getKey() {
+            return key;
+        }
+
+        String getUpdate() {
+            return update;
+        }
+    }
+
+    private final ImmutableList<Entry> entries;
+
+    private UpdateBatch(ImmutableList<Entry> entries) {
+        this.entries = entries;
+    }
+
+    /**
+     * Reads the batch from the JSON array or newline delimited JSON.
+     *
+     * @param body the body of the request
+     * @return the batch of the entries
+     * @throws IllegalArgumentException if the body is not valid batch
+     */
+    static UpdateBatch read(String body) {
+        ImmutableList.Builder<Entry> entries = ImmutableList.builder();
+        try (JsonParser parser = FACTORY.createParser(body)) {
+            JsonToken token = parser.nextToken();
+            boolean array = token == JsonToken.START_ARRAY;
+            if (array) {
+                token = parser.nextToken();
+            }
+            while (token != null && !(array && token == JsonToken.END_ARRAY)) {
+                entries.add(readEntry(parser, body));
+                token = parser.nextToken();
+            }
+            if (array && token == null) {
+                throw new IllegalArgumentException("Batch array is not closed");
+            }
+            if (array && parser.nextToken() != null) {
+                throw new IllegalArgumentException("Unexpected content after the batch array");
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Cannot parse batch", e);
+        }
+        return new UpdateBatch(entries.build());
+    }
+
+    private static Entry readEntry(JsonParser parser, String body) throws IOException {
+        if (parser.getCurrentToken() != JsonToken.START_OBJECT) {
+            throw new IllegalArgumentException("Batch entry must be an object but was " + parser.getCurrentToken());
+        }
+        String username = null;
+        String key = null;
+        String update = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "username":
+                    username = value == JsonToken.VALUE_NULL ? null : parser.getText();
+                    break;
+                case "key":
+                    key = value == JsonToken.VALUE_NULL ? null : parser.getText();
+                    break;
+                case "update":
+                    int start = (int) parser.getTokenLocation().getCharOffset();
+                    parser.skipChildren();
+                    update = body.substring(start, (int) parser.getCurrentLocation().getCharOffset());
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        return new Entry(username, key, update);
+    }
+
+    List<Entry> getEntries() {
+        return entries;
+    }
+
+    /**
+     * Decodes the updates of the entries in the order of the batch.
+     *
+     * @param replica replica used to resolve the delta encoded updates
+     * @return decoded updates by their JSON, empty for the deltas which do not match the replica, missing for the
+     *          updates which cannot be decoded
+     */
+    Map<String, Optional<SessionUpdate>> decode(SessionReplica replica) {
+        Map<String, Optional<SessionUpdate>> decoded = new HashMap<>();
+        Set<String> malformed = new HashSet<>();
+        for (Entry entry : entries) {
+            String update = entry.getUpdate();
+            if (update == null || decoded.containsKey(update) || malformed.contains(update)) {
+                continue;
+            }
+            try {
+                decoded.put(update, JsonCodec.readSessionUpdate(update, replica));
+            } catch (IllegalArgumentException e) {
+                malformed.add(update);
+            }
+        }
+        return decoded;
+    }
+
+}
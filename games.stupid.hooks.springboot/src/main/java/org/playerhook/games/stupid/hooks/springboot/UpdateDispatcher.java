@@ -0,0 +1,135 @@
+package org.playerhook.games.stupid.hooks.springboot;
+
+import com.google.common.base.Preconditions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.metrics.CounterService;
+import org.springframework.boot.actuate.metrics.GaugeService;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Processes the session updates in the background.
+ *
+ * The updates are distributed to the lanes by the session so the updates of single session are processed one by one
+ * in the order they have arrived while the different sessions are processed in parallel. Each lane has its own
+ * bounded queue and the updates which do not fit are rejected immediately so the callers can shed the load. The
+ * number of the waiting updates is reported as <code>gauge.updates.queued</code>, the time spent in the queue as
+ * <code>gauge.timer.updates.wait</code> and the outcomes as <code>counter.updates.processed</code>,
+ * <code>counter.updates.failed</code> and <code>counter.updates.rejected</code> if the actuator metrics are available.
+ */
+@Component
+public class UpdateDispatcher {
+
+    private final Logger log = LoggerFactory.getLogger(this.getClass());
+
+    private final ThreadPoolExecutor[] lanes;
+    private final int retryAfter;
+    private final CounterService counterService;
+    private final GaugeService gaugeService;
+
+    @Autowired
+    public UpdateDispatcher(UpdateDispatcherProperties properties, ObjectProvider<CounterService> counterService, ObjectProvider<GaugeService> gaugeService) {
+        this(properties, counterService.getIfAvailable(), gaugeService.getIfAvailable());
+    }
+
+    UpdateDispatcher(UpdateDispatcherProperties properties, CounterService counterService, GaugeService gaugeService) {
+        Preconditions.checkArgument(properties.getLanes() > 0, "There must be at least one lane");
+        Preconditions.checkArgument(properties.getQueueCapacity() > 0, "Queue capacity must be positive");
+
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("update-dispatcher-");
+        this.lanes = new ThreadPoolExecutor[properties.getLanes()];
+        for (int i = 0; i < lanes.length; i++) {
+            lanes[i] = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(properties.getQueueCapacity()), threadFactory);
+        }
+        this.retryAfter = properties.getRetryAfter();
+        this.counterService = counterService;
+        this.gaugeService = gaugeService;
+    }
+
+    /**
+     * Schedules the update to be processed after all the updates of the same session dispatched before.
+     *
+     * @param sessionKey key identifying the session, e.g. its URL
+     * @param update the processing of the update
+     * @return <code>false</code> if the queue is full and the update has been rejected
+     */
+    public boolean dispatch(String sessionKey, Runnable update) {
+        ThreadPoolExecutor lane = lanes[Math.floorMod(sessionKey.hashCode(), lanes.length)];
+        long queued = System.nanoTime();
+        try {
+            lane.execute(() -> process(update, queued));
+        } catch (RejectedExecutionException e) {
+            increment("updates.rejected");
+            return false;
+        }
+        submit("updates.queued", getQueueDepth());
+        return true;
+    }
+
+    /**
+     * @return the number of the updates waiting to be processed
+     */
+    public int getQueueDepth() {
+        int depth = 0;
+        for (ThreadPoolExecutor lane : lanes) {
+            depth += lane.getQueue().size();
+        }
+        return depth;
+    }
+
+    /**
+     * @return number of seconds the rejected callers should wait before retrying
+     */
+    public int getRetryAfter() {
+        return retryAfter;
+    }
+
+    @PreDestroy
+    public void close() {
+        for (ThreadPoolExecutor lane : lanes) {
+            lane.shutdown();
+        }
+        try {
+            for (ThreadPoolExecutor lane : lanes) {
+                lane.awaitTermination(10, TimeUnit.SECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void process(Runnable update, long queued) {
+        submit("timer.updates.wait", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - queued));
+        try {
+            update.run();
+            increment("updates.processed");
+        } catch (RuntimeException e) {
+            increment("updates.failed");
+            log.error("Exception processing session update", e);
+        } finally {
+            submit("updates.queued", getQueueDepth());
+        }
+    }
+
+    private void increment(String metric) {
+        if (counterService != null) {
+            counterService.increment(metric);
+        }
+    }
+
+    private void submit(String metric, double value) {
+        if (gaugeService != null) {
+            gaugeService.submit(metric, value);
+        }
+    }
+
+}
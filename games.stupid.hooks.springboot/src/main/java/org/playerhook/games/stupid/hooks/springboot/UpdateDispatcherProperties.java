@@ -0,0 +1,50 @@
+package org.playerhook.games.stupid.hooks.springboot;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Settings of the {@link UpdateDispatcher}, configured using <code>playerhook.updates.*</code> properties.
+ */
+@ConfigurationProperties(prefix = "playerhook.updates")
+public class UpdateDispatcherProperties {
+
+    /**
+     * Number of the threads processing the session updates, the updates of single session are always processed by
+     * the same thread.
+     */
+    private int lanes = Runtime.getRuntime().availableProcessors() * 2;
+
+    /**
+     * Maximum number of the updates waiting for each of the threads, the updates over this limit are rejected.
+     */
+    private int queueCapacity = 64;
+
+    /**
+     * Number of seconds the session server should wait before retrying the rejected update.
+     */
+    private int retryAfter = 1;
+
+    public int getLanes() {
+        return lanes;
+    }
+
+    public void setLanes(int lanes) {
+        this.lanes = lanes;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    public int getRetryAfter() {
+        return retryAfter;
+    }
+
+    public void setRetryAfter(int retryAfter) {
+        this.retryAfter = retryAfter;
+    }
+}
@@ -0,0 +1,56 @@
+package org.playerhook.games.stupid.hooks.springboot
+
+import org.playerhook.games.api.LocalSession
+import org.playerhook.games.api.Player
+import org.playerhook.games.api.Position
+import org.playerhook.games.api.SessionUpdate
+import org.playerhook.games.api.SessionUpdateType
+import org.playerhook.games.tictactoe.TicTacToeRules
+import org.playerhook.games.tictactoe.TicTacToeTokens
+import org.springframework.boot.actuate.metrics.CounterService
+import org.springframework.boot.actuate.metrics.GaugeService
+import spock.lang.Specification
+
+/**
+ * Tests for the game service.
+ */
+class GameServiceSpec extends Specification {
+
+    Player dartagnan = Player.create('dartagnan')
+    Player athos = Player.create('athos')
+
+    void 'random position is only picked from free positions'() {
+        given:
+            LocalSession session = TicTacToeRules.matchThree(null, null).join(dartagnan).join(athos).start()
+            session = session.play(session.newPlacement(TicTacToeTokens.CROSS, dartagnan, Position.at(0, 0)))
+            session = session.play(session.newPlacement(TicTacToeTokens.CIRCLE, athos, Position.at(1, 1)))
+            session = session.play(session.newPlacement(TicTacToeTokens.CROSS, dartagnan, Position.at(2, 2)))
+        when:
+            Set<Position> destinations = (0..<1000).collect {
+                GameService.randomPosition(session, dartagnan, TicTacToeTokens.CROSS)
+            } as Set
+        then:
+            session.board.freeCount == session.board.width * session.board.height - 3
+            destinations == session.board.freePositions as Set
+    }
+
+    void 'skipped updates are counted by the reason'() {
+        given:
+            CounterService counterService = Mock(CounterService)
+            GaugeService gaugeService = Mock(GaugeService)
+            GameService service = new GameService(null, counterService, gaugeService)
+            LocalSession joined = TicTacToeRules.matchThree(null, new URL('http://www.example.com/ttt/1')).join(dartagnan).join(athos)
+            LocalSession started = joined.start()
+        when:
+            service.playIfOnTurn(SessionUpdate.of(joined, SessionUpdateType.Default.PLAYER), 'athos', null, GameService.&randomPosition)
+        then:
+            1 * counterService.increment('updates.skipped.notInProgress')
+            1 * gaugeService.submit('histogram.updates.decision', _)
+        when:
+            service.playIfOnTurn(SessionUpdate.of(started, SessionUpdateType.Default.STATUS), 'athos', null, GameService.&randomPosition)
+        then:
+            1 * counterService.increment('updates.skipped.notOnTurn')
+            1 * gaugeService.submit('histogram.updates.decision', _)
+    }
+
+}
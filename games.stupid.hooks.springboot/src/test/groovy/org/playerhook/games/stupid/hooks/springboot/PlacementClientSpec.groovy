@@ -0,0 +1,153 @@
+package org.playerhook.games.stupid.hooks.springboot
+
+import com.sun.net.httpserver.HttpExchange
+import com.sun.net.httpserver.HttpServer
+import org.playerhook.games.api.LocalSession
+import org.playerhook.games.api.Player
+import org.playerhook.games.api.Position
+import org.playerhook.games.api.TokenPlacement
+import org.playerhook.games.tictactoe.TicTacToeRules
+import org.playerhook.games.tictactoe.TicTacToeTokens
+import org.playerhook.games.util.Acknowledgement
+import org.springframework.boot.actuate.metrics.CounterService
+import org.springframework.boot.actuate.metrics.GaugeService
+import spock.lang.Specification
+
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.Executors
+import java.util.concurrent.RejectedExecutionException
+import java.util.concurrent.Semaphore
+import java.util.concurrent.TimeUnit
+
+/**
+ * Tests for the placement client.
+ */
+class PlacementClientSpec extends Specification {
+
+    Player dartagnan = Player.create('dartagnan')
+    Player athos = Player.create('athos')
+
+    HttpServer server
+    URL url
+    Semaphore received = new Semaphore(0)
+    CountDownLatch released = new CountDownLatch(1)
+    int responseStatus = 200
+
+    CounterService counterService = Mock(CounterService)
+    GaugeService gaugeService = Mock(GaugeService)
+
+    void setup() {
+        server = HttpServer.create(new InetSocketAddress('localhost', 0), 0)
+        server.createContext('/') { HttpExchange exchange ->
+            received.release()
+            released.await(10, TimeUnit.SECONDS)
+            byte[] body = '{"acknowledged": true}'.bytes
+            exchange.responseHeaders.add('Content-Type', 'application/json')
+            exchange.sendResponseHeaders(responseStatus, body.length)
+            exchange.responseBody.withStream { it.write(body) }
+        }
+        server.executor = Executors.newCachedThreadPool()
+        server.start()
+        url = new URL("http://localhost:${server.address.port}/games/session/1")
+    }
+
+    void cleanup() {
+        released.countDown()
+        server.stop(0)
+    }
+
+    void 'placements over the window are rejected'() {
+        given:
+            PlacementClient client = new PlacementClient(new PlacementClientProperties(maxInFlight: 2, threads: 4), counterService, (GaugeService) null)
+        when:
+            List<CompletableFuture<Acknowledgement>> sent = (0..<2).collect { client.send(url, placement()) }
+            received.tryAcquire(2, 10, TimeUnit.SECONDS)
+            CompletableFuture<Acknowledgement> rejected = client.send(url, placement())
+        then:
+            rejected.completedExceptionally
+            client.inFlight == 2
+            1 * counterService.increment('placements.rejected')
+        when:
+            rejected.get()
+        then:
+            ExecutionException e = thrown(ExecutionException)
+            e.cause instanceof RejectedExecutionException
+        when:
+            released.countDown()
+            List<Acknowledgement> acknowledgements = sent*.get(10, TimeUnit.SECONDS)
+        then:
+            acknowledgements*.acknowledged == [true, true]
+            client.inFlight == 0
+            2 * counterService.increment('placements.sent')
+        cleanup:
+            client.close()
+    }
+
+    void 'permit is released when the placement fails'() {
+        given:
+            PlacementClient client = new PlacementClient(new PlacementClientProperties(maxInFlight: 1, threads: 1), counterService, (GaugeService) null)
+            responseStatus = 500
+            released.countDown()
+        when:
+            client.send(url, placement()).get(10, TimeUnit.SECONDS)
+        then:
+            thrown(ExecutionException)
+            client.inFlight == 0
+            1 * counterService.increment('placements.failed')
+        when:
+            responseStatus = 200
+            Acknowledgement acknowledgement = client.send(url, placement()).get(10, TimeUnit.SECONDS)
+        then:
+            acknowledgement.acknowledged
+            client.inFlight == 0
+            1 * counterService.increment('placements.sent')
+        cleanup:
+            client.close()
+    }
+
+    void 'placements are rejected without throwing once the client is closed'() {
+        given:
+            PlacementClient client = new PlacementClient(new PlacementClientProperties(maxInFlight: 1, threads: 1), counterService, (GaugeService) null)
+            client.close()
+        when:
+            CompletableFuture<Acknowledgement> rejected = client.send(url, placement())
+        then:
+            rejected.completedExceptionally
+            client.inFlight == 0
+            1 * counterService.increment('placements.rejected')
+        when:
+            rejected.get()
+        then:
+            ExecutionException e = thrown(ExecutionException)
+            e.cause instanceof RejectedExecutionException
+    }
+
+    void 'game service maps failed and rejected placements to not acknowledged'() {
+        given:
+            PlacementClient client = new PlacementClient(new PlacementClientProperties(maxInFlight: 1, threads: 1), counterService, (GaugeService) null)
+            GameService service = new GameService(client, counterService, gaugeService)
+            responseStatus = 500
+        when:
+            CompletableFuture<Acknowledgement> sent = service.sendPlacement(url, placement())
+            received.tryAcquire(1, 10, TimeUnit.SECONDS)
+            Acknowledgement rejected = service.sendPlacement(url, placement()).get(10, TimeUnit.SECONDS)
+            released.countDown()
+            Acknowledgement failed = sent.get(10, TimeUnit.SECONDS)
+        then:
+            rejected.is(Acknowledgement.NOT_ACKNOWLEDGED)
+            failed.is(Acknowledgement.NOT_ACKNOWLEDGED)
+            1 * counterService.increment('placements.rejected')
+            1 * counterService.increment('placements.failed')
+            2 * gaugeService.submit('timer.placements.failed', _)
+        cleanup:
+            client.close()
+    }
+
+    private TokenPlacement placement() {
+        LocalSession session = TicTacToeRules.matchThree(null, url).join(dartagnan).join(athos).start()
+        return session.newPlacement(TicTacToeTokens.CROSS, dartagnan, Position.at(1, 1))
+    }
+
+}
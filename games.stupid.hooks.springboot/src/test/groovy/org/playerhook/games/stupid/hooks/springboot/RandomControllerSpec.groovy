@@ -8,6 +8,7 @@ import org.playerhook.games.api.Position
 import org.playerhook.games.api.SessionUpdateType
 import org.playerhook.games.api.Token
 import org.playerhook.games.tictactoe.TicTacToeRules
+import org.playerhook.games.tictactoe.TicTacToeTokens
 import org.springframework.beans.factory.annotation.Autowired
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest
 import org.springframework.http.MediaType
@@ -66,4 +67,92 @@ class RandomControllerSpec extends Specification {
         then:
             noExceptionThrown()
     }
+
+    @Test void "unknown delta requires full snapshot"() {
+        Player dartagnan = Player.create('dartagnan')
+        Player athos = Player.create('athos')
+
+        LocalSession base = TicTacToeRules
+            .matchThree(null, new URL('http://private-f8637-playerhook.apiary-mock.com/games/session/abc'))
+            .join(dartagnan).join(athos).start()
+        LocalSession session = base.play(base.newPlacement(TicTacToeTokens.CROSS, dartagnan, Position.at(0, 0)))
+
+        when:
+            String jsonDelta = toJson(of(session, SessionUpdateType.Default.MOVE).toMap(base, PROTECTED))
+
+            this.mvc.perform(
+                    post("/random?u=athos")
+                    .content(jsonDelta)
+                    .accept(MediaType.APPLICATION_JSON)
+            ).andExpect(
+                    status().isConflict()
+            ).andExpect(
+                    content().json('{"acknowledged": false}')
+            )
+        then:
+            noExceptionThrown()
+    }
+
+    @Test void "batch of updates is acknowledged per entry"() {
+        Player dartagnan = Player.create('dartagnan')
+        Player athos = Player.create('athos')
+
+        LocalSession base = TicTacToeRules
+            .matchThree(null, new URL('http://private-f8637-playerhook.apiary-mock.com/games/session/batch'))
+            .join(dartagnan).join(athos).start()
+        LocalSession session = base.play(base.newPlacement(TicTacToeTokens.CROSS, dartagnan, Position.at(0, 0)))
+
+        Map update = of(session, SessionUpdateType.Default.MOVE).toMap(PROTECTED)
+        LocalSession next = session.play(session.newPlacement(TicTacToeTokens.CIRCLE, athos, Position.at(1, 1)))
+        Map unknownDelta = of(next, SessionUpdateType.Default.MOVE).toMap(base, PROTECTED)
+
+        when:
+            String ndjson = [
+                toJson([username: 'athos', key: 'secret', update: update]),
+                toJson([username: 'dartagnan', update: update]),
+                toJson([username: 'athos', update: unknownDelta]),
+                toJson([update: update]),
+            ].join('\n')
+
+            this.mvc.perform(
+                    post('/random/batch')
+                    .content(ndjson)
+                    .accept(MediaType.APPLICATION_JSON)
+            ).andExpect(
+                    status().isOk()
+            ).andExpect(
+                    content().json('''[
+                        {"username": "athos", "acknowledged": true, "status": 202},
+                        {"username": "dartagnan", "acknowledged": true, "status": 202},
+                        {"username": "athos", "acknowledged": false, "status": 409},
+                        {"acknowledged": false, "status": 400}
+                    ]''')
+            )
+        then:
+            noExceptionThrown()
+    }
+
+    @Test void "malformed batches are rejected"() {
+        LocalSession session = TicTacToeRules
+            .matchThree(null, new URL('http://private-f8637-playerhook.apiary-mock.com/games/session/malformed'))
+            .join(Player.create('dartagnan')).join(Player.create('athos')).start()
+        String entry = toJson([username: 'athos', update: of(session, SessionUpdateType.Default.STATUS).toMap(PROTECTED)])
+
+        when:
+            [
+                "${entry}\n]\n${entry}",
+                "[${entry}] ${entry}",
+                "[${entry}][]",
+            ].each { String body ->
+                this.mvc.perform(
+                        post('/random/batch')
+                        .content(body)
+                        .accept(MediaType.APPLICATION_JSON)
+                ).andExpect(
+                        status().isBadRequest()
+                )
+            }
+        then:
+            noExceptionThrown()
+    }
 }
@@ -0,0 +1,52 @@
+package org.playerhook.games.stupid.hooks.springboot
+
+import org.springframework.boot.actuate.metrics.CounterService
+import org.springframework.boot.actuate.metrics.GaugeService
+import spock.lang.Specification
+
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+/**
+ * Tests for the update dispatcher.
+ */
+class UpdateDispatcherSpec extends Specification {
+
+    void 'updates of single session are processed in order'() {
+        given:
+            UpdateDispatcher dispatcher = new UpdateDispatcher(new UpdateDispatcherProperties(lanes: 4, queueCapacity: 100), (CounterService) null, (GaugeService) null)
+            Map<String, Queue<Integer>> processed = [a: new ConcurrentLinkedQueue<Integer>(), b: new ConcurrentLinkedQueue<Integer>()]
+        when:
+            (0..<50).each { int i ->
+                processed.each { String session, Queue<Integer> updates ->
+                    assert dispatcher.dispatch(session) { updates << i }
+                }
+            }
+            dispatcher.close()
+        then:
+            processed.a.toList() == (0..<50).toList()
+            processed.b.toList() == (0..<50).toList()
+    }
+
+    void 'updates over the capacity are rejected'() {
+        given:
+            UpdateDispatcher dispatcher = new UpdateDispatcher(new UpdateDispatcherProperties(lanes: 1, queueCapacity: 2), (CounterService) null, (GaugeService) null)
+            CountDownLatch blocked = new CountDownLatch(1)
+            CountDownLatch started = new CountDownLatch(1)
+        when:
+            dispatcher.dispatch('a') {
+                started.countDown()
+                blocked.await(10, TimeUnit.SECONDS)
+            }
+            started.await(10, TimeUnit.SECONDS)
+            List<Boolean> accepted = (0..<3).collect { dispatcher.dispatch('b') { } }
+        then:
+            accepted == [true, true, false]
+            dispatcher.queueDepth == 2
+        cleanup:
+            blocked.countDown()
+            dispatcher.close()
+    }
+
+}
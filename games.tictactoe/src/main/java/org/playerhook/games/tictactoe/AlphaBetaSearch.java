@@ -0,0 +1,631 @@
+package org.playerhook.games.tictactoe;
+
+import com.google.common.base.Preconditions;
+import org.playerhook.games.api.Board;
+import org.playerhook.games.api.Player;
+import org.playerhook.games.api.Position;
+import org.playerhook.games.api.Rules;
+import org.playerhook.games.api.Session;
+import org.playerhook.games.api.TokenPlacement;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Searches the best move of the tic tac toe sessions using iterative deepening alpha-beta search.
+ *
+ * The state of the session is read using the {@link Session} API once per search and the search itself runs on the
+ * compact copy of the board, so the nodes do not allocate. The positions are hashed using Zobrist keys which are
+ * derived from the dimensions of the board and the length of the winning line, so the keys are the same in every
+ * JVM and the transposition table may be kept between the moves of different sessions. The moves are ordered by the
+ * best move from the transposition table first and then by the history heuristic.
+ *
+ * The search is deepened until the time budget is exhausted, the game is solved or the maximal depth is reached.
+ * The move of the last completed iteration is returned.
+ *
+ * The instances are not thread safe, use one instance per thread.
+ */
+public final class AlphaBetaSearch {
+
+    public static final int DEFAULT_TABLE_BITS = 16;
+
+    private static final int WIN = 100_000_000;
+    private static final int WIN_THRESHOLD = WIN - 10_000;
+    private static final int NEIGHBOURHOOD = 2;
+    private static final int TIME_CHECK_MASK = 1023;
+    private static final int[][] AXES = {{1, 0}, {0, 1}, {1, 1}, {1, -1}};
+
+    private static final int EXACT = 0;
+    private static final int LOWER_BOUND = 1;
+    private static final int UPPER_BOUND = 2;
+
+    /**
+     * Outcome of the search.
+     */
+    public static final class Result {
+        private final Position position;
+        private final int score;
+        private final int depth;
+        private final long nodes;
+        private final long tableProbes;
+        private final long tableHits;
+        private final Duration elapsed;
+
+        Result(Position position, int score, int depth, long nodes, long tableProbes, long tableHits, Duration elapsed) {
+            this.position = position;
+            this.score = score;
+            this.depth = depth;
+            this.nodes = nodes;
+            this.tableProbes = tableProbes;
+            this.tableHits = tableHits;
+            this.elapsed = elapsed;
+        }
+
+        /**
+         * @return the best position found or empty if there is no move to play
+         */
+        public Optional<Position> getPosition() {
+            return Optional.ofNullable(position);
+        }
+
+        /**
+         * @return the score of the best position from the point of view of the searching player
+         */
+        public int getScore() {
+            return score;
+        }
+
+        /**
+         * @return <code>true</code> if the searching player wins whatever the opponent plays
+         */
+        public boolean isWinning() {
+            return score >= WIN_THRESHOLD;
+        }
+
+        /**
+         * @return <code>true</code> if the opponent wins whatever the searching player plays
+         */
+        public boolean isLosing() {
+            return score <= -WIN_THRESHOLD;
+        }
+
+        /**
+         * @return the depth of the last completed iteration
+         */
+        public int getDepth() {
+            return depth;
+        }
+
+        public long getNodes() {
+            return nodes;
+        }
+
+        public long getTableProbes() {
+            return tableProbes;
+        }
+
+        public long getTableHits() {
+            return tableHits;
+        }
+
+        public Duration getElapsed() {
+            return elapsed;
+        }
+
+        public double getNodesPerSecond() {
+            return nodes * 1e9 / Math.max(1, elapsed.toNanos());
+        }
+
+        public double getTableHitRate() {
+            return tableProbes == 0 ? 0 : (double) tableHits / tableProbes;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Best move %s with score %d at depth %d after %d nodes in %d ms (%.0f nodes/s, %.1f%% table hits)",
+                    position, score, depth, nodes, elapsed.toMillis(), getNodesPerSecond(), getTableHitRate() * 100);
+        }
+    }
+
+    private final long[] tableKeys;
+    private final long[] tableEntries;
+    private final int tableMask;
+
+    private int width;
+    private int height;
+    private int toWin;
+    private byte[] cells;
+    private final int[] remaining = new int[3];
+    private long[] zobrist;
+    private long sideKey;
+    private int[] history;
+    private int[][] windows;
+    private int[][] moveBuffers;
+    private int[][] orderBuffers;
+
+    private long deadline;
+    private boolean aborted;
+    private long nodes;
+    private long tableProbes;
+    private long tableHits;
+
+    private AlphaBetaSearch(int tableBits) {
+        Preconditions.checkArgument(tableBits > 0 && tableBits <= 28, "Table bits must be between 1 and 28");
+        this.tableKeys = new long[1 << tableBits];
+        this.tableEntries = new long[1 << tableBits];
+        this.tableMask = (1 << tableBits) - 1;
+    }
+
+    public static AlphaBetaSearch create() {
+        return create(DEFAULT_TABLE_BITS);
+    }
+
+    /**
+     * @param tableBits the transposition table holds <code>2^tableBits</code> entries of 16 bytes
+     * @return new search with empty transposition table
+     */
+    public static AlphaBetaSearch create(int tableBits) {
+        return new AlphaBetaSearch(tableBits);
+    }
+
+    /**
+     * Forgets the transposition table and the history of the previous searches, so the next search behaves the same
+     * as the search of the new instance.
+     */
+    public void clear() {
+        Arrays.fill(tableKeys, 0);
+        Arrays.fill(tableEntries, 0);
+        if (history != null) {
+            Arrays.fill(history, 0);
+        }
+    }
+
+    /**
+     * Searches the best position for the next token of given player.
+     *
+     * @param session tic tac toe session
+     * @param player player on turn
+     * @param budget time budget of the search
+     * @return the result of the search
+     */
+    public Result search(Session session, Player player, Duration budget) {
+        return search(session, player, budget, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Searches the best position for the next token of given player.
+     *
+     * @param session tic tac toe session
+     * @param player player on turn
+     * @param budget time budget of the search
+     * @param maxDepth maximal depth of the search in plies
+     * @return the result of the search
+     * @throws IllegalArgumentException if the session is not tic tac toe session or the player does not play it
+     */
+    public Result search(Session session, Player player, Duration budget, int maxDepth) {
+        long start = System.nanoTime();
+        deadline = start + budget.toNanos();
+        aborted = false;
+        nodes = 0;
+        tableProbes = 0;
+        tableHits = 0;
+
+        int side = load(session, player);
+
+        int free = 0;
+        for (byte cell : cells) {
+            if (cell == 0) {
+                free++;
+            }
+        }
+
+        if (free == 0 || remaining[side] == 0) {
+            return new Result(null, 0, 0, 0, 0, 0, Duration.ofNanos(System.nanoTime() - start));
+        }
+
+        long key = hash(side);
+        int[] moves = moveBuffers[0];
+        int count = generateMoves(moves);
+        order(moves, count, -1, 0);
+
+        int bestMove = moves[0];
+        int bestScore = 0;
+        int completedDepth = 0;
+
+        for (int depth = 1; depth <= Math.min(maxDepth, free); depth++) {
+            int iterationBest = -1;
+            int alpha = -WIN - 1;
+            int tableMove = probeMove(key);
+            count = generateMoves(moves);
+            order(moves, count, tableMove >= 0 ? tableMove : bestMove, 0);
+
+            for (int i = 0; i < count; i++) {
+                int score = -child(moves[i], side, key, depth, 0, -WIN - 1, -alpha);
+                if (aborted) {
+                    break;
+                }
+                if (score > alpha) {
+                    alpha = score;
+                    iterationBest = moves[i];
+                }
+            }
+
+            if (aborted) {
+                break;
+            }
+
+            bestMove = iterationBest;
+            bestScore = alpha;
+            completedDepth = depth;
+            store(key, depth, alpha, EXACT, bestMove, 0);
+
+            if (Math.abs(alpha) >= WIN_THRESHOLD) {
+                break;
+            }
+        }
+
+        return new Result(position(session.getBoard(), bestMove), bestScore, completedDepth, nodes, tableProbes, tableHits,
+                Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    /**
+     * Plays the move and returns the score from the point of view of the opponent of the side which played it.
+     */
+    private int child(int move, int side, long key, int depth, int ply, int alpha, int beta) {
+        int other = 3 - side;
+        cells[move] = (byte) side;
+        remaining[side]--;
+        long childKey = key ^ zobrist[move * 2 + side - 1] ^ sideKey;
+        int score;
+        if (wins(move, side)) {
+            score = -(WIN - ply - 1);
+        } else if (remaining[other] == 0 || isFull()) {
+            score = 0;
+        } else if (depth <= 1) {
+            score = evaluate(other);
+        } else {
+            score = negamax(other, childKey, depth - 1, ply + 1, alpha, beta);
+        }
+        remaining[side]++;
+        cells[move] = 0;
+        return score;
+    }
+
+    private int negamax(int side, long key, int depth, int ply, int alpha, int beta) {
+        if ((++nodes & TIME_CHECK_MASK) == 0 && System.nanoTime() > deadline) {
+            aborted = true;
+        }
+        if (aborted) {
+            return 0;
+        }
+
+        int originalAlpha = alpha;
+        int tableMove = -1;
+
+        tableProbes++;
+        int slot = (int) key & tableMask;
+        if (tableKeys[slot] == key) {
+            tableHits++;
+            long entry = tableEntries[slot];
+            tableMove = entryMove(entry);
+            if (entryDepth(entry) >= depth) {
+                int score = fromTable(entryScore(entry), ply);
+                int flag = entryFlag(entry);
+                if (flag == EXACT) {
+                    return score;
+                }
+                if (flag == LOWER_BOUND) {
+                    alpha = Math.max(alpha, score);
+                } else {
+                    beta = Math.min(beta, score);
+                }
+                if (alpha >= beta) {
+                    return score;
+                }
+            }
+        }
+
+        int[] moves = moveBuffers[ply];
+        int count = generateMoves(moves);
+        order(moves, count, tableMove, ply);
+
+        int best = -WIN - 1;
+        int bestMove = moves[0];
+        for (int i = 0; i < count; i++) {
+            int score = -child(moves[i], side, key, depth, ply, -beta, -alpha);
+            if (aborted) {
+                return 0;
+            }
+            if (score > best) {
+                best = score;
+                bestMove = moves[i];
+            }
+            if (score > alpha) {
+                alpha = score;
+            }
+            if (alpha >= beta) {
+                history[moves[i]] += depth * depth;
+                break;
+            }
+        }
+
+        int flag = best <= originalAlpha ? UPPER_BOUND : best >= beta ? LOWER_BOUND : EXACT;
+        store(key, depth, best, flag, bestMove, ply);
+        return best;
+    }
+
+    private int load(Session session, Player player) {
+        Rules rules = session.getGame().getRules();
+        if (!(rules instanceof TicTacToeRules)) {
+            throw new IllegalArgumentException("Only tic tac toe sessions can be searched: " + rules.getType());
+        }
+        List<Player> players = session.getPlayers();
+        int playerIndex = players.indexOf(player);
+        if (playerIndex < 0 || playerIndex > 1) {
+            throw new IllegalArgumentException("Player " + player + " does not play " + session);
+        }
+
+        Board board = session.getBoard();
+        int newToWin = ((TicTacToeRules) rules).getToWin();
+        if (cells == null || width != board.getWidth() || height != board.getHeight() || toWin != newToWin) {
+            prepare(board.getWidth(), board.getHeight(), newToWin);
+        } else {
+            Arrays.fill(cells, (byte) 0);
+        }
+
+        for (TokenPlacement placement : board.getTokenPlacements()) {
+            if (!board.contains(placement.getDestination())) {
+                // placements outside of the board cannot be part of any line on the board
+                continue;
+            }
+            int owner = players.indexOf(placement.getPlayer());
+            if (owner < 0) {
+                owner = TicTacToeTokens.CROSS.getSymbol().equals(placement.getToken().getSymbol()) ? 0 : 1;
+            }
+            Position destination = placement.getDestination();
+            cells[(destination.getRow() - board.getFirstRow()) * width + destination.getColumn() - board.getFirstColumn()] = (byte) (owner + 1);
+        }
+
+        remaining[1] = session.getDeck(players.get(0)).getPlayableCount();
+        remaining[2] = players.size() > 1 ? session.getDeck(players.get(1)).getPlayableCount() : 0;
+
+        for (int i = 0; i < history.length; i++) {
+            history[i] >>= 2;
+        }
+
+        return playerIndex + 1;
+    }
+
+    private void prepare(int newWidth, int newHeight, int newToWin) {
+        width = newWidth;
+        height = newHeight;
+        toWin = newToWin;
+
+        int size = width * height;
+        cells = new byte[size];
+        history = new int[size];
+        moveBuffers = new int[size + 1][size];
+        orderBuffers = new int[size + 1][size];
+
+        long seed = mix(((long) toWin << 40) ^ ((long) width << 20) ^ height);
+        zobrist = new long[size * 2];
+        for (int i = 0; i < zobrist.length; i++) {
+            zobrist[i] = mix(seed + i);
+        }
+        sideKey = mix(seed - 1);
+
+        int windowCount = 0;
+        int[][] candidates = new int[size * AXES.length][];
+        for (int cell = 0; cell < size; cell++) {
+            int row = cell / width;
+            int column = cell % width;
+            for (int[] axis : AXES) {
+                int endRow = row + axis[0] * (toWin - 1);
+                int endColumn = column + axis[1] * (toWin - 1);
+                if (endRow < 0 || endRow >= height || endColumn < 0 || endColumn >= width) {
+                    continue;
+                }
+                int[] window = new int[toWin];
+                for (int i = 0; i < toWin; i++) {
+                    window[i] = (row + axis[0] * i) * width + column + axis[1] * i;
+                }
+                candidates[windowCount++] = window;
+            }
+        }
+        windows = Arrays.copyOf(candidates, windowCount);
+    }
+
+    /**
+     * SplitMix64 finalizer so the keys do not depend on the random generator of the JVM.
+     */
+    private static long mix(long value) {
+        long z = value + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private long hash(int side) {
+        long key = side == 2 ? sideKey : 0;
+        for (int cell = 0; cell < cells.length; cell++) {
+            if (cells[cell] != 0) {
+                key ^= zobrist[cell * 2 + cells[cell] - 1];
+            }
+        }
+        return key;
+    }
+
+    /**
+     * Collects the free cells close to the placed tokens, or the center of the empty board.
+     */
+    private int generateMoves(int[] moves) {
+        int count = 0;
+        boolean empty = true;
+        for (int cell = 0; cell < cells.length; cell++) {
+            if (cells[cell] != 0) {
+                empty = false;
+            } else if (hasNeighbour(cell)) {
+                moves[count++] = cell;
+            }
+        }
+        if (empty) {
+            moves[count++] = (height / 2) * width + width / 2;
+        }
+        return count;
+    }
+
+    private boolean hasNeighbour(int cell) {
+        int row = cell / width;
+        int column = cell % width;
+        for (int r = Math.max(0, row - NEIGHBOURHOOD); r <= Math.min(height - 1, row + NEIGHBOURHOOD); r++) {
+            for (int c = Math.max(0, column - NEIGHBOURHOOD); c <= Math.min(width - 1, column + NEIGHBOURHOOD); c++) {
+                if (cells[r * width + c] != 0) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Orders the moves by the history heuristic with the preferred move first using insertion sort.
+     */
+    private void order(int[] moves, int count, int preferred, int ply) {
+        int[] keys = orderBuffers[ply];
+        for (int i = 0; i < count; i++) {
+            keys[i] = moves[i] == preferred ? Integer.MAX_VALUE : history[moves[i]];
+        }
+        for (int i = 1; i < count; i++) {
+            int move = moves[i];
+            int moveKey = keys[i];
+            int j = i - 1;
+            while (j >= 0 && keys[j] < moveKey) {
+                moves[j + 1] = moves[j];
+                keys[j + 1] = keys[j];
+                j--;
+            }
+            moves[j + 1] = move;
+            keys[j + 1] = moveKey;
+        }
+    }
+
+    private boolean wins(int cell, int side) {
+        int row = cell / width;
+        int column = cell % width;
+        for (int[] axis : AXES) {
+            int length = 1 + run(row, column, axis[0], axis[1], side) + run(row, column, -axis[0], -axis[1], side);
+            if (length >= toWin) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int run(int row, int column, int rowStep, int columnStep, int side) {
+        int length = 0;
+        int r = row + rowStep;
+        int c = column + columnStep;
+        while (r >= 0 && r < height && c >= 0 && c < width && cells[r * width + c] == side) {
+            length++;
+            r += rowStep;
+            c += columnStep;
+        }
+        return length;
+    }
+
+    private boolean isFull() {
+        for (byte cell : cells) {
+            if (cell == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Scores the windows which can still become the winning line, from the point of view of given side.
+     */
+    private int evaluate(int side) {
+        int score = 0;
+        for (int[] window : windows) {
+            int mine = 0;
+            int theirs = 0;
+            for (int cell : window) {
+                if (cells[cell] == side) {
+                    mine++;
+                } else if (cells[cell] != 0) {
+                    theirs++;
+                }
+            }
+            if (theirs == 0 && mine > 0) {
+                score += 1 << (2 * mine);
+            } else if (mine == 0 && theirs > 0) {
+                score -= 1 << (2 * theirs);
+            }
+        }
+        return score;
+    }
+
+    private int probeMove(long key) {
+        int slot = (int) key & tableMask;
+        return tableKeys[slot] == key ? entryMove(tableEntries[slot]) : -1;
+    }
+
+    private void store(long key, int depth, int score, int flag, int move, int ply) {
+        int slot = (int) key & tableMask;
+        if (tableKeys[slot] == key && entryDepth(tableEntries[slot]) > depth) {
+            return;
+        }
+        tableKeys[slot] = key;
+        tableEntries[slot] = (toTable(score, ply) & 0xFFFFFFFFL)
+                | ((long) Math.min(depth, 0xFF) << 32)
+                | ((long) flag << 40)
+                | ((long) (move + 1) << 42);
+    }
+
+    /**
+     * The winning scores are stored relative to the node so they remain valid in the transpositions at other plies.
+     */
+    private static int toTable(int score, int ply) {
+        if (score >= WIN_THRESHOLD) {
+            return score + ply;
+        }
+        if (score <= -WIN_THRESHOLD) {
+            return score - ply;
+        }
+        return score;
+    }
+
+    private static int fromTable(int score, int ply) {
+        if (score >= WIN_THRESHOLD) {
+            return score - ply;
+        }
+        if (score <= -WIN_THRESHOLD) {
+            return score + ply;
+        }
+        return score;
+    }
+
+    private static int entryScore(long entry) {
+        return (int) entry;
+    }
+
+    private static int entryDepth(long entry) {
+        return (int) (entry >>> 32) & 0xFF;
+    }
+
+    private static int entryFlag(long entry) {
+        return (int) (entry >>> 40) & 0x3;
+    }
+
+    private static int entryMove(long entry) {
+        return (int) (entry >>> 42) - 1;
+    }
+
+    private Position position(Board board, int cell) {
+        return Position.at(board.getFirstRow() + cell / width, board.getFirstColumn() + cell % width);
+    }
+
+}
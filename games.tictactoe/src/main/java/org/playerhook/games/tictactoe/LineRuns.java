@@ -0,0 +1,191 @@
+package org.playerhook.games.tictactoe;
+
+import org.playerhook.games.api.Board;
+import org.playerhook.games.api.BoardIndex;
+import org.playerhook.games.api.Position;
+import org.playerhook.games.api.TokenPlacement;
+
+/**
+ * Lengths of the lines of the same tokens on the board in all four axes.
+ *
+ * For every axis the length of the line is stored in both of its ends, so placing a token only needs to look at its
+ * direct neighbours and update the far ends of the joined lines. Both placing and checking the line through a cell
+ * are constant time.
+ *
+ * The index is persistent. The symbols and the runs are kept in small chunks and placing a token copies only the
+ * chunks it touches, every other chunk is shared with the index of the original board. Any board can be placed any
+ * number of times, for example by a search exploring sibling moves, without rebuilding the index.
+ */
+final class LineRuns {
+
+    static final BoardIndex<LineRuns> INDEX = new BoardIndex<LineRuns>() {
+        @Override
+        public LineRuns build(Board board) {
+            return LineRuns.build(board);
+        }
+
+        @Override
+        public LineRuns update(LineRuns index, Board board, TokenPlacement placement) {
+            return index.place(placement);
+        }
+    };
+
+    private static final int[][] AXES = {{1, 0}, {0, 1}, {1, 1}, {1, -1}};
+
+    private static final int CHUNK_BITS = 5;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private final int firstRow;
+    private final int firstColumn;
+    private final int width;
+    private final int height;
+
+    /**
+     * Symbols of the first tokens placed to the cells, chunked by the cell.
+     */
+    private final String[][] symbols;
+
+    /**
+     * Lengths of the runs, chunked by <code>cell * AXES.length + axis</code>.
+     */
+    private final int[][] runs;
+
+    /**
+     * @param board the board containing the empty position
+     * @param position the empty position
+     * @param symbol the symbol of the token to be placed
+     * @return the longest line in any of the axes which would be created by placing the token at given position
+     */
+    static int longestLineThrough(Board board, Position position, String symbol) {
+        return board.getIndex(INDEX).longestLineThrough(position, symbol);
+    }
+
+    private static LineRuns build(Board board) {
+        int cells = board.getWidth() * board.getHeight();
+        LineRuns runs = new LineRuns(board.getFirstRow(), board.getFirstColumn(), board.getWidth(), board.getHeight(),
+                new String[chunks(cells)][], new int[chunks(cells * AXES.length)][]);
+        for (TokenPlacement placement : board.getTokenPlacements()) {
+            // the index is not shared with any board yet so it can be written in place
+            runs.write(null, placement);
+        }
+        return runs;
+    }
+
+    private LineRuns(int firstRow, int firstColumn, int width, int height, String[][] symbols, int[][] runs) {
+        this.firstRow = firstRow;
+        this.firstColumn = firstColumn;
+        this.width = width;
+        this.height = height;
+        this.symbols = symbols;
+        this.runs = runs;
+    }
+
+    private int longestLineThrough(Position position, String symbol) {
+        int cell = indexOf(position.getRow(), position.getColumn());
+        if (cell < 0) {
+            return 0;
+        }
+        int longest = 0;
+        for (int axis = 0; axis < AXES.length; axis++) {
+            longest = Math.max(longest, runFrom(cell, axis, -1, symbol) + 1 + runFrom(cell, axis, 1, symbol));
+        }
+        return longest;
+    }
+
+    private LineRuns place(TokenPlacement placement) {
+        int cell = indexOf(placement.getDestination().getRow(), placement.getDestination().getColumn());
+        if (cell < 0 || symbolAt(cell) != null) {
+            return this;
+        }
+        LineRuns placed = new LineRuns(firstRow, firstColumn, width, height, symbols.clone(), runs.clone());
+        placed.write(this, placement);
+        return placed;
+    }
+
+    /**
+     * Writes the placement to this index.
+     *
+     * @param original the index sharing the chunks with this one which must not be changed or <code>null</code> if
+     *                 none of the chunks is shared
+     * @param placement the placement to be written
+     */
+    private void write(LineRuns original, TokenPlacement placement) {
+        int cell = indexOf(placement.getDestination().getRow(), placement.getDestination().getColumn());
+        if (cell < 0 || symbolAt(cell) != null) {
+            return;
+        }
+        String symbol = placement.getToken().getSymbol();
+        for (int axis = 0; axis < AXES.length; axis++) {
+            int before = runFrom(cell, axis, -1, symbol);
+            int after = runFrom(cell, axis, 1, symbol);
+            int total = before + 1 + after;
+            int step = AXES[axis][0] * width + AXES[axis][1];
+            setRun(original, cell, axis, total);
+            setRun(original, cell - before * step, axis, total);
+            setRun(original, cell + after * step, axis, total);
+        }
+        String[] chunk = symbols[cell >>> CHUNK_BITS];
+        if (chunk == null) {
+            chunk = new String[CHUNK_SIZE];
+        } else if (original != null && chunk == original.symbols[cell >>> CHUNK_BITS]) {
+            chunk = chunk.clone();
+        }
+        chunk[cell & CHUNK_MASK] = symbol;
+        symbols[cell >>> CHUNK_BITS] = chunk;
+    }
+
+    private int indexOf(int row, int column) {
+        int r = row - firstRow;
+        int c = column - firstColumn;
+        if (r < 0 || r >= height || c < 0 || c >= width) {
+            return -1;
+        }
+        return r * width + c;
+    }
+
+    private int neighbour(int cell, int axis, int sign) {
+        int row = cell / width + sign * AXES[axis][0];
+        int column = cell % width + sign * AXES[axis][1];
+        if (row < 0 || row >= height || column < 0 || column >= width) {
+            return -1;
+        }
+        return row * width + column;
+    }
+
+    private int runFrom(int cell, int axis, int sign, String symbol) {
+        int next = neighbour(cell, axis, sign);
+        if (next < 0 || !symbol.equals(symbolAt(next))) {
+            return 0;
+        }
+        return runAt(next, axis);
+    }
+
+    private String symbolAt(int cell) {
+        String[] chunk = symbols[cell >>> CHUNK_BITS];
+        return chunk == null ? null : chunk[cell & CHUNK_MASK];
+    }
+
+    private int runAt(int cell, int axis) {
+        int index = cell * AXES.length + axis;
+        int[] chunk = runs[index >>> CHUNK_BITS];
+        return chunk == null ? 0 : chunk[index & CHUNK_MASK];
+    }
+
+    private void setRun(LineRuns original, int cell, int axis, int run) {
+        int index = cell * AXES.length + axis;
+        int[] chunk = runs[index >>> CHUNK_BITS];
+        if (chunk == null) {
+            chunk = new int[CHUNK_SIZE];
+        } else if (original != null && chunk == original.runs[index >>> CHUNK_BITS]) {
+            chunk = chunk.clone();
+        }
+        chunk[index & CHUNK_MASK] = run;
+        runs[index >>> CHUNK_BITS] = chunk;
+    }
+
+    private static int chunks(int size) {
+        return (size + CHUNK_MASK) >>> CHUNK_BITS;
+    }
+
+}
@@ -1,6 +1,5 @@
 package org.playerhook.games.tictactoe;
 
-import com.google.common.collect.ImmutableList;
 import org.playerhook.games.api.*;
 
 import java.net.URL;
@@ -55,13 +54,6 @@ public class TicTacToeRules implements Rules {
         }
     }
 
-    private static final ImmutableList<ImmutableList<Direction>> COUNTING_DIRECTION = ImmutableList.of(
-            ImmutableList.of(Direction.DOWN, Direction.UP),
-            ImmutableList.of(Direction.RIGHT, Direction.LEFT),
-            ImmutableList.of(Direction.UPPER_LEFT, Direction.LOWER_RIGHT),
-            ImmutableList.of(Direction.UPPER_RIGHT, Direction.LOWER_LEFT)
-    );
-
     private final int toWin;
 
     private TicTacToeRules(int toWin) {
@@ -90,21 +82,18 @@ public class TicTacToeRules implements Rules {
     public EvaluationResult evaluate(Session session, TokenPlacement placement) {
         EvaluationResult.Builder builder = EvaluationResult.builder(placement);
 
-        for (ImmutableList<Direction> directions : COUNTING_DIRECTION) {
-            int count = countAround(session, placement, directions);
-            if (count >= toWin) {
-                return builder.updateScore(placement.getPlayer(),
-                        session.getBoard().getWidth()
-                        * session.getBoard().getHeight()
-                        - session.getBoard().getTokenPlacements().size()
-                        + 1).finishGame().build();
-            }
+        if (LineRuns.longestLineThrough(session.getBoard(), placement.getDestination(), placement.getToken().getSymbol()) >= toWin) {
+            return builder.updateScore(placement.getPlayer(),
+                    session.getBoard().getWidth()
+                    * session.getBoard().getHeight()
+                    - session.getBoard().getOccupiedCount()
+                    + 1).finishGame().build();
         }
 
         for (Player player : session.getPlayers()) {
             if (!player.equals(placement.getPlayer())) {
                 builder.nextPlayer(player);
-                if (session.getDeck(player).getPlayableTokens().size() == 0) {
+                if (session.getDeck(player).getPlayableCount() == 0) {
                     return builder.finishGame().build();
                 }
                 break;
@@ -118,6 +107,13 @@ public class TicTacToeRules implements Rules {
         return builder.build();
     }
 
+    /**
+     * @return number of the tokens in a row required to win
+     */
+    public int getToWin() {
+        return toWin;
+    }
+
     @Override
     public int getMinPlayers() {
         return 2;
@@ -132,21 +128,4 @@ public class TicTacToeRules implements Rules {
     public String getDescription() {
         return "Player who first place " + toWin + " tokens in a vertical, horizontal or diagonal row wins";
     }
-
-    private int countAround(Session session, TokenPlacement placement, ImmutableList<Direction> directions) {
-        Token expected = placement.getToken();
-
-        int count = 1;
-
-        for  (Direction direction : directions) {
-            Position position = placement.getDestination().at(direction);
-
-            while (session.getBoard().getTokenPlacement(position).map(other -> expected.equals(other.getToken())).orElse(false)) {
-                count++;
-                position = position.at(direction);
-            }
-        }
-
-        return count;
-    }
 }
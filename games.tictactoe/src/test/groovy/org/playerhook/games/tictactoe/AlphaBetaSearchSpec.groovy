@@ -0,0 +1,100 @@
+package org.playerhook.games.tictactoe
+
+import org.playerhook.games.api.Board
+import org.playerhook.games.api.LocalSession
+import org.playerhook.games.api.Player
+import org.playerhook.games.api.Position
+import org.playerhook.games.api.Rules
+import org.playerhook.games.api.Session
+import spock.lang.Specification
+
+import java.time.Duration
+
+import static org.playerhook.games.util.MapSerializable.PrivacyLevel.INTERNAL
+
+/**
+ * Tests for the alpha-beta search.
+ */
+class AlphaBetaSearchSpec extends Specification {
+
+    Player dartagnan = Player.create('dartagnan')
+    Player athos = Player.create('athos')
+
+    AlphaBetaSearch search = AlphaBetaSearch.create(12)
+
+    void 'winning move is played'() {
+        given:
+            LocalSession session = play(TicTacToeRules.matchThree(null, null), [2, 2], [0, 0], [2, 3], [4, 4])
+        when:
+            AlphaBetaSearch.Result result = search.search(session, dartagnan, Duration.ofSeconds(5))
+        then:
+            result.position.get() in [Position.at(2, 1), Position.at(2, 4)]
+            result.winning
+            result.depth == 1
+    }
+
+    void 'losing move is blocked'() {
+        given:
+            LocalSession session = play(TicTacToeRules.matchThree(null, null), [4, 0], [0, 0], [2, 4], [0, 1])
+        when:
+            AlphaBetaSearch.Result result = search.search(session, dartagnan, Duration.ofSeconds(5), 4)
+        then:
+            result.position.get() == Position.at(0, 2)
+            result.depth == 4
+            result.nodes > 0
+            result.tableProbes > 0
+    }
+
+    void 'search respects the time budget'() {
+        given:
+            LocalSession session = play(TicTacToeRules.matchFive(null, null), [3, 3], [4, 4])
+        when:
+            AlphaBetaSearch.Result result = search.search(session, dartagnan, Duration.ofMillis(50))
+        then:
+            result.position.present
+            result.elapsed < Duration.ofSeconds(1)
+            result.tableHitRate >= 0
+    }
+
+    void 'placements outside of the board are ignored'() {
+        given:
+            LocalSession played = play(TicTacToeRules.matchThree(null, null), [2, 2], [0, 0], [2, 3])
+            Board board = played.board.place(played.newPlacement(TicTacToeTokens.CIRCLE, athos, Position.at(played.board.height + 2, played.board.width + 2)))
+            Session session = Session.load(played.toMap(INTERNAL) + [board: board.toMap(INTERNAL)])
+        when:
+            AlphaBetaSearch.Result result = search.search(session, athos, Duration.ofSeconds(5), 2)
+        then:
+            !session.board.contains(session.board.tokenPlacements.last().destination)
+            result.position.get() in [Position.at(2, 1), Position.at(2, 4)]
+    }
+
+    void 'players who do not play the session are rejected'() {
+        when:
+            search.search(play(TicTacToeRules.matchThree(null, null)), Player.create('porthos'), Duration.ofMillis(10))
+        then:
+            thrown(IllegalArgumentException)
+    }
+
+    void 'sessions of other games are rejected'() {
+        given:
+            Map<String, Object> payload = play(TicTacToeRules.matchThree(null, null)).toMap(INTERNAL)
+            Map<String, Object> game = payload.game + [rules: payload.game.rules + [type: 'org.playerhook.games.chess.ChessRules']]
+            Session session = Session.load(payload + [game: game])
+        when:
+            search.search(session, dartagnan, Duration.ofMillis(10))
+        then:
+            session.game.rules instanceof Rules.Stub
+            IllegalArgumentException e = thrown(IllegalArgumentException)
+            e.message.contains('ChessRules')
+    }
+
+    private LocalSession play(LocalSession created, List<Integer>... positions) {
+        LocalSession session = created.join(dartagnan).join(athos).start()
+        positions.eachWithIndex { List<Integer> position, int i ->
+            Player onTurn = i % 2 == 0 ? dartagnan : athos
+            session = session.play(session.newPlacement(i % 2 == 0 ? TicTacToeTokens.CROSS : TicTacToeTokens.CIRCLE, onTurn, Position.at(position[0], position[1])))
+        }
+        return session
+    }
+
+}
@@ -0,0 +1,100 @@
+package org.playerhook.games.tictactoe
+
+import org.playerhook.games.api.Board
+import org.playerhook.games.api.LocalSession
+import org.playerhook.games.api.Player
+import org.playerhook.games.api.Position
+import org.playerhook.games.api.Status
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import java.util.stream.IntStream
+
+import static org.playerhook.games.util.MapSerializable.PrivacyLevel.INTERNAL
+
+/**
+ * Tic Tac Toe rules specification.
+ */
+class TicTacToeRulesSpec extends Specification {
+
+    Player dartagnan = Player.create('dartagnan')
+    Player athos = Player.create('athos')
+
+    @Unroll
+    void "#line line wins"() {
+        given:
+            LocalSession session = TicTacToeRules.matchThree(null, null).join(dartagnan).join(athos).start()
+        when:
+            // crosses are played in the given line, circles are played to the last row
+            LocalSession finished = play(session, [crosses[0], [4, 0], crosses[1], [4, 2], crosses[2]])
+        then:
+            finished.status == Status.FINISHED
+            finished.getScore(dartagnan) == 5 * 5 - 4 + 1
+            finished.getScore(athos) == 0
+        where:
+            line            | crosses
+            'horizontal'    | [[0, 0], [0, 2], [0, 1]]
+            'vertical'      | [[3, 3], [1, 3], [2, 3]]
+            'diagonal'      | [[0, 0], [2, 2], [1, 1]]
+            'anti diagonal' | [[1, 3], [3, 1], [2, 2]]
+    }
+
+    void "line interrupted by the opponent does not win"() {
+        given:
+            LocalSession session = TicTacToeRules.matchThree(null, null).join(dartagnan).join(athos).start()
+        when:
+            LocalSession played = play(session, [[0, 0], [0, 1], [0, 2], [4, 4], [0, 3]])
+        then:
+            played.status == Status.IN_PROGRESS
+    }
+
+    void "branched and reloaded sessions detect lines on their own boards"() {
+        given:
+            LocalSession session = play(TicTacToeRules.matchThree(null, null).join(dartagnan).join(athos).start(), [[0, 0], [4, 0], [0, 1], [4, 1]])
+        when:
+            LocalSession winning = play(session, [[0, 2]])
+            LocalSession other = play(session, [[1, 2]])
+            LocalSession reloaded = play(LocalSession.load(session.toMap(INTERNAL)), [[3, 3], [4, 2]])
+        then:
+            winning.status == Status.FINISHED
+            other.status == Status.IN_PROGRESS
+            play(other, [[4, 2]]).status == Status.FINISHED
+            reloaded.status == Status.FINISHED
+            reloaded.getScore(athos) == 5 * 5 - 5 + 1
+    }
+
+    void "board is evaluated on its own after a sibling placement"() {
+        given:
+            LocalSession session = play(TicTacToeRules.matchThree(null, null).join(dartagnan).join(athos).start(), [[0, 0], [4, 0], [0, 1], [4, 1]])
+            Board board = session.board
+            String cross = TicTacToeTokens.CROSS.symbol
+            String circle = TicTacToeTokens.CIRCLE.symbol
+            LineRuns runs = board.getIndex(LineRuns.INDEX)
+        when:
+            Board sibling = board.place(session.newPlacement(TicTacToeTokens.CIRCLE, athos, Position.at(0, 2)))
+            Board other = board.place(session.newPlacement(TicTacToeTokens.CIRCLE, athos, Position.at(4, 2)))
+        then:
+            board.getIndex(LineRuns.INDEX).is(runs)
+            LineRuns.longestLineThrough(other, Position.at(0, 2), cross) == 3
+            LineRuns.longestLineThrough(other, Position.at(4, 3), circle) == 4
+            LineRuns.longestLineThrough(board, Position.at(0, 2), cross) == 3
+            LineRuns.longestLineThrough(sibling, Position.at(4, 2), circle) == 3
+            LineRuns.longestLineThrough(sibling, Position.at(0, 3), cross) == 1
+        and:
+            IntStream.range(0, 1000).parallel().allMatch { int i ->
+                board.place(session.newPlacement(TicTacToeTokens.CIRCLE, athos, Position.at(0, 2)))
+                LineRuns.longestLineThrough(board, Position.at(0, 2), cross) == 3
+            }
+    }
+
+    private static LocalSession play(LocalSession session, List<List<Integer>> positions) {
+        LocalSession s = session
+        for (List<Integer> position in positions) {
+            Player onTurn = s.playerOnTurn.get()
+            s = s.play(s.newPlacement(s.getDeck(onTurn).playableTokens.first(), onTurn, Position.at(position[0], position[1])))
+            assert !s.lastMove.get().ruleViolation.present
+        }
+        return s
+    }
+
+}
@@ -2,17 +2,22 @@ package org.playerhook.games.tictactoe
 
 import groovy.json.JsonOutput
 import groovy.json.JsonSlurper
+import org.playerhook.games.api.JsonCodec
+import org.playerhook.games.api.KeyDerivation
 import org.playerhook.games.api.LocalSession
 import org.playerhook.games.api.Player
 import org.playerhook.games.api.Position
+import org.playerhook.games.api.RuleViolation
 import org.playerhook.games.api.SessionUpdate
 import org.playerhook.games.api.Token
 import org.playerhook.games.util.SessionPrinter
 import spock.lang.Specification
 
 import java.security.SecureRandom
+import java.util.concurrent.Executor
 
 import static org.playerhook.games.api.SessionUpdate.materialize
+import static org.playerhook.games.util.MapSerializable.PrivacyLevel.INTERNAL
 import static org.playerhook.games.util.MapSerializable.PrivacyLevel.PROTECTED
 
 /**
@@ -64,6 +69,57 @@ class TicTacToeSessionSpec extends Specification {
             noExceptionThrown()
     }
 
+    void "sanity check - streaming json"() {
+        when:
+            LocalSession session = TicTacToeRules.matchThree(
+                    new URL('http://www.example.com/ttt'),
+                    new URL('http://www.example.com/ttt/456')
+            ).asObservableSession()
+
+            session.observe().subscribe {
+                String json = JsonCodec.toJson(it, PROTECTED)
+                assert new JsonSlurper().parseText(json) == new JsonSlurper().parseText(JsonOutput.toJson(it.toMap(PROTECTED)))
+                assert JsonCodec.readSessionUpdate(json).toMap(PROTECTED) == materialize(new JsonSlurper().parseText(json)).toMap(PROTECTED)
+            }
+
+            Player dartagnan = Player.create('dartagnan')
+            Player athos = Player.create('athos')
+
+            LocalSession signed = session.join(dartagnan).join(athos).signWith('pa$$word', KeyDerivation.Default.HMAC_SHA256).start()
+            LocalSession loaded = JsonCodec.readLocalSession(JsonCodec.toJson(signed, INTERNAL))
+
+            finish(signed)
+
+        then:
+            loaded.toMap(INTERNAL) == signed.toMap(INTERNAL)
+            loaded.getKey(athos) == signed.getKey(athos)
+    }
+
+    void "signed session with single pass key derivation"() {
+        given:
+            Player dartagnan = Player.create('dartagnan')
+            Player athos = Player.create('athos')
+            LocalSession session = TicTacToeRules.matchThree(
+                    new URL('http://www.example.com/ttt'),
+                    new URL('http://www.example.com/ttt/678')
+            ).join(dartagnan).join(athos).signWith('pa$$word', KeyDerivation.Default.HMAC_SHA256).start()
+
+        when:
+            LocalSession loaded = LocalSession.load(session.toMap(INTERNAL))
+            session.precomputeNextRoundKeys({ Runnable it -> it.run() } as Executor).get()
+            LocalSession forged = loaded.play(loaded.newPlacement(TicTacToeTokens.CROSS, dartagnan, Position.at(0, 0)).sign('forged'))
+            LocalSession played = loaded.play(loaded.newPlacement(TicTacToeTokens.CROSS, dartagnan, Position.at(0, 0)))
+
+        then:
+            loaded.toMap(INTERNAL) == session.toMap(INTERNAL)
+            loaded.toMap(INTERNAL).keyDerivation == "HMAC_SHA256"
+            loaded.getKey(athos) == session.getKey(athos)
+            session.getKey(athos) != session.signWith('pa$$word').getKey(athos)
+            forged.lastMove.get().ruleViolation.get() == RuleViolation.Default.KEY_MISMATCH
+            !played.lastMove.get().ruleViolation.present
+            played.playerOnTurn.get() == athos
+    }
+
     protected static void finish(LocalSession session) {
         LocalSession s = session
         SecureRandom random = new SecureRandom()